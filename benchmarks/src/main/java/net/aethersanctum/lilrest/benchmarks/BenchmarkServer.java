@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.benchmarks;
+
+import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.examples.simple.AddressOperations;
+import net.aethersanctum.lilrest.server.JaxRsServer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+
+import java.nio.file.Path;
+
+/**
+ * The server under test for the dispatch and round trip benchmarks. Serves the
+ * example AddressOperations endpoints alongside the built in health endpoints.
+ */
+public class BenchmarkServer extends JaxRsServer {
+    private static final String PORT_PROPERTY = "basic.server.listen-port";
+    private static final String UNIX_SOCKET_PROPERTY = "basic.server.unix-socket.path";
+
+    /**
+     * Creates a server listening on an ephemeral port, unless a port has been
+     * explicitly given as a system property.
+     */
+    static BenchmarkServer onEphemeralPort() {
+        if (System.getProperty(PORT_PROPERTY) == null) {
+            System.setProperty(PORT_PROPERTY, "0");
+        }
+        return new BenchmarkServer();
+    }
+
+    /**
+     * Creates a server listening on a Unix domain socket as well as an ephemeral port.
+     */
+    static BenchmarkServer withUnixSocket(final Path socket) {
+        System.setProperty(UNIX_SOCKET_PROPERTY, socket.toString());
+        try {
+            return onEphemeralPort();
+        } finally {
+            System.clearProperty(UNIX_SOCKET_PROPERTY);
+        }
+    }
+
+    @Override
+    protected ServletModule getMainModule() {
+        return new ServletModule() {
+            @Override
+            public void configureServlets() {
+                bind(AddressOperations.class).asEagerSingleton();
+            }
+        };
+    }
+
+    Server jetty() {
+        return getJettyServer();
+    }
+
+    /**
+     * @return the port actually bound by the HTTP connector, only meaningful once started.
+     */
+    int port() {
+        return ((ServerConnector) getJettyServer().getConnectors()[0]).getLocalPort();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.benchmarks;
+
+import net.aethersanctum.lilrest.examples.simple.Address;
+import net.aethersanctum.lilrest.server.BinaryJacksonProvider;
+import net.aethersanctum.lilrest.server.JacksonProvider;
+import net.aethersanctum.lilrest.server.JaxRsServerModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Address example written and read as JSON and as each binary format, through the
+ * providers RESTEasy would use. The encoded size is reported alongside as the "bytes" counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataFormatBenchmark {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    @SuppressWarnings("unchecked")
+    private static final Class<Object> ADDRESS_TYPE = (Class<Object>) (Class<?>) Address.class;
+
+    @Param({MediaType.APPLICATION_JSON, BinaryJacksonProvider.APPLICATION_SMILE,
+            BinaryJacksonProvider.APPLICATION_CBOR, BinaryJacksonProvider.APPLICATION_MSGPACK})
+    public String format;
+
+    /**
+     * "full" has every Optional present, "sparse" has them all empty.
+     */
+    @Param({"full", "sparse"})
+    public String shape;
+
+    private MediaType mediaType;
+    private MessageBodyWriter<Object> writer;
+    private MessageBodyReader<Object> reader;
+    private Address address;
+    private byte[] serialized;
+    private MultivaluedMap<String, Object> responseHeaders;
+    private MultivaluedMap<String, String> requestHeaders;
+
+    @Setup
+    public void setup() throws IOException {
+        final JaxRsServerModule module = new JaxRsServerModule();
+        mediaType = MediaType.valueOf(format);
+        if (MediaType.APPLICATION_JSON_TYPE.equals(mediaType)) {
+            final JacksonProvider json = new JacksonProvider(module.customMapper());
+            writer = json;
+            reader = json;
+        } else {
+            final BinaryJacksonProvider binary = module.binaryJacksonProvider();
+            writer = binary;
+            reader = binary;
+        }
+        address = Fixtures.address(shape);
+        responseHeaders = new MultivaluedHashMap<>();
+        requestHeaders = new MultivaluedHashMap<>();
+        serialized = encode();
+    }
+
+    @Benchmark
+    public byte[] writeAddress(final Size size) throws IOException {
+        final byte[] bytes = encode();
+        size.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object readAddress() throws IOException {
+        return reader.readFrom(ADDRESS_TYPE, Address.class, NO_ANNOTATIONS, mediaType, requestHeaders,
+                new ByteArrayInputStream(serialized));
+    }
+
+    private byte[] encode() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        writer.writeTo(address, Address.class, Address.class, NO_ANNOTATIONS, mediaType, responseHeaders, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * How big the last encoding was.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long bytes;
+    }
+}
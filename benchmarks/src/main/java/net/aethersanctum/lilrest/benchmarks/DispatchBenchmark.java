@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.benchmarks;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch from Jetty through the GuiceFilter and RESTEasy's HttpServletDispatcher
+ * to HealthResource and the example AddressOperations, using an in-memory LocalConnector
+ * so that no sockets are involved. Compare with {@link RoundTripBenchmark} to see what the network costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    // every getResponse opens its own endpoint, which would otherwise stay open waiting for the next request
+    private static final String HEALTH_REQUEST = "GET /api/health HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "Accept: application/json\r\n"
+            + "Connection: close\r\n"
+            + "\r\n";
+
+    private static final String PING_REQUEST = "GET /api/ping HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "Accept: application/json\r\n"
+            + "Connection: close\r\n"
+            + "\r\n";
+
+    private static final String NEW_ADDRESS = "{\"created\":[2017,10,1,12,30,15],"
+            + "\"streetAddress1\":\"123 Credibility St\",\"streetAddress2\":\"Moonshine Estate\","
+            + "\"suiteOrApartment\":\"APT 302\",\"city\":\"Chattanooga\",\"county\":\"Hamilton\","
+            + "\"postalCode\":\"37405\",\"country\":\"USA\"}";
+
+    private static final String POST_ADDRESS_REQUEST = "POST /address HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "Content-Type: application/json\r\n"
+            + "Connection: close\r\n"
+            + "Content-Length: " + NEW_ADDRESS.length() + "\r\n"
+            + "\r\n"
+            + NEW_ADDRESS;
+
+    private BenchmarkServer server;
+    private LocalConnector connector;
+
+    @Setup
+    public void setup() throws Exception {
+        server = BenchmarkServer.onEphemeralPort();
+        connector = new LocalConnector(server.jetty());
+        server.jetty().addConnector(connector);
+        server.jetty().start();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.jetty().stop();
+    }
+
+    @Benchmark
+    public String health() throws Exception {
+        return connector.getResponse(HEALTH_REQUEST);
+    }
+
+    @Benchmark
+    public String ping() throws Exception {
+        return connector.getResponse(PING_REQUEST);
+    }
+
+    /**
+     * A JSON request body read by the JSON provider, with no response body.
+     */
+    @Benchmark
+    public String postAddress() throws Exception {
+        return connector.getResponse(POST_ADDRESS_REQUEST);
+    }
+}
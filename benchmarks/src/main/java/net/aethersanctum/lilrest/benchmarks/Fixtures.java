@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.benchmarks;
+
+import net.aethersanctum.lilrest.examples.simple.Address;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Shared test data for the benchmarks.
+ */
+final class Fixtures {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2017, 10, 1, 12, 30, 15);
+
+    private Fixtures() {
+    }
+
+    /**
+     * An address with every optional field present.
+     */
+    static Address fullAddress() {
+        return new Address(
+                CREATED,
+                "123 Credibility St",
+                Optional.of("Moonshine Estate"),
+                Optional.of("APT 302"),
+                "Chattanooga",
+                Optional.of("Hamilton"),
+                Optional.of("37405"),
+                "USA");
+    }
+
+    /**
+     * An address with every optional field empty.
+     */
+    static Address sparseAddress() {
+        return new Address(
+                CREATED,
+                "1 Infinite Loop",
+                Optional.empty(),
+                Optional.empty(),
+                "Cupertino",
+                Optional.empty(),
+                Optional.empty(),
+                "USA");
+    }
+
+    static Address address(final String shape) {
+        return "sparse".equals(shape) ? sparseAddress() : fullAddress();
+    }
+}
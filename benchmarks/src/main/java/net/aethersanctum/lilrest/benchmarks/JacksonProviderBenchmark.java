@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.aethersanctum.lilrest.examples.simple.Address;
+import net.aethersanctum.lilrest.server.JacksonProvider;
+import net.aethersanctum.lilrest.server.JaxRsServerModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of the Address example through JacksonProvider, exactly as
+ * RESTEasy would call it, minus the HTTP plumbing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonProviderBenchmark {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    @SuppressWarnings("unchecked")
+    private static final Class<Object> ADDRESS_TYPE = (Class<Object>) (Class<?>) Address.class;
+
+    /**
+     * "full" has every Optional present, "sparse" has them all empty.
+     */
+    @Param({"full", "sparse"})
+    public String shape;
+
+    private ObjectMapper mapper;
+    private JacksonProvider provider;
+    private Address address;
+    private byte[] serialized;
+    private MultivaluedMap<String, Object> responseHeaders;
+    private MultivaluedMap<String, String> requestHeaders;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = new JaxRsServerModule().customMapper();
+        provider = new JacksonProvider(mapper);
+        address = Fixtures.address(shape);
+        responseHeaders = new MultivaluedHashMap<>();
+        requestHeaders = new MultivaluedHashMap<>();
+        serialized = writeAddress();
+    }
+
+    @Benchmark
+    public byte[] writeAddress() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        provider.writeTo(address, Address.class, Address.class, NO_ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, responseHeaders, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Object readAddress() throws IOException {
+        return provider.readFrom(ADDRESS_TYPE, Address.class, NO_ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, requestHeaders, new ByteArrayInputStream(serialized));
+    }
+
+    /**
+     * Just the mapper, without the per-call reader and writer setup the provider does.
+     */
+    @Benchmark
+    public byte[] writeAddressMapper() throws IOException {
+        return mapper.writeValueAsBytes(address);
+    }
+
+    @Benchmark
+    public Object readAddressMapper() throws IOException {
+        return mapper.readValue(serialized, Address.class);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.util.Locale;
+
+/**
+ * Sends requests over one keep-alive HTTP/1.1 connection on any byte channel, so TCP and Unix
+ * domain sockets can be driven by exactly the same code.
+ */
+final class KeepAliveClient {
+    private final StringBuilder line = new StringBuilder();
+    private final byte[] skipBuffer = new byte[8192];
+    private final InputStream in;
+    private final OutputStream out;
+
+    KeepAliveClient(final ByteChannel channel) {
+        this.in = new BufferedInputStream(Channels.newInputStream(channel));
+        this.out = Channels.newOutputStream(channel);
+    }
+
+    /**
+     * Sends the request and reads the whole response.
+     *
+     * @return the response status
+     */
+    int send(final byte[] request) throws IOException {
+        out.write(request);
+        out.flush();
+        final String statusLine = readLine();
+        final int status = Integer.parseInt(statusLine.substring(9, 12));
+        long length = -1;
+        boolean chunked = false;
+        for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+            final String lower = header.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("content-length:")) {
+                length = Long.parseLong(header.substring(header.indexOf(':') + 1).trim());
+            } else if (lower.startsWith("transfer-encoding:")) {
+                chunked = lower.contains("chunked");
+            } else if (lower.startsWith("connection:") && lower.contains("close")) {
+                throw new IOException("server is closing the connection");
+            }
+        }
+        if (chunked) {
+            for (long chunk = chunkSize(); chunk > 0; chunk = chunkSize()) {
+                skip(chunk);
+                readLine();
+            }
+            while (!readLine().isEmpty()) {
+                continue;
+            }
+        } else if (length > 0) {
+            skip(length);
+        }
+        return status;
+    }
+
+    private long chunkSize() throws IOException {
+        final String size = readLine();
+        final int extension = size.indexOf(';');
+        return Long.parseLong(extension < 0 ? size.trim() : size.substring(0, extension).trim(), 16);
+    }
+
+    private void skip(long remaining) throws IOException {
+        while (remaining > 0) {
+            final int read = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("connection closed mid-body");
+            }
+            remaining -= read;
+        }
+    }
+
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("connection closed mid-response");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+}
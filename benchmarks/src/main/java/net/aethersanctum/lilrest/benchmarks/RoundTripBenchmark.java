@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full HTTP round trips over loopback against a running server, keep-alive
+ * connections included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+    private static final byte[] NEW_ADDRESS = ("{\"created\":[2017,10,1,12,30,15],"
+            + "\"streetAddress1\":\"123 Credibility St\",\"streetAddress2\":\"Moonshine Estate\","
+            + "\"suiteOrApartment\":\"APT 302\",\"city\":\"Chattanooga\",\"county\":\"Hamilton\","
+            + "\"postalCode\":\"37405\",\"country\":\"USA\"}").getBytes(StandardCharsets.UTF_8);
+
+    private BenchmarkServer server;
+    private String base;
+
+    @Setup
+    public void setup() throws Exception {
+        server = BenchmarkServer.onEphemeralPort();
+        server.jetty().start();
+        base = "http://localhost:" + server.port();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.jetty().stop();
+    }
+
+    @Benchmark
+    public byte[] get(final Resource resource) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(base + resource.path).openConnection();
+        connection.setRequestProperty("Accept", "application/json");
+        return readFully(connection);
+    }
+
+    @Benchmark
+    public byte[] postAddress() throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(base + "/address").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setFixedLengthStreamingMode(NEW_ADDRESS.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(NEW_ADDRESS);
+        }
+        return readFully(connection);
+    }
+
+    /**
+     * Which endpoint {@link #get} fetches.
+     */
+    @State(Scope.Benchmark)
+    public static class Resource {
+        @Param({"/api/ping", "/api/health", "/address/arthur"})
+        public String path;
+    }
+
+    /**
+     * Reads the whole body so the underlying connection goes back to the keep-alive pool.
+     */
+    private static byte[] readFully(final HttpURLConnection connection) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        try (InputStream in = connection.getInputStream()) {
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                body.write(buffer, 0, count);
+            }
+        }
+        return body.toByteArray();
+    }
+}
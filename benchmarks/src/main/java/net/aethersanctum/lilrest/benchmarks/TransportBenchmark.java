@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.benchmarks;
+
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of keep-alive /api/ping round trips over loopback TCP against the same over a Unix
+ * domain socket, from several client threads with a connection each. The client is the same for
+ * both, so the difference is down to the transport.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TransportBenchmark {
+    private static final byte[] PING = ("GET /api/ping HTTP/1.1\r\nHost: localhost\r\n"
+            + "Accept: application/json\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"tcp", "unix"})
+    public String transport;
+
+    private Path directory;
+    private Path socket;
+    private BenchmarkServer server;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("lilrest-benchmark");
+        socket = directory.resolve("lilrest.sock");
+        server = BenchmarkServer.withUnixSocket(socket);
+        server.jetty().start();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.jetty().stop();
+        Files.deleteIfExists(socket);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public int ping(final Connection connection) throws IOException {
+        return connection.client.send(PING);
+    }
+
+    /**
+     * Each benchmark thread's own connection, over whichever transport is being measured.
+     */
+    @State(Scope.Thread)
+    public static class Connection {
+        private ByteChannel channel;
+        private KeepAliveClient client;
+
+        @Setup
+        public void connect(final TransportBenchmark benchmark) throws IOException {
+            if ("unix".equals(benchmark.transport)) {
+                channel = UnixSocketChannel.open(new UnixSocketAddress(benchmark.socket.toFile()));
+            } else {
+                final SocketChannel tcp = SocketChannel.open(new InetSocketAddress("localhost", benchmark.server.port()));
+                tcp.socket().setTcpNoDelay(true);
+                channel = tcp;
+            }
+            client = new KeepAliveClient(channel);
+        }
+
+        @TearDown
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -19,41 +19,160 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.inject.Singleton;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Allows Guice modules to bind a configuration object created by
  * Config Magic (skife).
+ *
+ * Properties are loaded into an immutable snapshot, and each config class is only built
+ * once per snapshot, so extracting is cheap enough to do whenever a value is needed. With
+ * the system property "reloadConfig" set to true, a config file on the filesystem is watched
+ * and a changed file swaps in a new snapshot and tells the {@link ConfigListener}s.
  */
 @Singleton
-public final class ConfigFactory {
+public final class ConfigFactory implements Closeable {
     private static final Logger LOG = LoggerFactory.getLogger(ConfigFactory.class);
+    /** Editors often write a file in more than one go, so let it settle before reading it. */
+    private static final long SETTLE_MILLIS = 50;
 
-    private final Properties configProperties;
-    private final ConfigurationObjectFactory factory;
+    private final String location;
+    private final List<ConfigListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+    private volatile WatchService watcher;
 
     public <T> T extract(@Nonnull Class<T> configClass) {
-        LOG.info("extracting {}", configClass.getCanonicalName());
-        return factory.build(configClass);
+        final Snapshot current = snapshot;
+        return configClass.cast(current.extracted.computeIfAbsent(configClass, current::build));
     }
 
     public ConfigFactory() {
-        this.configProperties = findConfigProperties();
-        this.factory = new ConfigurationObjectFactory(configProperties);
-        LOG.info("loaded {} config properties", configProperties.size());
+        this.location = System.getProperty("useConfig");
+        this.snapshot = new Snapshot(findConfigProperties(location));
+        LOG.info("loaded {} config properties", snapshot.properties.size());
+        if (Boolean.getBoolean("reloadConfig")) {
+            watch();
+        }
+    }
+
+    public void addListener(@Nonnull final ConfigListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Reads the properties again, and if any have changed, swaps them in and tells the listeners.
+     *
+     * @return whether anything changed
+     */
+    public boolean reload() {
+        final Properties properties = findConfigProperties(location);
+        synchronized (this) {
+            if (properties.equals(snapshot.properties)) {
+                return false;
+            }
+            snapshot = new Snapshot(properties);
+        }
+        LOG.info("reloaded {} config properties", properties.size());
+        for (ConfigListener listener : listeners) {
+            try {
+                listener.configChanged(this);
+            } catch (RuntimeException e) {
+                LOG.warn("config listener {} failed", listener, e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops watching the config file, if we were.
+     */
+    @Override
+    public void close() throws IOException {
+        final WatchService current = watcher;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void watch() {
+        final File file = location == null ? null : new File(location);
+        if (file == null || !file.canRead()) {
+            LOG.warn("reloadConfig is set but {} isn't a file on the filesystem, so it can't be watched", location);
+            return;
+        }
+        final Path path = file.getAbsoluteFile().toPath();
+        final Path dir = path.getParent();
+        if (dir == null) {
+            LOG.warn("can't watch {} since it has no directory", path);
+            return;
+        }
+        final WatchService watchService;
+        try {
+            watchService = path.getFileSystem().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new ConfigException(e);
+        }
+        watcher = watchService;
+        final Thread thread = new Thread(() -> watchLoop(watchService, path.getFileName()), "lilrest-config-watch");
+        thread.setDaemon(true);
+        thread.start();
+        LOG.info("watching {} for changes", path);
     }
 
-    private static Properties findConfigProperties() {
-        final String useConfig = System.getProperty("useConfig");
+    private void watchLoop(final WatchService watchService, final Path name) {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= name.equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    TimeUnit.MILLISECONDS.sleep(SETTLE_MILLIS);
+                    reloadQuietly();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOG.debug("stopped watching config");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            LOG.warn("couldn't reload config, keeping what we had", e);
+        }
+    }
+
+    private static Properties findConfigProperties(final String useConfig) {
         if (useConfig != null) {
             return loadProperties(useConfig);
         }
-        return System.getProperties();
+        final Properties copy = new Properties();
+        copy.putAll(System.getProperties());
+        return copy;
     }
 
     private static Properties loadProperties(final String location) {
@@ -80,5 +199,23 @@ public final class ConfigFactory {
         }
         return inStream;
     }
-}
 
+    /**
+     * Properties as they were at one moment, and the config objects built from them.
+     */
+    private static final class Snapshot {
+        private final Properties properties;
+        private final ConfigurationObjectFactory factory;
+        private final ConcurrentMap<Class<?>, Object> extracted = new ConcurrentHashMap<>();
+
+        private Snapshot(final Properties properties) {
+            this.properties = properties;
+            this.factory = new ConfigurationObjectFactory(properties);
+        }
+
+        private Object build(final Class<?> configClass) {
+            LOG.info("extracting {}", configClass.getCanonicalName());
+            return factory.build(configClass);
+        }
+    }
+}
@@ -15,12 +15,31 @@ package net.aethersanctum.lilrest.config;
 
 import com.google.inject.AbstractModule;
 
+import javax.annotation.Nullable;
+
 /**
  */
 public class ConfigModule extends AbstractModule {
+    @Nullable
+    private final ConfigFactory factory;
+
+    public ConfigModule() {
+        this(null);
+    }
+
+    /**
+     * Uses configuration that has already been loaded, rather than loading it again.
+     */
+    public ConfigModule(@Nullable ConfigFactory factory) {
+        this.factory = factory;
+    }
 
     @Override
     protected void configure() {
-        bind(ConfigFactory.class).asEagerSingleton();
+        if (factory == null) {
+            bind(ConfigFactory.class).asEagerSingleton();
+        } else {
+            bind(ConfigFactory.class).toInstance(factory);
+        }
     }
 }
@@ -15,8 +15,19 @@ package net.aethersanctum.lilrest.config;
 
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class ConfigFactoryTest {
 
@@ -65,4 +76,53 @@ public class ConfigFactoryTest {
         assertEquals("somevalue", value);
     }
 
+    @Test
+    public void extractionIsCachedUntilReload() throws IOException {
+        final File file = File.createTempFile("reload", ".properties");
+        try {
+            write(file, "somekey=before");
+            System.setProperty("useConfig", file.getPath());
+            ConfigFactory factory = new ConfigFactory();
+            final AtomicInteger changes = new AtomicInteger();
+            factory.addListener(f -> changes.incrementAndGet());
+            TestConfig config = factory.extract(TestConfig.class);
+            assertSame(config, factory.extract(TestConfig.class));
+            assertFalse(factory.reload());
+
+            write(file, "somekey=after");
+            assertTrue(factory.reload());
+            assertEquals(1, changes.get());
+            assertEquals("before", config.someKey());
+            assertEquals("after", factory.extract(TestConfig.class).someKey());
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    public void watchedFileIsReloaded() throws Exception {
+        final File file = File.createTempFile("watch", ".properties");
+        System.setProperty("reloadConfig", "true");
+        try (ConfigFactory factory = newFactory(file)) {
+            write(file, "somekey=changed");
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (!"changed".equals(factory.extract(TestConfig.class).someKey()) && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+            assertEquals("changed", factory.extract(TestConfig.class).someKey());
+        } finally {
+            System.getProperties().remove("reloadConfig");
+            Files.delete(file.toPath());
+        }
+    }
+
+    private static ConfigFactory newFactory(final File file) throws IOException {
+        write(file, "somekey=original");
+        System.setProperty("useConfig", file.getPath());
+        return new ConfigFactory();
+    }
+
+    private static void write(final File file, final String line) throws IOException {
+        Files.write(file.toPath(), Collections.singletonList(line), StandardCharsets.ISO_8859_1);
+    }
 }
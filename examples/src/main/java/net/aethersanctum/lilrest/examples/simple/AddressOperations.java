@@ -14,9 +14,16 @@
 package net.aethersanctum.lilrest.examples.simple;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static net.aethersanctum.lilrest.server.BinaryJacksonProvider.APPLICATION_CBOR;
+import static net.aethersanctum.lilrest.server.BinaryJacksonProvider.APPLICATION_MSGPACK;
+import static net.aethersanctum.lilrest.server.BinaryJacksonProvider.APPLICATION_SMILE;
+import static net.aethersanctum.lilrest.server.StreamingJsonProvider.APPLICATION_NDJSON;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -26,12 +33,13 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 
+import net.aethersanctum.lilrest.cache.Cached;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Path("/")
-@Produces(APPLICATION_JSON)
-@Consumes(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR, APPLICATION_MSGPACK})
+@Consumes({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR, APPLICATION_MSGPACK})
 public class AddressOperations {
     private static final int HTTP_UNPROCESSABLE_ENTITY = 422;
 
@@ -45,6 +53,7 @@ public class AddressOperations {
 
     @GET
     @Path("/address/{name}")
+    @Cached(ttl = 10)
     public Address someonesAddress(@PathParam("name") String name) {
         return new Address(
                 LocalDateTime.now(),
@@ -58,15 +67,42 @@ public class AddressOperations {
         );
     }
 
+    @GET
+    @Path("/address/{name}/async")
+    public CompletionStage<Address> someonesAddressAsync(@PathParam("name") String name) {
+        return CompletableFuture.supplyAsync(() -> someonesAddress(name));
+    }
+
     @POST
     @Path("/address")
     public Response someonesAddress(Address newAddress) {
         LOG.info("new Address uploaded: {}", newAddress);
-        if (newAddress.getStreetAddress1() != null
-                && newAddress.getCity() != null
-                && newAddress.getCountry() != null) {
+        if (isComplete(newAddress)) {
             return Response.accepted().build();
         }
         return Response.status(HTTP_UNPROCESSABLE_ENTITY).build();
     }
+
+    /**
+     * Takes any number of addresses, as a JSON array or one per line, reading them as they arrive.
+     *
+     * @return how many were complete
+     */
+    @POST
+    @Path("/addresses")
+    @Consumes({APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response someonesAddresses(Stream<Address> newAddresses) {
+        final long complete;
+        try (Stream<Address> addresses = newAddresses) {
+            complete = addresses.filter(AddressOperations::isComplete).count();
+        }
+        LOG.info("{} complete addresses uploaded", complete);
+        return Response.accepted(complete).build();
+    }
+
+    private static boolean isComplete(Address address) {
+        return address.getStreetAddress1() != null
+                && address.getCity() != null
+                && address.getCountry() != null;
+    }
 }
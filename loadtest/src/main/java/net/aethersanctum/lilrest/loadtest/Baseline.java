@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * How hard to push, and how fast each scenario was last time, from a properties file:
+ * <pre>
+ *   rate=2000
+ *   connections=32
+ *   warmup-millis=5000
+ *   duration-millis=10000
+ *   p99-tolerance=2.0
+ *   throughput-tolerance=0.1
+ *   ping.p99-millis=1.2
+ *   ping.throughput=2000
+ * </pre>
+ * A run regresses when its p99 is more than p99-tolerance above the recorded one (2.0 allowing up
+ * to three times as long), or its throughput more than throughput-tolerance below. Any setting can be overridden
+ * with a "loadtest." system property, e.g. -Dloadtest.rate=20000.
+ */
+public final class Baseline {
+    private static final String P99 = ".p99-millis";
+    private static final String THROUGHPUT = ".throughput";
+
+    private final Properties properties;
+
+    private Baseline(final Properties properties) {
+        this.properties = properties;
+    }
+
+    @Nonnull
+    public static Baseline load(@Nonnull final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+        return new Baseline(properties);
+    }
+
+    public double rate() {
+        return Double.parseDouble(setting("rate", "2000"));
+    }
+
+    public int connections() {
+        return Integer.parseInt(setting("connections", "32"));
+    }
+
+    public long warmupMillis() {
+        return Long.parseLong(setting("warmup-millis", "5000"));
+    }
+
+    public long durationMillis() {
+        return Long.parseLong(setting("duration-millis", "10000"));
+    }
+
+    /**
+     * @return what's wrong with the result, if anything: errors, or a p99 or throughput worse than
+     * the baseline allows. A scenario with nothing recorded only has its errors checked.
+     */
+    @Nonnull
+    public List<String> regressions(@Nonnull final LoadResult result) {
+        final List<String> regressions = new ArrayList<>();
+        final String scenario = result.getScenario();
+        if (result.getErrors() > 0) {
+            regressions.add(scenario + ": " + result.getErrors() + " requests failed");
+        }
+        final String p99 = properties.getProperty(scenario + P99);
+        if (p99 != null) {
+            final double limit = Double.parseDouble(p99) * (1 + Double.parseDouble(setting("p99-tolerance", "2.0")));
+            if (result.getP99Millis() > limit) {
+                regressions.add(String.format(Locale.ROOT, "%s: p99 %.3fms is over the %.3fms allowed (baseline %sms)",
+                        scenario, result.getP99Millis(), limit, p99));
+            }
+        }
+        final String throughput = properties.getProperty(scenario + THROUGHPUT);
+        if (throughput != null) {
+            final double limit = Double.parseDouble(throughput)
+                    * (1 - Double.parseDouble(setting("throughput-tolerance", "0.1")));
+            if (result.getThroughput() < limit) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.0f rps is under the %.0f rps allowed (baseline %s)",
+                        scenario, result.getThroughput(), limit, throughput));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Writes the settings used and these results to the file, as the new baseline.
+     */
+    public void record(@Nonnull final Path file, @Nonnull final List<LoadResult> results) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# Load for mvn -Ploadtest verify, and what it measured when recorded with -Dloadtest.record=true.\n");
+            out.write("# p99 is coordinated-omission corrected, in milliseconds; throughput is in requests per second.\n");
+            for (String key : new String[]{"rate", "connections", "warmup-millis", "duration-millis"}) {
+                out.write(key + "=" + setting(key, properties.getProperty(key, "")) + "\n");
+            }
+            out.write("p99-tolerance=" + setting("p99-tolerance", "2.0") + "\n");
+            out.write("throughput-tolerance=" + setting("throughput-tolerance", "0.1") + "\n");
+            for (LoadResult result : results) {
+                out.write(String.format(Locale.ROOT, "%s%s=%.3f%n%s%s=%.0f%n",
+                        result.getScenario(), P99, result.getP99Millis(),
+                        result.getScenario(), THROUGHPUT, result.getThroughput()));
+            }
+        }
+    }
+
+    private String setting(final String key, final String defaultValue) {
+        return System.getProperty("loadtest." + key, properties.getProperty(key, defaultValue));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Locale;
+
+/**
+ * Just enough of an HTTP/1.1 client to send a request over a keep-alive connection and read the
+ * whole response, reconnecting when the server closes it. Nothing is allocated per request
+ * beyond the odd header line, so the generator measures the server rather than itself.
+ */
+final class HttpConnection implements Closeable {
+    private static final int MAX_LINE = 8192;
+
+    private final String host;
+    private final int port;
+    private final StringBuilder line = new StringBuilder();
+    private final byte[] skipBuffer = new byte[8192];
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+
+    HttpConnection(final String host, final int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Sends the request and reads the response, body and all.
+     *
+     * @return the response status
+     */
+    int send(final byte[] request) throws IOException {
+        if (socket == null) {
+            connect();
+        }
+        try {
+            out.write(request);
+            out.flush();
+            return readResponse();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        final Socket current = socket;
+        socket = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void connect() throws IOException {
+        final Socket connected = new Socket(host, port);
+        connected.setTcpNoDelay(true);
+        socket = connected;
+        in = new BufferedInputStream(connected.getInputStream());
+        out = connected.getOutputStream();
+    }
+
+    private int readResponse() throws IOException {
+        final String statusLine = readLine();
+        if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12) {
+            throw new IOException("not an HTTP/1 status line: " + statusLine);
+        }
+        final int status = Integer.parseInt(statusLine.substring(9, 12));
+        long length = -1;
+        boolean chunked = false;
+        boolean closing = statusLine.startsWith("HTTP/1.0");
+        for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+            final int colon = header.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            final String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            final String value = header.substring(colon + 1).trim();
+            if ("content-length".equals(name)) {
+                length = Long.parseLong(value);
+            } else if ("transfer-encoding".equals(name)) {
+                chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+            } else if ("connection".equals(name)) {
+                closing = "close".equalsIgnoreCase(value);
+            }
+        }
+        if (status == 204 || status == 304 || status < 200) {
+            length = 0;
+        }
+        if (chunked) {
+            skipChunks();
+        } else if (length >= 0) {
+            skip(length);
+        } else {
+            while (in.read(skipBuffer) >= 0) {
+                // read until the server closes
+            }
+            closing = true;
+        }
+        if (closing) {
+            close();
+        }
+        return status;
+    }
+
+    private void skipChunks() throws IOException {
+        while (true) {
+            final String size = readLine();
+            final int extension = size.indexOf(';');
+            final long chunk = Long.parseLong(extension < 0 ? size.trim() : size.substring(0, extension).trim(), 16);
+            if (chunk == 0) {
+                // trailers, if any, then the blank line
+                while (!readLine().isEmpty()) {
+                    continue;
+                }
+                return;
+            }
+            skip(chunk);
+            readLine();
+        }
+    }
+
+    private void skip(long remaining) throws IOException {
+        while (remaining > 0) {
+            final int read = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("connection closed with " + remaining + " bytes of body still to come");
+            }
+            remaining -= read;
+        }
+    }
+
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("connection closed mid-response");
+            }
+            if (c != '\r') {
+                if (line.length() >= MAX_LINE) {
+                    throw new IOException("response line too long");
+                }
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+}
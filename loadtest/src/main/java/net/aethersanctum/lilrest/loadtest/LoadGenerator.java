@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a constant rate, whether or not earlier ones have been answered, the way
+ * independent clients do: an open model rather than a fixed number of users each waiting for
+ * their last response.
+ *
+ * <p>Each request has a time it was meant to be sent at, and its latency is measured from then,
+ * not from when a connection finally got around to sending it. So when the server stalls, the
+ * requests that would have arrived during the stall count as having waited for it, instead of
+ * quietly not being sent (coordinated omission). The latency from actually sending is recorded
+ * too, for comparison.</p>
+ */
+public final class LoadGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final long STOP = -1;
+    private static final long FINISH_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final String host;
+    private final int port;
+    private final int connections;
+
+    /**
+     * @param connections how many keep-alive connections to send on, which bounds how many requests
+     *                    can be outstanding; requests beyond that wait their turn, and the wait counts
+     */
+    public LoadGenerator(@Nonnull final String host, final int port, final int connections) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+    }
+
+    /**
+     * Runs the scenario for the warmup, which isn't recorded, then for the duration, which is.
+     *
+     * @param rate requests per second
+     */
+    @Nonnull
+    public LoadResult run(@Nonnull final Scenario scenario, final double rate,
+                          final long warmupMillis, final long durationMillis) throws InterruptedException {
+        final Run run = new Run(scenario, rate, warmupMillis, durationMillis);
+        final List<Thread> workers = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            final Thread worker = new Thread(run::work, "lilrest-load-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        run.pace();
+        for (int i = 0; i < connections; i++) {
+            run.queue.add(STOP);
+        }
+        final long finishBy = System.nanoTime() + FINISH_NANOS;
+        for (Thread worker : workers) {
+            TimeUnit.NANOSECONDS.timedJoin(worker, Math.max(1, finishBy - System.nanoTime()));
+        }
+        final long unfinished = run.queue.stream().filter(intended -> intended != STOP).count();
+        if (unfinished > 0) {
+            LOG.warn("{} requests for {} were never sent", unfinished, scenario);
+        }
+        return new LoadResult(scenario.getName(), rate, run.corrected.getIntervalHistogram(),
+                run.uncorrected.getIntervalHistogram(), run.completed.get(), run.errors.get() + unfinished,
+                TimeUnit.MILLISECONDS.toNanos(durationMillis));
+    }
+
+    private final class Run {
+        private final Scenario scenario;
+        private final double intervalNanos;
+        private final long start;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+        private final Recorder corrected = new Recorder(3);
+        private final Recorder uncorrected = new Recorder(3);
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        private Run(final Scenario scenario, final double rate, final long warmupMillis, final long durationMillis) {
+            this.scenario = scenario;
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            this.start = System.nanoTime();
+            this.measureFrom = start + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+            this.measureUntil = measureFrom + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        }
+
+        /**
+         * Hands out intended send times on schedule. Parking can oversleep, so each time it wakes
+         * everything that has come due goes out at once, keeping the rate true on average.
+         */
+        private void pace() {
+            for (long sent = 0; ; sent++) {
+                final long intended = start + (long) (sent * intervalNanos);
+                if (intended >= measureUntil) {
+                    return;
+                }
+                final long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                queue.add(intended);
+            }
+        }
+
+        private void work() {
+            final byte[] request = scenario.request();
+            try (HttpConnection connection = new HttpConnection(host, port)) {
+                while (true) {
+                    final long intended = queue.take();
+                    if (intended == STOP) {
+                        return;
+                    }
+                    final long sent = System.nanoTime();
+                    boolean ok;
+                    try {
+                        final int status = connection.send(request);
+                        ok = status >= 200 && status < 300;
+                    } catch (IOException e) {
+                        ok = false;
+                    }
+                    record(intended, sent, System.nanoTime(), ok);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                LOG.debug("trouble closing connection", e);
+            }
+        }
+
+        private void record(final long intended, final long sent, final long done, final boolean ok) {
+            if (intended < measureFrom) {
+                return;
+            }
+            if (!ok) {
+                errors.incrementAndGet();
+                return;
+            }
+            corrected.recordValue(done - intended);
+            uncorrected.recordValue(done - sent);
+            if (done <= measureUntil) {
+                completed.incrementAndGet();
+            }
+        }
+    }
+}
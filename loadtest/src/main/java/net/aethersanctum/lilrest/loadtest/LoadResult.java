@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import javax.annotation.Nonnull;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What one scenario's run measured. Latencies are recorded in nanoseconds.
+ */
+public final class LoadResult {
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String scenario;
+    private final double rate;
+    private final Histogram corrected;
+    private final Histogram uncorrected;
+    private final long completed;
+    private final long errors;
+    private final long durationNanos;
+
+    LoadResult(final String scenario, final double rate, final Histogram corrected, final Histogram uncorrected,
+               final long completed, final long errors, final long durationNanos) {
+        this.scenario = scenario;
+        this.rate = rate;
+        this.corrected = corrected;
+        this.uncorrected = uncorrected;
+        this.completed = completed;
+        this.errors = errors;
+        this.durationNanos = durationNanos;
+    }
+
+    @Nonnull
+    public String getScenario() {
+        return scenario;
+    }
+
+    /**
+     * @return the rate requests were sent at, per second
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * @return latency from when each request was meant to be sent
+     */
+    @Nonnull
+    public Histogram getCorrected() {
+        return corrected;
+    }
+
+    /**
+     * @return latency from when each request was actually sent, which hides any time spent waiting
+     * for a connection
+     */
+    @Nonnull
+    public Histogram getUncorrected() {
+        return uncorrected;
+    }
+
+    /**
+     * @return requests that failed or got anything but a 2xx
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return successful responses per second, counting those that arrived within the measured time
+     */
+    public double getThroughput() {
+        return completed * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+    }
+
+    public double getP99Millis() {
+        return corrected.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Writes the corrected latency distribution in milliseconds, in HdrHistogram's percentile
+     * format as read by its plotter.
+     */
+    public void writeDistribution(@Nonnull final PrintStream out) {
+        corrected.outputPercentileDistribution(out, NANOS_PER_MILLI);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%-13s %8.0f rps sent %8.0f rps done %6d errors  p50 %7.3fms  p99 %7.3fms  p99.9 %7.3fms  max %7.3fms"
+                        + "  (uncorrected p99 %7.3fms)",
+                scenario, rate, getThroughput(), errors, millis(corrected, 50), getP99Millis(),
+                millis(corrected, 99.9), corrected.getMaxValue() / NANOS_PER_MILLI, millis(uncorrected, 99));
+    }
+
+    private static double millis(final Histogram histogram, final double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+}
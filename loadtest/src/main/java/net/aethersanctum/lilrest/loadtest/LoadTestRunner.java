@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Entry point of the load test jar. Starts a {@link LoadTestServer}, runs every {@link Scenario}
+ * against it in turn as set out in the baseline file, writes each corrected latency distribution
+ * to an .hgrm file and compares the results with the baseline. A scenario that regresses is run
+ * again before believing it, since one stray pause on a busy machine can be enough. e.g.:
+ * <pre>
+ *   java -jar loadtest/target/loadtest.jar                                           # ./baseline.properties
+ *   java -Dloadtest.baseline=loadtest/baseline.properties -jar loadtest/target/loadtest.jar
+ *   java -Dloadtest.rate=20000 -Dloadtest.record=true -jar loadtest/target/loadtest.jar  # new baseline
+ * </pre>
+ * Exits with 1 if anything regressed.
+ */
+public final class LoadTestRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final List<String> regressions = run(Paths.get(System.getProperty("loadtest.baseline", "baseline.properties")),
+                Paths.get(System.getProperty("loadtest.output", "target/loadtest")),
+                Boolean.getBoolean("loadtest.record"));
+        regressions.forEach(LOG::warn);
+        System.exit(regressions.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * @param record whether to write the results to the baseline file instead of comparing with it
+     * @return regressions against the baseline, none when recording
+     */
+    @Nonnull
+    public static List<String> run(@Nonnull final Path baselineFile, @Nonnull final Path output,
+                                   final boolean record) throws Exception {
+        final Baseline baseline = Baseline.load(baselineFile);
+        Files.createDirectories(output);
+        final LoadTestServer server = LoadTestServer.onEphemeralPort();
+        server.serve();
+        try {
+            final LoadGenerator generator = new LoadGenerator("localhost", server.port(), baseline.connections());
+            final List<LoadResult> results = new ArrayList<>();
+            final List<String> regressions = new ArrayList<>();
+            for (Scenario scenario : Scenario.all()) {
+                LoadResult result = run(generator, scenario, baseline);
+                List<String> problems = baseline.regressions(result);
+                if (!problems.isEmpty() && !record) {
+                    LOG.warn("{}, running {} again", problems, scenario.getName());
+                    result = run(generator, scenario, baseline);
+                    problems = baseline.regressions(result);
+                }
+                writeDistribution(result, output.resolve(scenario.getName() + ".hgrm"));
+                results.add(result);
+                regressions.addAll(problems);
+            }
+            if (record) {
+                baseline.record(baselineFile, results);
+                return Collections.emptyList();
+            }
+            return regressions;
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static LoadResult run(final LoadGenerator generator, final Scenario scenario, final Baseline baseline)
+            throws InterruptedException {
+        final LoadResult result = generator.run(scenario, baseline.rate(),
+                baseline.warmupMillis(), baseline.durationMillis());
+        LOG.info("{}", result);
+        return result;
+    }
+
+    private static void writeDistribution(final LoadResult result, final Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            result.writeDistribution(out);
+        }
+    }
+}
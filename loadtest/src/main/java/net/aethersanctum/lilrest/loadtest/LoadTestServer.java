@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.examples.simple.AddressOperations;
+import net.aethersanctum.lilrest.server.JaxRsServer;
+import org.eclipse.jetty.server.ServerConnector;
+
+/**
+ * The server under load, in the same JVM as the load generator. Serves the example
+ * AddressOperations endpoints alongside the built in health endpoints.
+ */
+public class LoadTestServer extends JaxRsServer {
+    private static final String PORT_PROPERTY = "basic.server.listen-port";
+    private static final String DRAIN_PROPERTY = "basic.server.shutdown.drain-period";
+
+    /**
+     * Creates a server listening on an ephemeral port that stops without draining, unless
+     * told otherwise by system properties.
+     */
+    public static LoadTestServer onEphemeralPort() {
+        if (System.getProperty(PORT_PROPERTY) == null) {
+            System.setProperty(PORT_PROPERTY, "0");
+        }
+        if (System.getProperty(DRAIN_PROPERTY) == null) {
+            System.setProperty(DRAIN_PROPERTY, "0ms");
+        }
+        return new LoadTestServer();
+    }
+
+    @Override
+    protected ServletModule getMainModule() {
+        return new ServletModule() {
+            @Override
+            public void configureServlets() {
+                bind(AddressOperations.class).asEagerSingleton();
+            }
+        };
+    }
+
+    /**
+     * Starts serving, without waiting for the server to stop.
+     */
+    public void serve() throws Exception {
+        startJetty();
+    }
+
+    /**
+     * @return the port actually bound by the HTTP connector, only meaningful once started.
+     */
+    public int port() {
+        return ((ServerConnector) getJettyServer().getConnectors()[0]).getLocalPort();
+    }
+}
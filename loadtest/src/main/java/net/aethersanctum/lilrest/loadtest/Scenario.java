@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One kind of request to keep sending, already encoded as the bytes that go on the wire.
+ */
+public final class Scenario {
+    private static final String NEW_ADDRESS = "{\"created\":[2017,10,1,12,30,15],"
+            + "\"streetAddress1\":\"123 Credibility St\",\"streetAddress2\":\"Moonshine Estate\","
+            + "\"suiteOrApartment\":\"APT 302\",\"city\":\"Chattanooga\",\"county\":\"Hamilton\","
+            + "\"postalCode\":\"37405\",\"country\":\"USA\"}";
+
+    private static final List<Scenario> ALL = Collections.unmodifiableList(Arrays.asList(
+            get("health", "/api/health"),
+            get("ping", "/api/ping"),
+            get("get-address", "/address/arthur"),
+            post("post-address", "/address", NEW_ADDRESS)));
+
+    private final String name;
+    private final String method;
+    private final String path;
+    private final byte[] request;
+
+    private Scenario(final String name, final String method, final String path, @Nullable final String json) {
+        this.name = name;
+        this.method = method;
+        this.path = path;
+        final byte[] body = json == null ? new byte[0] : json.getBytes(StandardCharsets.UTF_8);
+        final String head = method + " " + path + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Accept: application/json\r\n"
+                + (json == null ? "" : "Content-Type: application/json\r\nContent-Length: " + body.length + "\r\n")
+                + "\r\n";
+        final byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+        this.request = Arrays.copyOf(headBytes, headBytes.length + body.length);
+        System.arraycopy(body, 0, request, headBytes.length, body.length);
+    }
+
+    @Nonnull
+    public static Scenario get(@Nonnull final String name, @Nonnull final String path) {
+        return new Scenario(name, "GET", path, null);
+    }
+
+    @Nonnull
+    public static Scenario post(@Nonnull final String name, @Nonnull final String path, @Nonnull final String json) {
+        return new Scenario(name, "POST", path, json);
+    }
+
+    /**
+     * @return health, ping, and GET and POST of the example Address
+     */
+    @Nonnull
+    public static List<Scenario> all() {
+        return ALL;
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the whole request, head and body
+     */
+    @Nonnull
+    byte[] request() {
+        return request;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + method + " " + path + ")";
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+
+import com.google.inject.servlet.ServletModule;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LoadGeneratorTest {
+    private static final AtomicBoolean STALL = new AtomicBoolean();
+    private static final long STALL_MILLIS = 300;
+
+    private static StallingServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        System.setProperty("basic.server.listen-port", "0");
+        System.setProperty("basic.server.shutdown.drain-period", "0ms");
+        server = new StallingServer();
+        server.serve();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.stop();
+        System.getProperties().remove("basic.server.listen-port");
+        System.getProperties().remove("basic.server.shutdown.drain-period");
+    }
+
+    @Test
+    public void everyScenarioIsAnswered() throws Exception {
+        final LoadGenerator generator = new LoadGenerator("localhost", server.port(), 4);
+        for (Scenario scenario : Scenario.all()) {
+            final LoadResult result = generator.run(scenario, 200, 200, 1000);
+            assertEquals(scenario.toString(), 0, result.getErrors());
+            assertEquals(scenario.toString(), 200, result.getCorrected().getTotalCount(), 5);
+        }
+    }
+
+    @Test
+    public void stallIsChargedToTheRequestsQueuedBehindIt() throws Exception {
+        final LoadGenerator generator = new LoadGenerator("localhost", server.port(), 1);
+        final Thread staller = new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(500);
+                STALL.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        staller.start();
+        final LoadResult result = generator.run(Scenario.get("stall", "/stall"), 200, 0, 1500);
+        staller.join();
+
+        assertEquals(0, result.getErrors());
+        final long fiftyMillis = TimeUnit.MILLISECONDS.toNanos(50);
+        // one slow response, as seen from the connection...
+        assertTrue(result.getUncorrected().getMaxValue() >= TimeUnit.MILLISECONDS.toNanos(STALL_MILLIS));
+        assertTrue(result.getUncorrected().getValueAtPercentile(90) < fiftyMillis);
+        // ...but the ~60 requests that were due during it all waited
+        assertTrue(result.getCorrected().getValueAtPercentile(90) > fiftyMillis);
+        assertTrue(result.getP99Millis() > STALL_MILLIS / 2);
+    }
+
+    @Path("/stall")
+    public static class StallResource {
+        @GET
+        public String stall() throws InterruptedException {
+            if (STALL.compareAndSet(true, false)) {
+                TimeUnit.MILLISECONDS.sleep(STALL_MILLIS);
+            }
+            return "ok";
+        }
+    }
+
+    public static class StallingServer extends LoadTestServer {
+        @Override
+        protected ServletModule getMainModule() {
+            final ServletModule main = super.getMainModule();
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    install(main);
+                    bind(StallResource.class);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.loadtest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Only run with -Ploadtest, since it takes a minute or two and wants a quiet machine.
+ */
+public class RegressionGateTest {
+    @Test
+    public void noScenarioIsSlowerThanItsBaseline() throws Exception {
+        final List<String> regressions = LoadTestRunner.run(Paths.get("baseline.properties"),
+                Paths.get("target", "loadtest"), Boolean.getBoolean("loadtest.record"));
+        assertEquals("", String.join("\n", regressions));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.accesslog;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.RequestLog;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.RolloverFileOutputStream;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Jetty request log in NCSA common format with the latency in milliseconds on the end. Request
+ * threads only copy a few fields into an {@link AccessLogRing}; a background thread formats
+ * them and writes them in batches to a file that rolls over daily, so neither formatting nor
+ * file I/O happens on the request path. If the writer can't keep up, records are dropped and
+ * counted rather than holding requests back.
+ */
+public final class AccessLog extends AbstractLifeCycle implements RequestLog {
+    private static final Logger LOG = LoggerFactory.getLogger(AccessLog.class);
+    private static final int BATCH = 1024;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final DateTimeFormatter NCSA_TIME =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.US);
+
+    private final boolean enabled;
+    private final AccessLogRing ring;
+    private final String filename;
+    private final int retainDays;
+    private final ZoneId zone;
+    /** Only touched by the writer thread. */
+    private final StringBuilder batch = new StringBuilder(BATCH * 128);
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running;
+    private volatile Thread writer;
+    /** Opened by doStart, closed by the writer thread once it's done. */
+    private volatile Writer out;
+
+    /**
+     * @param filename where to write; "yyyy_mm_dd" in it is replaced by the date, and a new file started each day
+     * @param retainDays how many days of files to keep, or 0 for all of them
+     */
+    public AccessLog(final boolean enabled, @Nonnull final AccessLogRing ring, @Nonnull final String filename,
+                     final int retainDays, @Nonnull final ZoneId zone) {
+        this.enabled = enabled;
+        this.ring = ring;
+        this.filename = filename;
+        this.retainDays = retainDays;
+        this.zone = zone;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void log(final Request request, final Response response) {
+        ring.offer(request.getTimeStamp(), request.getMethod(), request.getOriginalURI(), request.getProtocol(),
+                response.getCommittedMetaData().getStatus(), response.getHttpChannel().getBytesWritten(),
+                System.currentTimeMillis() - request.getTimeStamp(), request.getRemoteAddr());
+    }
+
+    public long written() {
+        return written.get();
+    }
+
+    /**
+     * @return records dropped for want of room in the ring, or lost to write errors
+     */
+    public long dropped() {
+        return ring.dropped() + failed.get();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        final File parent = new File(filename).getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        out = new BufferedWriter(new OutputStreamWriter(
+                new RolloverFileOutputStream(filename, true, retainDays, TimeZone.getTimeZone(zone)),
+                StandardCharsets.UTF_8), BATCH * 128);
+        running = true;
+        final Thread thread = new Thread(this::writeLoop, "lilrest-access-log");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+        LOG.info("access log going to {}", filename);
+    }
+
+    /**
+     * Stops once everything logged so far is written.
+     */
+    @Override
+    protected void doStop() throws Exception {
+        running = false;
+        final Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void writeLoop() {
+        try (Writer closing = out) {
+            while (true) {
+                final boolean stopping = !running;
+                batch.setLength(0);
+                final int drained = ring.drain(this::append, BATCH);
+                if (drained > 0) {
+                    write(closing, drained);
+                } else if (stopping) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("couldn't close the access log", e);
+        }
+    }
+
+    private void write(final Writer out, final int records) {
+        try {
+            out.append(batch);
+            out.flush();
+            written.lazySet(written.get() + records);
+        } catch (IOException e) {
+            failed.lazySet(failed.get() + records);
+            LOG.warn("lost {} access log records", records, e);
+        }
+    }
+
+    private void append(final AccessRecord record) {
+        batch.append(record.getRemoteAddress()).append(" - - [")
+                .append(NCSA_TIME.format(Instant.ofEpochMilli(record.getTimestamp()).atZone(zone)))
+                .append("] \"").append(record.getMethod()).append(' ').append(record.getUri()).append(' ')
+                .append(record.getProtocol()).append("\" ").append(record.getStatus()).append(' ');
+        if (record.getBytes() > 0) {
+            batch.append(record.getBytes());
+        } else {
+            batch.append('-');
+        }
+        batch.append(' ').append(record.getLatencyMillis()).append('\n');
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A fixed ring of preallocated {@link AccessRecord}s: any number of request threads offer, one
+ * log writer drains. Offering claims a slot with a single compare-and-set and never waits; when
+ * the writer has fallen a whole ring behind, the record is dropped and counted instead.
+ */
+public final class AccessLogRing {
+    private final AccessRecord[] records;
+    private final int mask;
+    /** Per slot, one more than the sequence number last written there, so the writer knows it's ready. */
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity records the ring holds, rounded up to a power of two
+     */
+    public AccessLogRing(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("access log ring capacity must be 1 to 2^30, not " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.records = new AccessRecord[size];
+        for (int i = 0; i < size; i++) {
+            records[i] = new AccessRecord();
+        }
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+    }
+
+    /**
+     * @return false if the ring was full and the record was dropped
+     */
+    public boolean offer(final long timestamp, final String method, final String uri, final String protocol,
+                         final int status, final long bytes, final long latencyMillis, final String remoteAddress) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() >= records.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        final int slot = (int) sequence & mask;
+        records[slot].set(timestamp, method, uri, protocol, status, bytes, latencyMillis, remoteAddress);
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * Hands up to max records to the sink, oldest first, stopping early at one that's claimed but
+     * not written yet. Only one thread may drain.
+     *
+     * @return how many were handed over
+     */
+    public int drain(final Consumer<AccessRecord> sink, final int max) {
+        long next = tail.get();
+        int drained = 0;
+        while (drained < max) {
+            final int slot = (int) next & mask;
+            if (published.get(slot) != next + 1) {
+                break;
+            }
+            sink.accept(records[slot]);
+            next++;
+            drained++;
+        }
+        if (drained > 0) {
+            // only now may the slots be claimed again
+            tail.lazySet(next);
+        }
+        return drained;
+    }
+
+    public int capacity() {
+        return records.length;
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.accesslog;
+
+/**
+ * One slot in an {@link AccessLogRing}, filled in by a request thread and read by the log writer.
+ * Slots are reused, so nothing should hang on to one after it's been handed over.
+ */
+public final class AccessRecord {
+    private long timestamp;
+    private String method;
+    private String uri;
+    private String protocol;
+    private int status;
+    private long bytes;
+    private long latencyMillis;
+    private String remoteAddress;
+
+    AccessRecord() {
+    }
+
+    void set(final long timestamp, final String method, final String uri, final String protocol, final int status,
+             final long bytes, final long latencyMillis, final String remoteAddress) {
+        this.timestamp = timestamp;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.status = status;
+        this.bytes = bytes;
+        this.latencyMillis = latencyMillis;
+        this.remoteAddress = remoteAddress;
+    }
+
+    /**
+     * When the request arrived, in epoch milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.batch;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One request in a batch. The body, if any, is sent as JSON unless the headers give another
+ * Content-Type, in which case a string body is sent as it is.
+ */
+public final class BatchItem {
+    private final String method;
+    private final String path;
+    private final Map<String, String> headers;
+    private final JsonNode body;
+
+    @JsonCreator
+    public BatchItem(@JsonProperty("method") @Nullable final String method,
+                     @JsonProperty("path") @Nullable final String path,
+                     @JsonProperty("headers") @Nullable final Map<String, String> headers,
+                     @JsonProperty("body") @Nullable final JsonNode body) {
+        this.method = method == null ? "GET" : method;
+        this.path = path;
+        this.headers = headers == null ? Collections.emptyMap() : headers;
+        this.body = body;
+    }
+
+    @Nonnull
+    public String getMethod() {
+        return method;
+    }
+
+    @Nullable
+    public String getPath() {
+        return path;
+    }
+
+    @Nonnull
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Nullable
+    public JsonNode getBody() {
+        return body;
+    }
+}
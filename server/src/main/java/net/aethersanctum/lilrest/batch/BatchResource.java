@@ -0,0 +1,377 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.aethersanctum.lilrest.lifecycle.Managed;
+import net.aethersanctum.lilrest.metrics.RequestMetrics;
+import net.aethersanctum.lilrest.ratelimit.RateLimitRule;
+import net.aethersanctum.lilrest.ratelimit.RateLimiter;
+import net.aethersanctum.lilrest.server.JaxRsServerConfig;
+import net.aethersanctum.lilrest.server.RateLimitKey;
+import org.jboss.resteasy.core.Dispatcher;
+import org.jboss.resteasy.core.SynchronousDispatcher;
+import org.jboss.resteasy.core.SynchronousExecutionContext;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handles a JSON array of requests in one HTTP call, dispatching each of them through
+ * RESTEasy in-process and answering with an array of their results in the same order.
+ * Runs of reads (GET, HEAD and OPTIONS) go in parallel on a small pool; anything else waits
+ * for the requests before it and is waited for by those after, so a batch means the same
+ * as making its requests one by one. Sub-requests see the batch's HttpServletRequest and
+ * skip the servlet filters and Guice's request scope, but are rate limited and recorded in
+ * the request metrics each in their own right.
+ */
+@Singleton
+@Path("/api")
+public final class BatchResource implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchResource.class);
+    private static final Set<String> READS = ImmutableSet.of("GET", "HEAD", "OPTIONS");
+    private static final Set<String> METHODS = ImmutableSet.<String>builder()
+            .addAll(READS).add("POST", "PUT", "DELETE", "PATCH").build();
+    private static final int QUEUE_PER_THREAD = 32;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final CharMatcher SLASH = CharMatcher.is('/');
+
+    private final ObjectMapper mapper;
+    private final RateLimiter rateLimiter;
+    private final RequestMetrics metrics;
+    private final RateLimitKey rateLimitKey;
+    private final String rateLimitHeader;
+    private final int trustedProxies;
+    private final ThreadPoolExecutor executor;
+    private final int maxSize;
+    private final long timeoutNanos;
+
+    @Inject
+    BatchResource(@Nonnull final ObjectMapper mapper, @Nonnull final JaxRsServerConfig config,
+                  @Nonnull final RateLimiter rateLimiter, @Nonnull final RequestMetrics metrics) {
+        this.mapper = mapper;
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+        this.rateLimitKey = config.rateLimitKey();
+        this.rateLimitHeader = rateLimitKey.header(config);
+        this.trustedProxies = config.rateLimitTrustedProxies();
+        this.maxSize = config.batchMaxSize();
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.batchTimeout().getMillis());
+        final int threads = Math.max(1, config.batchThreads());
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD),
+                new ThreadFactoryBuilder().setNameFormat("lilrest-batch-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Only called once Jetty has stopped, so no batch can still be waiting on the pool.
+     */
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Nonnull
+    public List<BatchResult> batch(final List<BatchItem> items,
+                                   @Context final UriInfo uriInfo) {
+        // @Context would hand us proxies for this thread, and the work happens on others
+        final Dispatcher dispatcher = ResteasyProviderFactory.getContextData(Dispatcher.class);
+        final HttpServletRequest request = ResteasyProviderFactory.getContextData(HttpServletRequest.class);
+        if (request instanceof SubRequest) {
+            // whatever its path looked like, a batch inside a batch would tie up the pool waiting on itself
+            throw new WebApplicationException(error(Response.Status.BAD_REQUEST, "batches can't be nested"));
+        }
+        if (items == null || items.contains(null)) {
+            throw new WebApplicationException(error(Response.Status.BAD_REQUEST, "expected a JSON array of requests"));
+        }
+        if (items.size() > maxSize) {
+            throw new WebApplicationException(error(Response.Status.REQUEST_ENTITY_TOO_LARGE,
+                    "a batch may have at most " + maxSize + " requests"));
+        }
+        final Batch batch = new Batch(items, dispatcher, request, uriInfo.getBaseUri());
+        final List<Integer> reads = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (READS.contains(items.get(i).getMethod().toUpperCase(Locale.ROOT))) {
+                reads.add(i);
+            } else {
+                batch.run(reads);
+                reads.clear();
+                batch.run(Collections.singletonList(i));
+            }
+        }
+        batch.run(reads);
+        return Arrays.asList(batch.results);
+    }
+
+    private static Response error(final Response.Status status, final String message) {
+        return Response.status(status).type(MediaType.TEXT_PLAIN_TYPE).entity(message).build();
+    }
+
+    private static BatchResult failed(final int status, final String message) {
+        return new BatchResult(status, Collections.singletonMap(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN),
+                TextNode.valueOf(message));
+    }
+
+    private static Map<String, String> rateLimitHeaders(final Map<String, String> headers,
+                                                        @Nullable final RateLimitRule rule, final long remaining) {
+        if (rule != null) {
+            headers.put("X-RateLimit-Limit", Integer.toString(rule.getBurst()));
+            headers.put("X-RateLimit-Remaining", Long.toString(Math.max(0, remaining)));
+        }
+        return headers;
+    }
+
+    private final class Batch {
+        private final List<BatchItem> items;
+        private final Dispatcher dispatcher;
+        private final HttpServletRequest request;
+        private final String client;
+        private final URI baseUri;
+        private final long deadline = System.nanoTime() + timeoutNanos;
+        private final BatchResult[] results;
+
+        Batch(final List<BatchItem> items, final Dispatcher dispatcher, final HttpServletRequest request,
+              final URI baseUri) {
+            this.items = items;
+            this.dispatcher = dispatcher;
+            this.request = request;
+            this.client = rateLimitKey.client(request, rateLimitHeader, trustedProxies);
+            this.baseUri = baseUri;
+            this.results = new BatchResult[items.size()];
+        }
+
+        /**
+         * Runs the requests at these indexes in parallel, waiting for all of them or the deadline.
+         */
+        void run(final List<Integer> indexes) {
+            final Map<Integer, Future<BatchResult>> running = new LinkedHashMap<>();
+            for (int index : indexes) {
+                if (System.nanoTime() - deadline >= 0) {
+                    results[index] = failed(504, "batch time limit reached");
+                    continue;
+                }
+                final BatchItem item = items.get(index);
+                try {
+                    running.put(index, executor.submit(() -> dispatch(item)));
+                } catch (RejectedExecutionException e) {
+                    results[index] = failed(503, "too many batched requests in progress");
+                }
+            }
+            for (Map.Entry<Integer, Future<BatchResult>> entry : running.entrySet()) {
+                results[entry.getKey()] = await(entry.getValue());
+            }
+        }
+
+        private BatchResult await(final Future<BatchResult> future) {
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                return failed(504, "batch time limit reached");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                return failed(503, "interrupted");
+            } catch (ExecutionException e) {
+                LOG.warn("batched request failed", e.getCause());
+                return failed(500, "request failed");
+            }
+        }
+
+        private BatchResult dispatch(final BatchItem item) throws IOException {
+            final String path = item.getPath();
+            if (path == null || !path.startsWith("/")) {
+                return failed(400, "path must start with /");
+            }
+            final String method = item.getMethod().toUpperCase(Locale.ROOT);
+            if (!METHODS.contains(method)) {
+                return failed(400, "method must be one of " + String.join(", ", METHODS));
+            }
+            final URI uri;
+            try {
+                uri = baseUri.resolve(path.substring(1));
+            } catch (IllegalArgumentException e) {
+                return failed(400, "path must be a valid URI path and query");
+            }
+            final MockHttpRequest subRequest = MockHttpRequest.create(method, uri, baseUri);
+            final long start = System.nanoTime();
+            RequestMetrics.beginInProcess();
+            int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            try {
+                // decoded and collapsed, as RateLimitFilter sees paths
+                final RateLimitRule rule = rateLimiter.ruleFor(
+                        SLASH.collapseFrom(subRequest.getUri().getRequestUri().getPath(), '/'));
+                final long remaining = rule == null ? 0 : rateLimiter.take(rule, client);
+                if (remaining < 0) {
+                    status = TOO_MANY_REQUESTS;
+                    final Map<String, String> headers = rateLimitHeaders(new LinkedHashMap<>(), rule, remaining);
+                    headers.put("Retry-After", Long.toString(RateLimiter.retryAfterSeconds(remaining)));
+                    return new BatchResult(status, headers, null);
+                }
+                final BatchResult result = invoke(item, subRequest);
+                status = result.getStatus();
+                rateLimitHeaders(result.getHeaders(), rule, remaining);
+                return result;
+            } finally {
+                metrics.endInProcess(System.nanoTime() - start, status);
+            }
+        }
+
+        private BatchResult invoke(final BatchItem item, final MockHttpRequest subRequest) throws IOException {
+            item.getHeaders().forEach(subRequest::header);
+            if (item.getBody() != null) {
+                final String contentType = item.getHeaders().entrySet().stream()
+                        .filter(e -> HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(e.getKey()))
+                        .map(Map.Entry::getValue).findFirst().orElse(MediaType.APPLICATION_JSON);
+                final JsonNode body = item.getBody();
+                subRequest.contentType(contentType);
+                subRequest.content(body.isTextual() && !isJson(contentType)
+                        ? body.textValue().getBytes(StandardCharsets.UTF_8)
+                        : mapper.writeValueAsBytes(body));
+            }
+            final MockHttpResponse subResponse = new MockHttpResponse();
+            if (dispatcher instanceof SynchronousDispatcher) {
+                // resources that suspend are waited for on this thread
+                subRequest.setAsynchronousContext(new SynchronousExecutionContext(
+                        (SynchronousDispatcher) dispatcher, subRequest, subResponse));
+            }
+            ResteasyProviderFactory.pushContext(HttpServletRequest.class, new SubRequest(request, subRequest));
+            dispatcher.invoke(subRequest, subResponse);
+            return result(subResponse);
+        }
+
+        private BatchResult result(final MockHttpResponse response) {
+            final Map<String, String> headers = new LinkedHashMap<>();
+            response.getOutputHeaders().forEach((name, values) -> {
+                if (!values.isEmpty()) {
+                    headers.put(name, String.valueOf(values.get(0)));
+                }
+            });
+            final byte[] output = response.getOutput();
+            if (output.length == 0) {
+                return new BatchResult(response.getStatus(), headers, null);
+            }
+            final String contentType = headers.get(HttpHeaders.CONTENT_TYPE);
+            if (contentType != null && isJson(contentType)) {
+                try {
+                    return new BatchResult(response.getStatus(), headers, mapper.readTree(output));
+                } catch (IOException e) {
+                    // not JSON after all, so pass it on as text
+                }
+            }
+            return new BatchResult(response.getStatus(), headers,
+                    TextNode.valueOf(new String(output, StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * The batch's servlet request, as seen by one of its sub-requests: the method, URI and
+     * path are the item's, everything else is the batch's.
+     */
+    private static final class SubRequest extends HttpServletRequestWrapper {
+        private final MockHttpRequest sub;
+
+        SubRequest(final HttpServletRequest request, final MockHttpRequest sub) {
+            super(request);
+            this.sub = sub;
+        }
+
+        @Override
+        public String getMethod() {
+            return sub.getHttpMethod();
+        }
+
+        @Override
+        public String getRequestURI() {
+            return sub.getUri().getRequestUri().getRawPath();
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            final URI uri = sub.getUri().getRequestUri();
+            return new StringBuffer(uri.getScheme()).append("://").append(uri.getRawAuthority()).append(uri.getRawPath());
+        }
+
+        @Override
+        public String getQueryString() {
+            return sub.getUri().getRequestUri().getRawQuery();
+        }
+
+        /**
+         * Sub-requests are dispatched by the same servlet as the batch, so they share its mapping.
+         */
+        @Override
+        public String getServletPath() {
+            return super.getServletPath();
+        }
+
+        @Override
+        public String getPathInfo() {
+            return sub.getUri().getPath();
+        }
+    }
+
+    private static boolean isJson(final String contentType) {
+        final MediaType type = MediaType.valueOf(contentType);
+        return type.getSubtype().equals("json") || type.getSubtype().endsWith("+json");
+    }
+}
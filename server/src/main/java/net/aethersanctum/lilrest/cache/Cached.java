@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the serialized responses of a GET resource method, keyed by request path,
+ * query and Accept header. Cached responses carry a strong ETag, and requests with a
+ * matching If-None-Match get a 304 without the method being called. Only 200
+ * responses are cached, and not those with a Cache-Control of no-store or private.
+ * See {@link ResponseCaches} to invalidate entries.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cached {
+    /**
+     * How long a response may be served from the cache.
+     */
+    long ttl() default 60;
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * Most responses to keep for this method.
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * Most bytes of responses to keep for this method.
+     */
+    long maxBytes() default 16 * 1024 * 1024;
+}
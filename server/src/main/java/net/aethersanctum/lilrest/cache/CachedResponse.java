@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.cache;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * A serialized response body, its media type, the other headers the resource set and a
+ * strong ETag derived from the bytes.
+ */
+final class CachedResponse {
+    private final byte[] body;
+    private final MediaType mediaType;
+    private final ImmutableListMultimap<String, Object> headers;
+    private final EntityTag etag;
+
+    CachedResponse(@Nonnull final byte[] body, @Nullable final MediaType mediaType,
+                   @Nonnull final ImmutableListMultimap<String, Object> headers) {
+        this.body = body;
+        this.mediaType = mediaType;
+        this.headers = headers;
+        this.etag = etagOf(body);
+    }
+
+    static EntityTag etagOf(final byte[] body) {
+        return new EntityTag(Hashing.murmur3_128().hashBytes(body).toString());
+    }
+
+    byte[] body() {
+        return body;
+    }
+
+    @Nullable
+    MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the headers to send again with every hit, which leaves out the content type, the
+     *         ETag and anything that was only meant for the original response
+     */
+    ImmutableListMultimap<String, Object> headers() {
+        return headers;
+    }
+
+    EntityTag etag() {
+        return etag;
+    }
+}
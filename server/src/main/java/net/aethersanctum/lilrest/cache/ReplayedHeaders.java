@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.cache;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks out the headers of a response that can be sent again with a copy of it, to someone
+ * other than the client it was made for.
+ */
+public final class ReplayedHeaders {
+    private static final Splitter COMMA = Splitter.on(',').trimResults().omitEmptyStrings();
+    /**
+     * Hop-by-hop headers, cookies meant for whoever got the original response, and the ones that
+     * go with the body, which whoever replays it sets itself.
+     */
+    private static final Set<String> NOT_REPLAYED = ImmutableSet.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "set-cookie",
+            "content-type", "content-length");
+
+    private ReplayedHeaders() {
+    }
+
+    /**
+     * @param alsoSkipped lower case names of any more headers to leave out
+     */
+    @Nonnull
+    public static ImmutableListMultimap<String, Object> of(@Nonnull final MultivaluedMap<String, Object> headers,
+                                                           @Nonnull final String... alsoSkipped) {
+        final Set<String> skipped = new HashSet<>(NOT_REPLAYED);
+        skipped.addAll(Arrays.asList(alsoSkipped));
+        // anything named in Connection is hop-by-hop too
+        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase("Connection")) {
+                for (Object value : header.getValue()) {
+                    COMMA.split(String.valueOf(value)).forEach(token -> skipped.add(token.toLowerCase(Locale.ROOT)));
+                }
+            }
+        }
+        final ImmutableListMultimap.Builder<String, Object> replayed = ImmutableListMultimap.builder();
+        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            if (!skipped.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                replayed.putAll(header.getKey(), header.getValue());
+            }
+        }
+        return replayed.build();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The cached responses of one {@link Cached} resource method.
+ */
+final class ResponseCache {
+    private final String name;
+    private final Cache<Key, CachedResponse> cache;
+    /** Bumped by every invalidation, so responses begun before one aren't kept after it. */
+    private final AtomicLong generation = new AtomicLong();
+
+    ResponseCache(@Nonnull final String name, @Nonnull final Cached settings) {
+        this.name = name;
+        // Guava can bound entries or weight but not both; charging each entry at least
+        // its share of maxBytes keeps the number of entries within maxEntries too.
+        final long minWeight = Math.max(1, settings.maxBytes() / Math.max(1, settings.maxEntries()));
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(settings.ttl(), settings.unit())
+                .maximumWeight(settings.maxBytes())
+                .weigher((Key key, CachedResponse response) ->
+                        (int) Math.min(Integer.MAX_VALUE, Math.max(minWeight, key.weight() + response.body().length)))
+                .recordStats()
+                .build();
+    }
+
+    @Nonnull
+    String name() {
+        return name;
+    }
+
+    @Nullable
+    CachedResponse get(@Nonnull final Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * @return what to stamp a miss with, to be handed back to {@link #put}
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Keeps the response unless there's been an invalidation since the miss it answers, when it
+     * may have been made from whatever that invalidation was for.
+     */
+    void put(@Nonnull final Key key, @Nonnull final CachedResponse response, final long missGeneration) {
+        if (generation.get() != missGeneration) {
+            return;
+        }
+        cache.put(key, response);
+        if (generation.get() != missGeneration) {
+            // an invalidation got in between, and may have missed what we just put
+            cache.invalidate(key);
+        }
+    }
+
+    void invalidate(@Nonnull final String path) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.path.equals(path));
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * What makes two requests ask for the same response.
+     */
+    static final class Key {
+        private final String path;
+        private final String query;
+        private final String accept;
+
+        Key(@Nonnull final String path, @Nullable final String query, @Nullable final String accept) {
+            this.path = path;
+            this.query = query == null ? "" : query;
+            this.accept = accept == null ? "" : accept;
+        }
+
+        private int weight() {
+            return 2 * (path.length() + query.length() + accept.length());
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return path.equals(other.path) && query.equals(other.query) && accept.equals(other.accept);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, query, accept);
+        }
+    }
+}
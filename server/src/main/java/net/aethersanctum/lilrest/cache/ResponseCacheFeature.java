@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.cache;
+
+import com.google.common.base.Splitter;
+
+import javax.inject.Inject;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+
+/**
+ * Puts a response cache in front of each {@link Cached} resource method.
+ */
+@Provider
+public final class ResponseCacheFeature implements DynamicFeature {
+    private static final String MISS_PROPERTY = Miss.class.getName();
+    private static final Splitter COMMA = Splitter.on(',').trimResults().omitEmptyStrings();
+    private final ResponseCaches caches;
+
+    @Inject
+    ResponseCacheFeature(final ResponseCaches caches) {
+        this.caches = caches;
+    }
+
+    @Override
+    public void configure(final ResourceInfo resourceInfo, final FeatureContext context) {
+        final Method method = resourceInfo.getResourceMethod();
+        final Cached settings = method.getAnnotation(Cached.class);
+        if (settings == null) {
+            return;
+        }
+        final Class<?> resource = resourceInfo.getResourceClass();
+        context.register(new Caching(caches.cacheFor(resource.getName() + "." + method.getName(),
+                resource.getSimpleName() + "." + method.getName(), settings)));
+    }
+
+    /**
+     * Answers from the cache when it can, otherwise remembers what the resource method produced.
+     */
+    private static final class Caching implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+        private final ResponseCache cache;
+
+        Caching(final ResponseCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void filter(final ContainerRequestContext request) {
+            if (!HttpMethod.GET.equals(request.getMethod())) {
+                return;
+            }
+            final ResponseCache.Key key = new ResponseCache.Key(request.getUriInfo().getRequestUri().getRawPath(),
+                    request.getUriInfo().getRequestUri().getRawQuery(),
+                    request.getHeaderString(HttpHeaders.ACCEPT));
+            final CachedResponse cached = cache.get(key);
+            if (cached == null) {
+                request.setProperty(MISS_PROPERTY, new Miss(key, cache.generation()));
+            } else if (matches(request.getHeaderString(HttpHeaders.IF_NONE_MATCH), cached.etag())) {
+                request.abortWith(replay(Response.notModified(cached.etag()), cached));
+            } else {
+                request.abortWith(replay(Response.ok(cached.body(), cached.mediaType()).tag(cached.etag()), cached));
+            }
+        }
+
+        private static Response replay(final Response.ResponseBuilder builder, final CachedResponse cached) {
+            cached.headers().forEach(builder::header);
+            return builder.build();
+        }
+
+        @Override
+        public void filter(final ContainerRequestContext request, final ContainerResponseContext response) {
+            if (response.getStatus() != Response.Status.OK.getStatusCode()
+                    || !storable(response.getHeaderString(HttpHeaders.CACHE_CONTROL))) {
+                request.removeProperty(MISS_PROPERTY);
+            }
+        }
+
+        /**
+         * Nothing marked no-store, or private to the client it was made for, is kept.
+         */
+        private static boolean storable(final String cacheControl) {
+            if (cacheControl == null) {
+                return true;
+            }
+            for (String directive : COMMA.split(cacheControl)) {
+                final int equals = directive.indexOf('=');
+                final String name = (equals < 0 ? directive : directive.substring(0, equals)).trim();
+                if (name.equalsIgnoreCase("no-store") || name.equalsIgnoreCase("private")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+            final Miss miss = (Miss) context.getProperty(MISS_PROPERTY);
+            if (miss == null) {
+                context.proceed();
+                return;
+            }
+            // buffer the whole body, which also keeps the headers open for the ETag
+            final OutputStream out = context.getOutputStream();
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            context.setOutputStream(buffer);
+            try {
+                context.proceed();
+            } finally {
+                context.setOutputStream(out);
+            }
+            // hits get an ETag of the cache's own
+            final CachedResponse response = new CachedResponse(buffer.toByteArray(), context.getMediaType(),
+                    ReplayedHeaders.of(context.getHeaders(), "etag"));
+            cache.put(miss.key, response, miss.generation);
+            context.getHeaders().putSingle(HttpHeaders.ETAG, response.etag());
+            out.write(response.body());
+        }
+
+        private static boolean matches(final String ifNoneMatch, final EntityTag etag) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            final String quoted = '"' + etag.getValue() + '"';
+            for (String candidate : COMMA.split(ifNoneMatch)) {
+                if (candidate.equals("*") || candidate.equals(quoted) || candidate.equals("W/" + quoted)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A request the cache couldn't answer, and the cache's generation when it asked.
+     */
+    private static final class Miss {
+        private final ResponseCache.Key key;
+        private final long generation;
+
+        Miss(final ResponseCache.Key key, final long generation) {
+            this.key = key;
+            this.generation = generation;
+        }
+    }
+}
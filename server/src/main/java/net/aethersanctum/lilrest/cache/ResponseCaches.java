@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.cache;
+
+import com.google.common.cache.CacheStats;
+
+import javax.annotation.Nonnull;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * All the response caches of {@link Cached} resource methods. Inject this to
+ * invalidate cached responses when whatever they were made from changes.
+ */
+@Singleton
+public final class ResponseCaches {
+    private final ConcurrentMap<String, ResponseCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param key the resource method, qualified by its resource class's full name
+     * @param name the same but with the class's simple name, for reports
+     */
+    @Nonnull
+    ResponseCache cacheFor(@Nonnull final String key, @Nonnull final String name, @Nonnull final Cached settings) {
+        return caches.computeIfAbsent(key, k -> new ResponseCache(name, settings));
+    }
+
+    /**
+     * Forgets every cached response to requests for this path, whatever their query or
+     * Accept header.
+     *
+     * @param path the request path, such as /address/fred
+     */
+    public void invalidate(@Nonnull final String path) {
+        caches.values().forEach(cache -> cache.invalidate(path));
+    }
+
+    public void invalidateAll() {
+        caches.values().forEach(ResponseCache::invalidateAll);
+    }
+
+    /**
+     * @return hit, miss and eviction counts for each cache, named after the resource method
+     */
+    @Nonnull
+    public SortedMap<String, CacheStats> stats() {
+        final SortedMap<String, CacheStats> stats = new TreeMap<>();
+        named().forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+
+    /**
+     * @return how many responses each cache is holding
+     */
+    @Nonnull
+    public SortedMap<String, Long> sizes() {
+        final SortedMap<String, Long> sizes = new TreeMap<>();
+        named().forEach((name, cache) -> sizes.put(name, cache.size()));
+        return sizes;
+    }
+
+    /**
+     * Each cache by its short name, or by its full one where resource classes in different
+     * packages share a simple name.
+     */
+    private Map<String, ResponseCache> named() {
+        final Map<String, Integer> uses = new HashMap<>();
+        caches.values().forEach(cache -> uses.merge(cache.name(), 1, Integer::sum));
+        final Map<String, ResponseCache> named = new HashMap<>();
+        caches.forEach((key, cache) -> named.put(uses.get(cache.name()) > 1 ? key : cache.name(), cache));
+        return named;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.coalesce;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets identical GETs to a resource method that arrive while one is already being handled
+ * wait for it and share its serialized response, rather than each calling the method.
+ * Requests are identical when their path, query, Accept header and any {@link #headers()}
+ * match. Only 200 responses are shared. The leader's headers are replayed to the others,
+ * except hop-by-hop ones and Set-Cookie, as they are for cache hits; when the leader fails
+ * or takes longer than {@link #maxWait()}, the others go ahead on their own.
+ * Responses are buffered whole, so don't use it on streamed ones. Waiting requests each hold
+ * a server thread, so at most {@link #maxWaiters()} wait on any one request and the rest go
+ * ahead on their own.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesced {
+    /**
+     * Longest a request waits for an identical one before going ahead by itself.
+     */
+    long maxWait() default 1000;
+
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+    /**
+     * Most requests that may wait on one being handled, keeping a burst of identical requests
+     * from taking up every thread in the pool.
+     */
+    int maxWaiters() default 32;
+
+    /**
+     * Other request headers the response depends on, such as Authorization.
+     */
+    String[] headers() default {};
+}
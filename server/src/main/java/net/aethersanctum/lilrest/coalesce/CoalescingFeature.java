@@ -0,0 +1,230 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.coalesce;
+
+import com.google.common.collect.ImmutableListMultimap;
+import net.aethersanctum.lilrest.cache.ReplayedHeaders;
+
+import javax.annotation.Nullable;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Puts single-flight coalescing in front of each {@link Coalesced} resource method.
+ */
+@Provider
+public final class CoalescingFeature implements DynamicFeature {
+    private static final String FLIGHT_PROPERTY = Flight.class.getName();
+
+    @Override
+    public void configure(final ResourceInfo resourceInfo, final FeatureContext context) {
+        final Coalesced settings = resourceInfo.getResourceMethod().getAnnotation(Coalesced.class);
+        if (settings != null) {
+            context.register(new Coalescing(settings));
+        }
+    }
+
+    /**
+     * The first of a set of identical requests leads and hands its response to the rest,
+     * which wait for it in the request filter.
+     */
+    private static final class Coalescing implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+        private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+        private final long maxWaitNanos;
+        private final int maxWaiters;
+        private final String[] headers;
+
+        Coalescing(final Coalesced settings) {
+            this.maxWaitNanos = settings.unit().toNanos(settings.maxWait());
+            this.maxWaiters = settings.maxWaiters();
+            this.headers = settings.headers().clone();
+        }
+
+        @Override
+        public void filter(final ContainerRequestContext request) {
+            if (!HttpMethod.GET.equals(request.getMethod())) {
+                return;
+            }
+            final String key = key(request);
+            final Flight mine = new Flight(flights, key);
+            Flight leader = flights.putIfAbsent(key, mine);
+            if (leader != null && System.nanoTime() - leader.started > maxWaitNanos && flights.replace(key, leader, mine)) {
+                // nobody waits that long for a leader, so one this old went without landing
+                leader.land(Shared.NONE);
+                leader = null;
+            }
+            if (leader == null) {
+                request.setProperty(FLIGHT_PROPERTY, mine);
+                return;
+            }
+            if (leader.waiters.incrementAndGet() > maxWaiters) {
+                // enough threads are tied up waiting already
+                return;
+            }
+            final Shared shared = leader.await(maxWaitNanos);
+            if (shared == null) {
+                // a leader that never lands mustn't hold up everyone after it too
+                flights.remove(key, leader);
+                return;
+            }
+            final Response.ResponseBuilder builder = Response.ok(shared.body, shared.mediaType);
+            shared.headers.forEach(builder::header);
+            request.abortWith(builder.build());
+        }
+
+        @Override
+        public void filter(final ContainerRequestContext request, final ContainerResponseContext response) {
+            final Flight flight = (Flight) request.getProperty(FLIGHT_PROPERTY);
+            if (flight != null && (response.getStatus() != Response.Status.OK.getStatusCode() || !response.hasEntity())) {
+                request.removeProperty(FLIGHT_PROPERTY);
+                flight.land(Shared.NONE);
+            }
+        }
+
+        @Override
+        public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+            final Flight flight = (Flight) context.getProperty(FLIGHT_PROPERTY);
+            if (flight == null) {
+                context.proceed();
+                return;
+            }
+            final OutputStream out = context.getOutputStream();
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            context.setOutputStream(buffer);
+            try {
+                context.proceed();
+            } catch (IOException | RuntimeException e) {
+                flight.land(Shared.NONE);
+                throw e;
+            } finally {
+                context.setOutputStream(out);
+            }
+            final Shared shared = new Shared(buffer.toByteArray(), context.getMediaType(),
+                    ReplayedHeaders.of(context.getHeaders()));
+            flight.land(shared);
+            out.write(shared.body);
+        }
+
+        private String key(final ContainerRequestContext request) {
+            final URI uri = request.getUriInfo().getRequestUri();
+            final StringBuilder key = new StringBuilder(128).append(uri.getRawPath())
+                    .append('?').append(uri.getRawQuery())
+                    .append('\n').append(request.getHeaderString(HttpHeaders.ACCEPT));
+            for (String header : headers) {
+                key.append('\n').append(request.getHeaderString(header));
+            }
+            return key.toString();
+        }
+    }
+
+    /**
+     * Lands the flight of a leader whose request ended without its response going through the
+     * filters, as when its resource method throws something no ExceptionMapper handles.
+     */
+    public static final class LandingListener implements ServletRequestListener {
+        @Override
+        public void requestInitialized(final ServletRequestEvent event) {
+        }
+
+        @Override
+        public void requestDestroyed(final ServletRequestEvent event) {
+            final ServletRequest request = event.getServletRequest();
+            final Object flight = request.getAttribute(FLIGHT_PROPERTY);
+            if (flight instanceof Flight && !request.isAsyncStarted()) {
+                ((Flight) flight).land(Shared.NONE);
+            }
+        }
+    }
+
+    private static final class Flight {
+        private final ConcurrentMap<String, Flight> flights;
+        private final String key;
+        private final long started = System.nanoTime();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final CompletableFuture<Shared> response = new CompletableFuture<>();
+
+        Flight(final ConcurrentMap<String, Flight> flights, final String key) {
+            this.flights = flights;
+            this.key = key;
+        }
+
+        /**
+         * Hands the leader's response to whoever's waiting, or sends them off on their own if it's
+         * {@link Shared#NONE}. Only the first landing counts.
+         */
+        void land(final Shared shared) {
+            flights.remove(key, this);
+            response.complete(shared);
+        }
+
+        /**
+         * @return the leader's response, or null if it failed or took too long
+         */
+        @Nullable
+        Shared await(final long nanos) {
+            try {
+                final Shared shared = response.get(nanos, TimeUnit.NANOSECONDS);
+                return shared == Shared.NONE ? null : shared;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException | TimeoutException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Shared {
+        /** What a leader that couldn't share its response leaves. */
+        private static final Shared NONE = new Shared(new byte[0], null, ImmutableListMultimap.of());
+
+        private final byte[] body;
+        private final MediaType mediaType;
+        /** The leader's other headers, less anything that was only meant for it. */
+        private final ImmutableListMultimap<String, Object> headers;
+
+        Shared(final byte[] body, @Nullable final MediaType mediaType,
+               final ImmutableListMultimap<String, Object> headers) {
+            this.body = body;
+            this.mediaType = mediaType;
+            this.headers = headers;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.health;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * How a {@link HealthCheck} did the last time it was run.
+ */
+final class CheckReport {
+    @Nonnull
+    private final String name;
+    @Nonnull
+    private final HealthCheck.Status status;
+    private final long latencyMicros;
+    @Nullable
+    private final String message;
+
+    CheckReport(@Nonnull String name, @Nonnull HealthCheck.Status status, long latencyMicros,
+                @Nullable String message) {
+        this.name = name;
+        this.status = status;
+        this.latencyMicros = latencyMicros;
+        this.message = message;
+    }
+
+    @Nonnull public String getName() {
+        return name;
+    }
+
+    @Nonnull public HealthCheck.Status getStatus() {
+        return status;
+    }
+
+    public long getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    @Nullable public String getMessage() {
+        return message;
+    }
+}
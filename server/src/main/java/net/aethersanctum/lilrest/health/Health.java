@@ -14,19 +14,31 @@
 package net.aethersanctum.lilrest.health;
 
 import javax.annotation.Nonnull;
+import java.util.List;
 
 /**
  */
 final class Health {
+    /** While the server is on its way down, so load balancers stop sending it work. */
+    static final String DRAINING = "DRAINING";
+    /** Until the first round of checks is in, so load balancers don't send it work before then. */
+    static final String STARTING = "STARTING";
 
     @Nonnull
     private final String status;
+    @Nonnull
+    private final List<CheckReport> checks;
 
-    Health(@Nonnull String status) {
+    Health(@Nonnull String status, @Nonnull List<CheckReport> checks) {
         this.status = status;
+        this.checks = checks;
     }
 
     @Nonnull public String getStatus() {
         return status;
     }
+
+    @Nonnull public List<CheckReport> getChecks() {
+        return checks;
+    }
 }
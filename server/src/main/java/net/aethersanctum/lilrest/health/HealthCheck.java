@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.health;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Something /api/health should look at, such as a database or a downstream service.
+ * Bind implementations with
+ * {@code Multibinder.newSetBinder(binder(), HealthCheck.class).addBinding().to(MyCheck.class)}.
+ * Checks are run in the background every {@code basic.server.health.refresh}, never on the
+ * request thread, and a check that throws or takes longer than {@code basic.server.health.timeout}
+ * counts as DOWN.
+ */
+public interface HealthCheck {
+    /**
+     * @return how this check is identified in the health report
+     */
+    @Nonnull
+    String getName();
+
+    @Nonnull
+    Result check() throws Exception;
+
+    enum Status {
+        OK, DEGRADED, DOWN
+    }
+
+    final class Result {
+        private static final Result OK = new Result(Status.OK, null);
+
+        private final Status status;
+        private final String message;
+
+        private Result(@Nonnull final Status status, @Nullable final String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+        @Nonnull
+        public static Result ok() {
+            return OK;
+        }
+
+        @Nonnull
+        public static Result degraded(@Nullable final String message) {
+            return new Result(Status.DEGRADED, message);
+        }
+
+        @Nonnull
+        public static Result down(@Nullable final String message) {
+            return new Result(Status.DOWN, message);
+        }
+
+        @Nonnull
+        public Status getStatus() {
+            return status;
+        }
+
+        @Nullable
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -14,13 +14,23 @@
 package net.aethersanctum.lilrest.health;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.multibindings.Multibinder;
+import net.aethersanctum.lilrest.lifecycle.Managed;
+import net.aethersanctum.lilrest.metrics.RequestMetrics;
+import net.aethersanctum.lilrest.metrics.RequestMetricsFeature;
 
 /**
  */
 public final class HealthModule extends AbstractModule {
     @Override
     protected void configure() {
+        Multibinder.newSetBinder(binder(), HealthCheck.class);
         bind(HealthService.class).asEagerSingleton();
+        Multibinder.newSetBinder(binder(), Managed.class).addBinding().to(HealthService.class);
         bind(HealthResource.class);
+
+        bind(RequestMetrics.class);
+        bind(RequestMetricsFeature.class);
+        bind(MetricsResource.class);
     }
 }
@@ -25,6 +25,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 /**
  */
@@ -44,8 +45,14 @@ public final class HealthResource {
     @GET
     @Path("/health")
     @Nonnull
-    public Health health() {
-        return healthService.getCurrentHealth();
+    public Response health() {
+        final Health health = healthService.getCurrentHealth();
+        final boolean down = HealthCheck.Status.DOWN.name().equals(health.getStatus())
+                || Health.DRAINING.equals(health.getStatus())
+                || Health.STARTING.equals(health.getStatus());
+        return Response.status(down
+                ? Response.Status.SERVICE_UNAVAILABLE
+                : Response.Status.OK).entity(health).build();
     }
 
     @GET
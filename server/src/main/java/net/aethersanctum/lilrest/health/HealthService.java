@@ -13,15 +13,192 @@
  */
 package net.aethersanctum.lilrest.health;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.aethersanctum.lilrest.lifecycle.Lifecycle;
+import net.aethersanctum.lilrest.lifecycle.Managed;
+import net.aethersanctum.lilrest.limit.ConcurrencyLimiter;
+import net.aethersanctum.lilrest.server.JaxRsServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
+ * Runs the bound {@link HealthCheck}s in parallel on a small pool of their own, as soon as
+ * we're created and then every refresh interval, and answers from the last results so health
+ * probes never wait for a check. Nothing holds up startup waiting for the first round, but
+ * until it's in we're STARTING, so nobody is sent work on checks that may yet fail. After that
+ * the worst check decides the status, and we're at least DEGRADED while the concurrency limit
+ * is turning requests away, and DRAINING once the server has started shutting down.
  */
 @Singleton
-class HealthService {
+class HealthService implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(HealthService.class);
+
+    private final ConcurrencyLimiter limiter;
+    private final Lifecycle lifecycle;
+    private final List<HealthCheck> checks;
+    private final long timeoutNanos;
+    private final int threads;
+    /** Checks that are queued or running, so one that hangs isn't piled onto the pool again. */
+    private final Set<HealthCheck> busy = ConcurrentHashMap.newKeySet();
+    private final ExecutorService pool;
+    private final ScheduledExecutorService scheduler;
+    /** Null until the first round is in. */
+    @Nullable
+    private volatile List<CheckReport> reports;
+
+    @Inject
+    HealthService(@Nonnull final ConcurrencyLimiter limiter, @Nonnull final Lifecycle lifecycle,
+                  @Nonnull final Set<HealthCheck> checks, @Nonnull final JaxRsServerConfig config) {
+        this.limiter = limiter;
+        this.lifecycle = lifecycle;
+        this.checks = new ArrayList<>(checks);
+        this.checks.sort((a, b) -> a.getName().compareTo(b.getName()));
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.healthTimeout().getMillis());
+        this.threads = Math.max(1, config.healthThreads());
+        if (checks.isEmpty()) {
+            this.reports = Collections.emptyList();
+            this.pool = null;
+            this.scheduler = null;
+            return;
+        }
+        this.pool = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("lilrest-health-%d").setDaemon(true).build());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("lilrest-health-refresh").setDaemon(true).build());
+        final long interval = config.healthRefresh().getMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
     @Nonnull
     Health getCurrentHealth() {
-        return new Health("OK");
+        final List<CheckReport> current = reports;
+        if (lifecycle.isDraining()) {
+            return new Health(Health.DRAINING, current == null ? Collections.emptyList() : current);
+        }
+        if (current == null) {
+            return new Health(Health.STARTING, Collections.emptyList());
+        }
+        HealthCheck.Status worst = limiter.isShedding() ? HealthCheck.Status.DEGRADED : HealthCheck.Status.OK;
+        for (CheckReport report : current) {
+            if (report.getStatus().compareTo(worst) > 0) {
+                worst = report.getStatus();
+            }
+        }
+        return new Health(worst.name(), current);
+    }
+
+    @Override
+    public void stop() {
+        if (pool != null) {
+            scheduler.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    private void refresh() {
+        try {
+            final Map<HealthCheck, Run> runs = new HashMap<>();
+            for (HealthCheck check : checks) {
+                if (busy.add(check)) {
+                    final Run run = new Run(check);
+                    run.future = pool.submit(run);
+                    runs.put(check, run);
+                }
+            }
+            // each check's timeout runs from when it starts, and a queued one only has to have
+            // started by the time all of them could have had their turn
+            final long queueDeadline = System.nanoTime() + timeoutNanos * ((runs.size() + threads - 1) / threads);
+            final List<CheckReport> results = new ArrayList<>(checks.size());
+            for (HealthCheck check : checks) {
+                final Run run = runs.get(check);
+                results.add(run == null
+                        ? new CheckReport(check.getName(), HealthCheck.Status.DOWN, 0, "still running from an earlier round")
+                        : await(run, queueDeadline));
+            }
+            reports = Collections.unmodifiableList(results);
+        } catch (RuntimeException e) {
+            LOG.warn("health check round failed", e);
+        }
+    }
+
+    private CheckReport await(final Run run, final long queueDeadline) {
+        final String name = run.check.getName();
+        try {
+            while (true) {
+                try {
+                    return run.future.get(Math.max(0, remaining(run, queueDeadline)), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // it may have started while we waited, which gives it a deadline of its own
+                    if (remaining(run, queueDeadline) <= 0) {
+                        break;
+                    }
+                }
+            }
+            run.future.cancel(true);
+            if (!run.started) {
+                busy.remove(run.check);
+                return new CheckReport(name, HealthCheck.Status.DOWN, 0, "never got a thread");
+            }
+            return new CheckReport(name, HealthCheck.Status.DOWN, TimeUnit.NANOSECONDS.toMicros(timeoutNanos),
+                    "timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new CheckReport(name, HealthCheck.Status.DOWN, 0, "interrupted");
+        } catch (ExecutionException e) {
+            return new CheckReport(name, HealthCheck.Status.DOWN, 0, e.getCause().toString());
+        }
+    }
+
+    private long remaining(final Run run, final long queueDeadline) {
+        return (run.started ? run.startNanos + timeoutNanos : queueDeadline) - System.nanoTime();
+    }
+
+    private final class Run implements Callable<CheckReport> {
+        private final HealthCheck check;
+        /** Written before started, which publishes it. */
+        private long startNanos;
+        private volatile boolean started;
+        private Future<CheckReport> future;
+
+        private Run(final HealthCheck check) {
+            this.check = check;
+        }
+
+        @Override
+        public CheckReport call() {
+            final long start = System.nanoTime();
+            startNanos = start;
+            started = true;
+            HealthCheck.Result result;
+            try {
+                result = check.check();
+            } catch (Exception e) {
+                result = HealthCheck.Result.down(e.toString());
+            } finally {
+                busy.remove(check);
+            }
+            return new CheckReport(check.getName(), result.getStatus(),
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), result.getMessage());
+        }
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.health;
+
+import net.aethersanctum.lilrest.accesslog.AccessLog;
+import net.aethersanctum.lilrest.cache.ResponseCaches;
+import net.aethersanctum.lilrest.limit.ConcurrencyLimiter;
+import net.aethersanctum.lilrest.ratelimit.RateLimiter;
+import net.aethersanctum.lilrest.metrics.AccessLogReport;
+import net.aethersanctum.lilrest.metrics.CacheReport;
+import net.aethersanctum.lilrest.metrics.LimiterReport;
+import net.aethersanctum.lilrest.metrics.ListenerReport;
+import net.aethersanctum.lilrest.metrics.MetricsReport;
+import net.aethersanctum.lilrest.metrics.RateLimitReport;
+import net.aethersanctum.lilrest.metrics.RequestMetrics;
+import net.aethersanctum.lilrest.metrics.ThreadPoolReport;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.AbstractConnector;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Request latencies and error counts per endpoint, how busy Jetty and its listeners are, how the
+ * response caches are doing, how much the concurrency and rate limits are turning away and how the
+ * access log is keeping up. Served as JSON, or in the Prometheus text format to clients asking for text/plain.
+ */
+@Singleton
+@Path("/api")
+public final class MetricsResource {
+    /** Preferred less than JSON, so clients accepting anything get JSON. */
+    static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; qs=0.5";
+
+    private final RequestMetrics metrics;
+    private final ResponseCaches caches;
+    private final ConcurrencyLimiter limiter;
+    private final RateLimiter rateLimiter;
+    private final AccessLog accessLog;
+    private final Provider<Server> server;
+
+    @Inject
+    MetricsResource(@Nonnull final RequestMetrics metrics, @Nonnull final ResponseCaches caches,
+                    @Nonnull final ConcurrencyLimiter limiter, @Nonnull final RateLimiter rateLimiter,
+                    @Nonnull final AccessLog accessLog, @Nonnull final Provider<Server> server) {
+        this.metrics = metrics;
+        this.caches = caches;
+        this.limiter = limiter;
+        this.rateLimiter = rateLimiter;
+        this.accessLog = accessLog;
+        this.server = server;
+    }
+
+    @GET
+    @Path("/metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Nonnull
+    public MetricsReport metrics() {
+        return report();
+    }
+
+    @GET
+    @Path("/metrics")
+    @Produces(PROMETHEUS_TEXT)
+    @Nonnull
+    public String prometheus() {
+        return report().toPrometheus();
+    }
+
+    private MetricsReport report() {
+        final ThreadPoolReport threadPool = server.get().getThreadPool() instanceof QueuedThreadPool
+                ? new ThreadPoolReport((QueuedThreadPool) server.get().getThreadPool())
+                : null;
+        final List<ListenerReport> listenerReports = new ArrayList<>();
+        for (Connector connector : server.get().getConnectors()) {
+            final AbstractConnector listener = (AbstractConnector) connector;
+            final ConnectionStatistics stats = listener.getBean(ConnectionStatistics.class);
+            if (stats != null) {
+                final Executor executor = listener.getExecutor();
+                listenerReports.add(new ListenerReport(listener.getName(), stats,
+                        executor != server.get().getThreadPool() && executor instanceof QueuedThreadPool
+                                ? (QueuedThreadPool) executor
+                                : null));
+            }
+        }
+        final Map<String, Long> sizes = caches.sizes();
+        final List<CacheReport> cacheReports = new ArrayList<>();
+        caches.stats().forEach((name, stats) -> cacheReports.add(new CacheReport(name,
+                stats.hitCount(), stats.missCount(), stats.evictionCount(), sizes.getOrDefault(name, 0L))));
+        final LimiterReport limiterReport = limiter.isEnabled()
+                ? new LimiterReport(limiter.limit(), limiter.inflight(), limiter.shed(), limiter.isShedding())
+                : null;
+        final RateLimitReport rateLimitReport = rateLimiter.isEnabled()
+                ? new RateLimitReport(rateLimiter.limited(), rateLimiter.clients())
+                : null;
+        final AccessLogReport accessLogReport = accessLog.isEnabled()
+                ? new AccessLogReport(accessLog.written(), accessLog.dropped())
+                : null;
+        return new MetricsReport(metrics, threadPool, listenerReports, cacheReports, limiterReport, rateLimitReport, accessLogReport);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.lifecycle;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Where the server is in its life, and the {@link Managed} services to start and stop along the way.
+ *
+ * <p>Once draining, /api/health answers 503 so load balancers stop sending new work, and responses
+ * ask for their connection to be closed so keep-alive clients go elsewhere too.</p>
+ */
+@Singleton
+public final class Lifecycle {
+    private static final Logger LOG = LoggerFactory.getLogger(Lifecycle.class);
+
+    public enum State {
+        STARTING, RUNNING, DRAINING, STOPPED
+    }
+
+    /** A provider, since services that are managed may also want to know whether we're draining. */
+    private final Provider<Set<Managed>> services;
+    private final AtomicReference<State> state = new AtomicReference<>(State.STARTING);
+    private final List<Managed> started = new ArrayList<>();
+
+    @Inject
+    Lifecycle(@Nonnull final Provider<Set<Managed>> services) {
+        this.services = services;
+    }
+
+    @Nonnull
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isDraining() {
+        return state.get() == State.DRAINING;
+    }
+
+    /**
+     * Starts each service in turn. If one fails, those already started are stopped again.
+     */
+    public synchronized void start() throws Exception {
+        for (Managed service : services.get()) {
+            try {
+                service.start();
+            } catch (Exception e) {
+                stopServices();
+                throw e;
+            }
+            started.add(service);
+        }
+        state.compareAndSet(State.STARTING, State.RUNNING);
+    }
+
+    /**
+     * @return whether this call started the draining, rather than it having already begun
+     */
+    public boolean drain() {
+        return state.compareAndSet(State.RUNNING, State.DRAINING)
+                || state.compareAndSet(State.STARTING, State.DRAINING);
+    }
+
+    /**
+     * Stops every started service, most recently started first. A service that fails to stop is
+     * logged and the rest are stopped anyway.
+     */
+    public synchronized void stop() {
+        state.set(State.STOPPED);
+        stopServices();
+    }
+
+    private void stopServices() {
+        for (Managed service : Lists.reverse(started)) {
+            try {
+                service.stop();
+            } catch (Exception e) {
+                LOG.warn("couldn't stop {}", service, e);
+            }
+        }
+        started.clear();
+    }
+}
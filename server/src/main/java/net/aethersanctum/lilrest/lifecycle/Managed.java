@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.lifecycle;
+
+/**
+ * Something with a life beyond a single request, such as a pool or a client connection, that should
+ * be told when the server starts and stops. Bind each one with a Multibinder:
+ *
+ * <pre>
+ *     Multibinder.newSetBinder(binder(), Managed.class).addBinding().to(QueueConsumer.class);
+ * </pre>
+ *
+ * They're started in the order they were bound, before Jetty starts taking requests, and stopped in
+ * the reverse order once the last request has finished.
+ */
+public interface Managed {
+    default void start() throws Exception {
+    }
+
+    void stop() throws Exception;
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.limit;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admits requests while fewer than the current {@link GradientLimit} are in flight and
+ * turns the rest away. Round trips are gathered without locking and fed to the limit once
+ * per window, by whichever request happens to finish first after the window closes.
+ * Requests are counted even while the limit is turned off, so it can be turned on at any time.
+ */
+public final class ConcurrencyLimiter {
+    /** Fewer samples than this in a window carry over to the next one. */
+    private static final int MIN_SAMPLES = 10;
+    private static final long SHEDDING_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final GradientLimit limit;
+    private final long windowNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder rttSum = new LongAdder();
+    private final LongAdder rttCount = new LongAdder();
+    private final LongAccumulator peakInflight = new LongAccumulator(Math::max, 0);
+    private final AtomicLong windowEnd;
+    private volatile boolean enabled;
+    private volatile long lastShed;
+
+    public ConcurrencyLimiter(final boolean enabled, @Nonnull final GradientLimit limit, final long windowNanos) {
+        this.enabled = enabled;
+        this.limit = limit;
+        this.windowNanos = windowNanos;
+        this.windowEnd = new AtomicLong(System.nanoTime() + windowNanos);
+    }
+
+    /**
+     * @return whether the request may go ahead, in which case {@link #release} must follow
+     */
+    public boolean tryAcquire() {
+        final int now = inflight.incrementAndGet();
+        if (!enabled) {
+            return true;
+        }
+        if (now > limit.limit()) {
+            inflight.decrementAndGet();
+            lastShed = System.nanoTime();
+            shed.increment();
+            return false;
+        }
+        peakInflight.accumulate(now);
+        return true;
+    }
+
+    /**
+     * @param startNanos when the request was admitted
+     * @param sample whether its round trip says anything about how loaded we are
+     */
+    public void release(final long startNanos, final boolean sample) {
+        inflight.decrementAndGet();
+        if (sample && enabled) {
+            final long now = System.nanoTime();
+            rttSum.add(now - startNanos);
+            rttCount.increment();
+            maybeUpdate(now);
+        }
+    }
+
+    private void maybeUpdate(final long now) {
+        final long end = windowEnd.get();
+        if (now - end < 0 || !windowEnd.compareAndSet(end, now + windowNanos)) {
+            return;
+        }
+        final long count = rttCount.sumThenReset();
+        final long sum = rttSum.sumThenReset();
+        final long peak = peakInflight.getThenReset();
+        if (count < MIN_SAMPLES) {
+            rttCount.add(count);
+            rttSum.add(sum);
+            peakInflight.accumulate(peak);
+            return;
+        }
+        limit.update((double) sum / count, (int) peak);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Nonnull
+    public GradientLimit gradient() {
+        return limit;
+    }
+
+    public int limit() {
+        return limit.limit();
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    /**
+     * @return how many requests have been turned away so far
+     */
+    public long shed() {
+        return shed.sum();
+    }
+
+    /**
+     * @return whether any request was turned away in the last second
+     */
+    public boolean isShedding() {
+        return enabled && shed.sum() > 0 && System.nanoTime() - lastShed < SHEDDING_NANOS;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.limit;
+
+/**
+ * Works out how many requests may be in flight from how latency is trending, after
+ * Netflix's gradient limiter. Each update compares the average round trip of the last
+ * window with a long-term average: while the two are within tolerance the limit grows
+ * by about its square root, and as recent latency climbs past that the limit is cut in
+ * proportion, by at most half. Updates are smoothed so a single slow window can't
+ * collapse the limit.
+ */
+public final class GradientLimit {
+    private static final double SMOOTHING = 0.2;
+    /** How many updates the long-term average roughly spans. */
+    private static final int LONG_WINDOW = 100;
+
+    private int min;
+    private int max;
+    private double tolerance;
+    private double estimate;
+    private double longRtt;
+    private volatile int limit;
+
+    /**
+     * @param tolerance how many times the long-term round trip recent ones may take
+     *                  before the limit starts coming down
+     */
+    public GradientLimit(final int initial, final int min, final int max, final double tolerance) {
+        this.estimate = initial;
+        setBounds(min, max, tolerance);
+    }
+
+    /**
+     * Changes the bounds and tolerance from now on, pulling the limit inside the new bounds.
+     */
+    public synchronized void setBounds(final int min, final int max, final double tolerance) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("limit bounds must satisfy 1 <= min <= max, got " + min + ".." + max);
+        }
+        if (tolerance < 1.0) {
+            throw new IllegalArgumentException("tolerance must be at least 1, got " + tolerance);
+        }
+        this.min = min;
+        this.max = max;
+        this.tolerance = tolerance;
+        this.estimate = Math.max(min, Math.min(max, estimate));
+        this.limit = (int) estimate;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * @param rtt the average round trip of requests finished in the last window, in any unit
+     * @param inflight the most requests that were in flight at once during that window
+     * @return the new limit
+     */
+    public synchronized int update(final double rtt, final int inflight) {
+        if (longRtt == 0) {
+            longRtt = rtt;
+        } else {
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+        }
+        // once things are much faster than they used to be, stop the old baseline holding the limit up
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        // nobody was pushing against the limit, so these samples say nothing about it
+        if (inflight < estimate / 2) {
+            return limit;
+        }
+        final double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+        final double next = estimate * gradient + Math.sqrt(estimate);
+        estimate = Math.max(min, Math.min(max, estimate * (1 - SMOOTHING) + next * SMOOTHING));
+        limit = (int) estimate;
+        return limit;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and error counts for one resource method. Recording is lock free and
+ * doesn't allocate, so it's cheap enough to do for every request.
+ */
+public final class EndpointMetrics {
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final String httpMethod;
+    private final String path;
+    private final ConcurrentHistogram latencyMicros = new ConcurrentHistogram(MAX_MICROS, 2);
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+
+    EndpointMetrics(@Nonnull final String httpMethod, @Nonnull final String path) {
+        this.httpMethod = httpMethod;
+        this.path = path;
+    }
+
+    void record(final long elapsedNanos, final int status) {
+        latencyMicros.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), MAX_MICROS));
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+    }
+
+    @Nonnull
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    @Nonnull
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return a consistent copy of the latencies recorded so far, in microseconds
+     */
+    @Nonnull
+    public Histogram latencyMicros() {
+        return latencyMicros.copy();
+    }
+
+    public long clientErrors() {
+        return clientErrors.sum();
+    }
+
+    public long serverErrors() {
+        return serverErrors.sum();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import javax.annotation.Nonnull;
+
+/**
+ * What {@link EndpointMetrics} have recorded so far. Latencies are in microseconds.
+ */
+public final class EndpointReport {
+    private final String method;
+    private final String path;
+    private final long count;
+    private final long clientErrors;
+    private final long serverErrors;
+    private final double meanMicros;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    EndpointReport(@Nonnull final EndpointMetrics endpoint) {
+        final Histogram latency = endpoint.latencyMicros();
+        this.method = endpoint.getHttpMethod();
+        this.path = endpoint.getPath();
+        this.count = latency.getTotalCount();
+        this.clientErrors = endpoint.clientErrors();
+        this.serverErrors = endpoint.serverErrors();
+        this.meanMicros = count == 0 ? 0 : latency.getMean();
+        this.p50Micros = latency.getValueAtPercentile(50);
+        this.p90Micros = latency.getValueAtPercentile(90);
+        this.p99Micros = latency.getValueAtPercentile(99);
+        this.p999Micros = latency.getValueAtPercentile(99.9);
+        this.maxMicros = latency.getMaxValue();
+    }
+
+    @Nonnull
+    public String getMethod() {
+        return method;
+    }
+
+    @Nonnull
+    public String getPath() {
+        return path;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getClientErrors() {
+        return clientErrors;
+    }
+
+    public long getServerErrors() {
+        return serverErrors;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+/**
+ * How much concurrency the admission limit allows right now and how much it has turned away.
+ */
+public final class LimiterReport {
+    private final int limit;
+    private final int inflight;
+    private final long shed;
+    private final boolean shedding;
+
+    public LimiterReport(final int limit, final int inflight, final long shed, final boolean shedding) {
+        this.limit = limit;
+        this.inflight = inflight;
+        this.shed = shed;
+        this.shedding = shedding;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight;
+    }
+
+    public long getShed() {
+        return shed;
+    }
+
+    public boolean isShedding() {
+        return shedding;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Connections on one listener: how many are open and have been, and what has gone over the ones
+ * that have closed. Bytes and requests are only counted once a connection closes.
+ */
+public final class ListenerReport {
+    private final String name;
+    private final long connections;
+    private final long connectionsMax;
+    private final long connectionsTotal;
+    private final long receivedBytes;
+    private final long sentBytes;
+    private final long requests;
+    private final ThreadPoolReport threadPool;
+
+    /**
+     * @param threadPool the listener's own threads, or null if it shares the server's
+     */
+    public ListenerReport(@Nonnull final String name, @Nonnull final ConnectionStatistics stats,
+                          @Nullable final QueuedThreadPool threadPool) {
+        this.name = name;
+        this.connections = stats.getConnections();
+        this.connectionsMax = stats.getConnectionsMax();
+        this.connectionsTotal = stats.getConnectionsTotal();
+        this.receivedBytes = stats.getReceivedBytes();
+        this.sentBytes = stats.getSentBytes();
+        this.requests = stats.getReceivedMessages();
+        this.threadPool = threadPool == null ? null : new ThreadPoolReport(threadPool);
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    public long getConnections() {
+        return connections;
+    }
+
+    public long getConnectionsMax() {
+        return connectionsMax;
+    }
+
+    public long getConnectionsTotal() {
+        return connectionsTotal;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the listener's own thread pool, or null if it shares the server's
+     */
+    @Nullable
+    public ThreadPoolReport getThreadPool() {
+        return threadPool;
+    }
+}
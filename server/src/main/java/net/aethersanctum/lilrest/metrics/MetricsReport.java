@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Everything served from /api/metrics.
+ */
+public final class MetricsReport {
+    private final List<EndpointReport> endpoints = new ArrayList<>();
+    private final ThreadPoolReport threadPool;
+    private final List<ListenerReport> listeners;
+    private final List<CacheReport> caches;
+    private final LimiterReport limiter;
+    private final RateLimitReport rateLimit;
+    private final AccessLogReport accessLog;
+
+    public MetricsReport(@Nonnull final RequestMetrics metrics, @Nullable final ThreadPoolReport threadPool,
+                         @Nonnull final List<ListenerReport> listeners, @Nonnull final List<CacheReport> caches, @Nullable final LimiterReport limiter,
+                         @Nullable final RateLimitReport rateLimit, @Nullable final AccessLogReport accessLog) {
+        metrics.endpoints().forEach(endpoint -> endpoints.add(new EndpointReport(endpoint)));
+        endpoints.sort(Comparator.comparing(EndpointReport::getPath).thenComparing(EndpointReport::getMethod));
+        endpoints.add(new EndpointReport(metrics.unmatched()));
+        this.threadPool = threadPool;
+        this.listeners = listeners;
+        this.caches = caches;
+        this.limiter = limiter;
+        this.rateLimit = rateLimit;
+        this.accessLog = accessLog;
+    }
+
+    @Nonnull
+    public List<EndpointReport> getEndpoints() {
+        return endpoints;
+    }
+
+    @Nullable
+    public ThreadPoolReport getThreadPool() {
+        return threadPool;
+    }
+
+    @Nonnull
+    public List<ListenerReport> getListeners() {
+        return listeners;
+    }
+
+    @Nonnull
+    public List<CacheReport> getCaches() {
+        return caches;
+    }
+
+    /**
+     * @return the admission limit, or null when it's turned off
+     */
+    @Nullable
+    public LimiterReport getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * @return the per-client rate limits, or null when they're turned off
+     */
+    @Nullable
+    public RateLimitReport getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * @return access log throughput, or null when there's no access log
+     */
+    @Nullable
+    public AccessLogReport getAccessLog() {
+        return accessLog;
+    }
+
+    /**
+     * @return the report in the Prometheus text exposition format
+     */
+    @Nonnull
+    public String toPrometheus() {
+        final StringBuilder out = new StringBuilder(256 * (endpoints.size() + 1));
+        out.append("# HELP lilrest_request_duration_seconds Time taken to handle requests, by endpoint.\n")
+                .append("# TYPE lilrest_request_duration_seconds summary\n");
+        for (EndpointReport endpoint : endpoints) {
+            final String labels = "method=\"" + escape(endpoint.getMethod()) + "\",path=\"" + escape(endpoint.getPath()) + '"';
+            quantile(out, labels, "0.5", endpoint.getP50Micros());
+            quantile(out, labels, "0.9", endpoint.getP90Micros());
+            quantile(out, labels, "0.99", endpoint.getP99Micros());
+            quantile(out, labels, "0.999", endpoint.getP999Micros());
+            out.append("lilrest_request_duration_seconds_sum{").append(labels).append("} ")
+                    .append(endpoint.getMeanMicros() * endpoint.getCount() / 1e6).append('\n');
+            out.append("lilrest_request_duration_seconds_count{").append(labels).append("} ")
+                    .append(endpoint.getCount()).append('\n');
+        }
+        out.append("# HELP lilrest_request_errors_total Requests answered with an error status, by endpoint.\n")
+                .append("# TYPE lilrest_request_errors_total counter\n");
+        for (EndpointReport endpoint : endpoints) {
+            final String labels = "method=\"" + escape(endpoint.getMethod()) + "\",path=\"" + escape(endpoint.getPath()) + '"';
+            out.append("lilrest_request_errors_total{").append(labels).append(",class=\"4xx\"} ")
+                    .append(endpoint.getClientErrors()).append('\n');
+            out.append("lilrest_request_errors_total{").append(labels).append(",class=\"5xx\"} ")
+                    .append(endpoint.getServerErrors()).append('\n');
+        }
+        if (threadPool != null) {
+            gauge(out, "lilrest_jetty_threads", "Threads in the Jetty pool.", threadPool.getThreads());
+            gauge(out, "lilrest_jetty_threads_idle", "Idle threads in the Jetty pool.", threadPool.getIdleThreads());
+            gauge(out, "lilrest_jetty_threads_busy", "Busy threads in the Jetty pool.", threadPool.getBusyThreads());
+            gauge(out, "lilrest_jetty_threads_max", "Most threads the Jetty pool may have.", threadPool.getMaxThreads());
+            gauge(out, "lilrest_jetty_thread_utilization", "Busy threads over max threads.", threadPool.getUtilization());
+            gauge(out, "lilrest_jetty_queue_size", "Jobs waiting for a Jetty thread.", threadPool.getQueueSize());
+        }
+        if (!listeners.isEmpty()) {
+            listenerSeries(out, "lilrest_listener_connections", "gauge", "Connections open, by listener.",
+                    ListenerReport::getConnections);
+            listenerSeries(out, "lilrest_listener_connections_total", "counter", "Connections accepted, by listener.",
+                    ListenerReport::getConnectionsTotal);
+            listenerSeries(out, "lilrest_listener_received_bytes_total", "counter",
+                    "Bytes received on closed connections, by listener.", ListenerReport::getReceivedBytes);
+            listenerSeries(out, "lilrest_listener_sent_bytes_total", "counter",
+                    "Bytes sent on closed connections, by listener.", ListenerReport::getSentBytes);
+            listenerSeries(out, "lilrest_listener_requests_total", "counter",
+                    "Requests received on closed connections, by listener.", ListenerReport::getRequests);
+        }
+        if (!caches.isEmpty()) {
+            counter(out, "lilrest_response_cache_hits_total", "Responses served from cache.", CacheReport::getHits);
+            counter(out, "lilrest_response_cache_misses_total", "Responses not found in cache.", CacheReport::getMisses);
+            counter(out, "lilrest_response_cache_evictions_total", "Responses evicted from cache.", CacheReport::getEvictions);
+        }
+        if (limiter != null) {
+            gauge(out, "lilrest_concurrency_limit", "Requests allowed in flight at once.", limiter.getLimit());
+            gauge(out, "lilrest_concurrency_inflight", "Requests in flight now.", limiter.getInflight());
+            out.append("# HELP lilrest_requests_shed_total Requests turned away over the concurrency limit.\n")
+                    .append("# TYPE lilrest_requests_shed_total counter\n")
+                    .append("lilrest_requests_shed_total ").append(limiter.getShed()).append('\n');
+        }
+        if (rateLimit != null) {
+            out.append("# HELP lilrest_requests_rate_limited_total Requests turned away by per-client rate limits.\n")
+                    .append("# TYPE lilrest_requests_rate_limited_total counter\n")
+                    .append("lilrest_requests_rate_limited_total ").append(rateLimit.getLimited()).append('\n');
+            gauge(out, "lilrest_rate_limit_clients", "Client and route pairs with a token bucket.", rateLimit.getClients());
+        }
+        if (accessLog != null) {
+            out.append("# HELP lilrest_access_log_written_total Access log records written.\n")
+                    .append("# TYPE lilrest_access_log_written_total counter\n")
+                    .append("lilrest_access_log_written_total ").append(accessLog.getWritten()).append('\n');
+            out.append("# HELP lilrest_access_log_dropped_total Access log records dropped, the writer being behind or failing.\n")
+                    .append("# TYPE lilrest_access_log_dropped_total counter\n")
+                    .append("lilrest_access_log_dropped_total ").append(accessLog.getDropped()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private void counter(final StringBuilder out, final String name, final String help,
+                         final ToLongFunction<CacheReport> value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" counter\n");
+        for (CacheReport cache : caches) {
+            out.append(name).append("{cache=\"").append(escape(cache.getName())).append("\"} ")
+                    .append(value.applyAsLong(cache)).append('\n');
+        }
+    }
+
+    private void listenerSeries(final StringBuilder out, final String name, final String type, final String help,
+                                final ToLongFunction<ListenerReport> value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (ListenerReport listener : listeners) {
+            out.append(name).append("{listener=\"").append(escape(listener.getName())).append("\"} ")
+                    .append(value.applyAsLong(listener)).append('\n');
+        }
+    }
+
+    private static void quantile(final StringBuilder out, final String labels, final String quantile, final long micros) {
+        out.append("lilrest_request_duration_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                .append(micros / 1e6).append('\n');
+    }
+
+    private static void gauge(final StringBuilder out, final String name, final String help, final Number value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" gauge\n")
+                .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String escape(final String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
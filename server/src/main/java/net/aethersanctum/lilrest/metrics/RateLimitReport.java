@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+/**
+ * How many requests the per-client rate limits have turned away, and how many clients they're tracking.
+ */
+public final class RateLimitReport {
+    private final long limited;
+    private final long clients;
+
+    public RateLimitReport(final long limited, final long clients) {
+        this.limited = limited;
+        this.clients = clients;
+    }
+
+    public long getLimited() {
+        return limited;
+    }
+
+    public long getClients() {
+        return clients;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * All the {@link EndpointMetrics}, one per resource method, created as RESTEasy
+ * discovers the methods. Requests that didn't reach any resource method are
+ * counted against {@link #unmatched()}.
+ */
+@Singleton
+public final class RequestMetrics {
+    /**
+     * Which endpoint the current thread's request was routed to. Set by the JAX-RS
+     * side once it has matched a method, read by {@link RequestMetricsFilter}.
+     */
+    private static final ThreadLocal<EndpointMetrics> ROUTED = new ThreadLocal<>();
+
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final EndpointMetrics unmatched = new EndpointMetrics("*", "(unmatched)");
+
+    @Nonnull
+    EndpointMetrics endpoint(@Nonnull final String httpMethod, @Nonnull final String path) {
+        return endpoints.computeIfAbsent(httpMethod + ' ' + path, name -> new EndpointMetrics(httpMethod, path));
+    }
+
+    @Nonnull
+    public Collection<EndpointMetrics> endpoints() {
+        return Collections.unmodifiableCollection(new ArrayList<>(endpoints.values()));
+    }
+
+    @Nonnull
+    public EndpointMetrics unmatched() {
+        return unmatched;
+    }
+
+    /**
+     * Starts off a request dispatched in-process on this thread, skipping {@link RequestMetricsFilter},
+     * so that it's recorded against the endpoint it's routed to by {@link #endInProcess}.
+     */
+    public static void beginInProcess() {
+        routedTo(null);
+    }
+
+    public void endInProcess(final long nanos, final int status) {
+        takeRouted().record(nanos, status);
+    }
+
+    static void routedTo(@Nullable final EndpointMetrics endpoint) {
+        ROUTED.set(endpoint);
+    }
+
+    @Nonnull
+    EndpointMetrics takeRouted() {
+        final EndpointMetrics endpoint = ROUTED.get();
+        if (endpoint == null) {
+            return unmatched;
+        }
+        ROUTED.set(null);
+        return endpoint;
+    }
+}
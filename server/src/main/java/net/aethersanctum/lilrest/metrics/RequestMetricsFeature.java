@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+import javax.inject.Inject;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * Creates the {@link EndpointMetrics} for each resource method up front, and gives
+ * each method a filter that tells {@link RequestMetricsFilter} which one to record
+ * against.
+ */
+@Provider
+public final class RequestMetricsFeature implements DynamicFeature {
+    private final RequestMetrics metrics;
+
+    @Inject
+    RequestMetricsFeature(final RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void configure(final ResourceInfo resourceInfo, final FeatureContext context) {
+        final Method method = resourceInfo.getResourceMethod();
+        final String httpMethod = httpMethod(method);
+        if (httpMethod == null) {
+            // sub-resource locator, the methods of whatever it returns are counted instead
+            return;
+        }
+        final EndpointMetrics endpoint = metrics.endpoint(httpMethod,
+                path(resourceInfo.getResourceClass().getAnnotation(Path.class), method.getAnnotation(Path.class)));
+        // ahead of any request filter that might abortWith(), such as a cache hit or a coalesced
+        // waiter, or the request would be counted as unmatched
+        context.register(new Routing(endpoint), Priorities.AUTHENTICATION - 1);
+    }
+
+    private static String httpMethod(final Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            final HttpMethod httpMethod = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if (httpMethod != null) {
+                return httpMethod.value();
+            }
+        }
+        return null;
+    }
+
+    private static String path(final Path... paths) {
+        final StringBuilder result = new StringBuilder();
+        for (Path path : paths) {
+            if (path == null) {
+                continue;
+            }
+            for (String segment : path.value().split("/")) {
+                if (!segment.isEmpty()) {
+                    result.append('/').append(segment);
+                }
+            }
+        }
+        return result.length() == 0 ? "/" : result.toString();
+    }
+
+    private static final class Routing implements ContainerRequestFilter {
+        private final EndpointMetrics endpoint;
+
+        Routing(final EndpointMetrics endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void filter(final ContainerRequestContext request) {
+            RequestMetrics.routedTo(endpoint);
+        }
+    }
+}
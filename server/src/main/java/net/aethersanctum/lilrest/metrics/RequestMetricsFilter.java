@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Times every request and records it against the endpoint that handled it. Requests
+ * suspended by async resources are recorded when they complete.
+ */
+public final class RequestMetricsFilter implements Filter {
+    private final RequestMetrics metrics;
+
+    public RequestMetricsFilter(final RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void init(final FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+            throws IOException, ServletException {
+        final long start = System.nanoTime();
+        RequestMetrics.routedTo(null);
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            final EndpointMetrics endpoint = metrics.takeRouted();
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Completion(endpoint, start));
+            } else {
+                endpoint.record(System.nanoTime() - start,
+                        failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : status(response));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private static int status(final ServletResponse response) {
+        return response instanceof HttpServletResponse ? ((HttpServletResponse) response).getStatus() : 0;
+    }
+
+    private static final class Completion implements AsyncListener {
+        private final EndpointMetrics endpoint;
+        private final long start;
+
+        Completion(final EndpointMetrics endpoint, final long start) {
+            this.endpoint = endpoint;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event) {
+            endpoint.record(System.nanoTime() - start, status(event.getSuppliedResponse()));
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) {
+        }
+    }
+}
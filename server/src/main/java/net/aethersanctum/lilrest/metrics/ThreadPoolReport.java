@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.metrics;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import javax.annotation.Nonnull;
+
+/**
+ * How busy Jetty's thread pool is, and how much work is queued up waiting for it.
+ */
+public final class ThreadPoolReport {
+    private final int threads;
+    private final int idleThreads;
+    private final int busyThreads;
+    private final int maxThreads;
+    private final int queueSize;
+
+    public ThreadPoolReport(@Nonnull final QueuedThreadPool pool) {
+        this.threads = pool.getThreads();
+        this.idleThreads = pool.getIdleThreads();
+        this.busyThreads = pool.getBusyThreads();
+        this.maxThreads = pool.getMaxThreads();
+        this.queueSize = pool.getQueueSize();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getIdleThreads() {
+        return idleThreads;
+    }
+
+    public int getBusyThreads() {
+        return busyThreads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * @return busy threads as a fraction of the most threads the pool may have
+     */
+    public double getUtilization() {
+        return maxThreads == 0 ? 0 : (double) busyThreads / maxThreads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.ratelimit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * How fast each client may make requests to paths starting with a prefix, written
+ * {@code prefix=rate} or {@code prefix=rate/burst} with the rate in requests per second.
+ * A rate of zero means no limit. Without a burst, a client can make a second's worth at once.
+ */
+public final class RateLimitRule {
+    private final String prefix;
+    private final double rate;
+    private final int burst;
+
+    public RateLimitRule(@Nonnull final String prefix, final double rate, final int burst) {
+        if (rate < 0 || (rate > 0 && burst < 1)) {
+            throw new IllegalArgumentException("bad rate limit for " + prefix + ": " + rate + "/" + burst);
+        }
+        this.prefix = prefix;
+        this.rate = rate;
+        this.burst = burst;
+    }
+
+    @Nonnull
+    public static RateLimitRule parse(@Nonnull final String rule) {
+        final int equals = rule.lastIndexOf('=');
+        if (equals < 0) {
+            throw new IllegalArgumentException("rate limit rule should look like /path=rate/burst, not " + rule);
+        }
+        final String prefix = rule.substring(0, equals).trim();
+        final String limit = rule.substring(equals + 1).trim();
+        final int slash = limit.indexOf('/');
+        try {
+            final double rate = Double.parseDouble(slash < 0 ? limit : limit.substring(0, slash));
+            final int burst = slash < 0 ? (int) Math.max(1, Math.ceil(rate)) : Integer.parseInt(limit.substring(slash + 1));
+            return new RateLimitRule(prefix, rate, burst);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("rate limit rule should look like /path=rate/burst, not " + rule, e);
+        }
+    }
+
+    @Nonnull
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public boolean isUnlimited() {
+        return rate == 0;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.ratelimit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gives each client its own token bucket for each rule, picking the rule with the
+ * longest prefix of the request path. The rules can be replaced while running.
+ */
+public final class RateLimiter {
+    private final TokenBuckets buckets;
+    private final LongAdder limited = new LongAdder();
+    private volatile Rules rules;
+
+    public RateLimiter(final boolean enabled, @Nonnull final Collection<RateLimitRule> rules, final int maxClients) {
+        this.buckets = new TokenBuckets(maxClients);
+        setRules(enabled, rules);
+    }
+
+    /**
+     * @param path decoded and with runs of slashes collapsed, as the request will be routed
+     * @return the rule for the path, or null if requests to it aren't limited
+     */
+    @Nullable
+    public RateLimitRule ruleFor(@Nonnull final String path) {
+        final Rules current = rules;
+        if (!current.enabled) {
+            return null;
+        }
+        for (RateLimitRule rule : current.rules) {
+            if (path.startsWith(rule.getPrefix())) {
+                return rule.isUnlimited() ? null : rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return as for {@link TokenBuckets#take}
+     */
+    public long take(@Nonnull final RateLimitRule rule, @Nonnull final String client) {
+        final long result = buckets.take(rule.getPrefix() + ' ' + client, rule.getRate(), rule.getBurst(),
+                System.nanoTime());
+        if (result < 0) {
+            limited.increment();
+        }
+        return result;
+    }
+
+    /**
+     * @return whole seconds to put in Retry-After for a negative result of {@link #take}
+     */
+    public static long retryAfterSeconds(final long remaining) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(-remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    public void setRules(final boolean enabled, @Nonnull final Collection<RateLimitRule> rules) {
+        final List<RateLimitRule> sorted = new ArrayList<>(rules);
+        sorted.sort(Comparator.comparingInt((RateLimitRule r) -> r.getPrefix().length()).reversed());
+        this.rules = new Rules(enabled, sorted);
+    }
+
+    public boolean isEnabled() {
+        return rules.enabled;
+    }
+
+    /**
+     * @return how many requests have been turned away so far
+     */
+    public long limited() {
+        return limited.sum();
+    }
+
+    /**
+     * @return how many client and rule pairs have buckets right now
+     */
+    public long clients() {
+        return buckets.size();
+    }
+
+    private static final class Rules {
+        private final boolean enabled;
+        private final List<RateLimitRule> rules;
+
+        private Rules(final boolean enabled, final List<RateLimitRule> rules) {
+            this.enabled = enabled;
+            this.rules = rules;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.ratelimit;
+
+import javax.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket per key, kept as a single long each: the time at which the bucket will
+ * be full again (the generic cell rate algorithm). Taking a token is a compare-and-set
+ * on that long, so there are no locks once a key is known.
+ *
+ * Keys are spread over stripes, each allowed its share of the maximum. A stripe that
+ * outgrows its share first forgets buckets that have filled up again, which are
+ * indistinguishable from new ones, and then arbitrary others if it still has to, down
+ * to seven eighths of its share so that it doesn't have to do it again straight away.
+ */
+public final class TokenBuckets {
+    private static final int STRIPES = 64;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final int stripeCapacity;
+
+    public TokenBuckets(final int maxKeys) {
+        this.stripeCapacity = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes a token from the key's bucket if it has one.
+     *
+     * @param rate tokens added per second
+     * @param burst how many tokens the bucket holds
+     * @return the tokens left if one was taken, or if none could be, minus how many
+     * nanoseconds until one can
+     */
+    public long take(@Nonnull final String key, final double rate, final int burst, final long now) {
+        final long interval = Math.max(1, (long) (NANOS_PER_SECOND / rate));
+        final long tolerance = interval * burst;
+        final Stripe stripe = stripes[spread(key.hashCode()) & (STRIPES - 1)];
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            final AtomicLong fresh = new AtomicLong(now + interval);
+            bucket = stripe.buckets.putIfAbsent(key, fresh);
+            if (bucket == null) {
+                if (stripe.buckets.size() > stripeCapacity) {
+                    stripe.shrink(stripeCapacity, now);
+                }
+                return burst - 1;
+            }
+        }
+        while (true) {
+            final long full = bucket.get();
+            final long next = Math.max(full, now) + interval;
+            final long ahead = next - now;
+            if (ahead > tolerance) {
+                return -(ahead - tolerance);
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return (tolerance - ahead) / interval;
+            }
+        }
+    }
+
+    /**
+     * @return how many keys have buckets right now
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16) ^ (hash >>> 8);
+    }
+
+    private static final class Stripe {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicBoolean shrinking = new AtomicBoolean();
+
+        private void shrink(final int capacity, final long now) {
+            if (!shrinking.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                buckets.entrySet().removeIf(e -> e.getValue().get() - now <= 0);
+                final int target = capacity - capacity / 8;
+                final Iterator<Map.Entry<String, AtomicLong>> excess = buckets.entrySet().iterator();
+                while (buckets.size() > target && excess.hasNext()) {
+                    excess.next();
+                    excess.remove();
+                }
+            } finally {
+                shrinking.set(false);
+            }
+        }
+    }
+}
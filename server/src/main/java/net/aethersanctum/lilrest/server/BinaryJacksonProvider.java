@@ -0,0 +1,182 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Singleton;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Set;
+
+/**
+ * Reads and writes Smile, CBOR and MessagePack: the JSON data model in binary, for callers
+ * that would rather not pay for text. Each format has its own mapper, built from the same
+ * configuration as the server's JSON one (see {@link JaxRsServerModule#customMapper}), so
+ * the same classes work in all of them. A resource opts in by listing
+ * these types in its {@code @Produces} and {@code @Consumes}, after JSON, which stays the
+ * default; RESTEasy then picks the format from Accept and Content-Type.
+ */
+@Provider
+@Singleton
+@Consumes({BinaryJacksonProvider.APPLICATION_SMILE, BinaryJacksonProvider.APPLICATION_CBOR,
+        BinaryJacksonProvider.APPLICATION_MSGPACK})
+@Produces({BinaryJacksonProvider.APPLICATION_SMILE, BinaryJacksonProvider.APPLICATION_CBOR,
+        BinaryJacksonProvider.APPLICATION_MSGPACK})
+public final class BinaryJacksonProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE_TYPE = MediaType.valueOf(APPLICATION_SMILE);
+    public static final String APPLICATION_CBOR = "application/cbor";
+    public static final MediaType APPLICATION_CBOR_TYPE = MediaType.valueOf(APPLICATION_CBOR);
+    public static final String APPLICATION_MSGPACK = "application/x-msgpack";
+    public static final MediaType APPLICATION_MSGPACK_TYPE = MediaType.valueOf(APPLICATION_MSGPACK);
+
+    /**
+     * Left to RESTEasy's own providers, same as JacksonJsonProvider does.
+     */
+    private static final Set<Class<?>> UNTOUCHABLES = ImmutableSet.of(String.class, byte[].class, char[].class,
+            InputStream.class, Reader.class, OutputStream.class, Writer.class, StreamingOutput.class,
+            Response.class, ElementProducer.class);
+
+    private final Format smile;
+    private final Format cbor;
+    private final Format msgpack;
+
+    public BinaryJacksonProvider(@Nonnull final ObjectMapper smile, @Nonnull final ObjectMapper cbor,
+                                 @Nonnull final ObjectMapper msgpack) {
+        this.smile = new Format(smile);
+        this.cbor = new Format(cbor);
+        this.msgpack = new Format(msgpack);
+    }
+
+    @Override
+    public boolean isReadable(final Class<?> type, final Type genericType, final Annotation[] annotations,
+                              final MediaType mediaType) {
+        return handles(type) && format(mediaType) != null;
+    }
+
+    @Override
+    public Object readFrom(final Class<Object> type, final Type genericType, final Annotation[] annotations,
+                           final MediaType mediaType, final MultivaluedMap<String, String> httpHeaders,
+                           final InputStream entityStream) throws IOException {
+        final Format format = format(mediaType);
+        if (format == null) {
+            throw new IOException("not a binary JSON type: " + mediaType);
+        }
+        try {
+            return format.reader.forType(format.mapper.constructType(genericType == null ? type : genericType))
+                    .readValue(entityStream);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("couldn't read " + mediaType + " body: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(final Class<?> type, final Type genericType, final Annotation[] annotations,
+                               final MediaType mediaType) {
+        return handles(type) && format(mediaType) != null;
+    }
+
+    @Override
+    public long getSize(final Object o, final Class<?> type, final Type genericType, final Annotation[] annotations,
+                        final MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(final Object value, final Class<?> type, final Type genericType,
+                        final Annotation[] annotations, final MediaType mediaType,
+                        final MultivaluedMap<String, Object> httpHeaders, final OutputStream entityStream)
+            throws IOException {
+        final Format format = format(mediaType);
+        if (format == null) {
+            throw new IOException("not a binary JSON type: " + mediaType);
+        }
+        ObjectWriter writer = format.writer;
+        // like JacksonJsonProvider, a parameterized declared type (List<Address>) is kept, a plain class isn't
+        if (genericType != null && !(genericType instanceof Class)) {
+            final JavaType declared = format.mapper.getTypeFactory()
+                    .constructSpecializedType(format.mapper.constructType(genericType), type);
+            if (declared.getRawClass() != Object.class) {
+                writer = writer.forType(declared);
+            }
+        }
+        writer.writeValue(entityStream, value);
+    }
+
+    private static boolean handles(final Class<?> type) {
+        for (Class<?> untouchable : UNTOUCHABLES) {
+            if (untouchable.isAssignableFrom(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private Format format(@Nullable final MediaType mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        if (APPLICATION_SMILE_TYPE.isCompatible(mediaType) && !mediaType.isWildcardSubtype()) {
+            return smile;
+        }
+        if (APPLICATION_CBOR_TYPE.isCompatible(mediaType) && !mediaType.isWildcardSubtype()) {
+            return cbor;
+        }
+        if (APPLICATION_MSGPACK_TYPE.isCompatible(mediaType) && !mediaType.isWildcardSubtype()) {
+            return msgpack;
+        }
+        return null;
+    }
+
+    /**
+     * A mapper with a reader and writer that leave the entity streams for RESTEasy to close.
+     */
+    private static final class Format {
+        private final ObjectMapper mapper;
+        private final ObjectReader reader;
+        private final ObjectWriter writer;
+
+        private Format(final ObjectMapper mapper) {
+            this.mapper = mapper;
+            this.reader = mapper.reader().without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            this.writer = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+    }
+}
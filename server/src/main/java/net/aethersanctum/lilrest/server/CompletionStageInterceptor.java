@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.reflect.TypeToken;
+import com.google.inject.matcher.AbstractMatcher;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jboss.resteasy.core.ResourceMethodInvoker;
+import org.jboss.resteasy.specimpl.BuiltResponse;
+import org.jboss.resteasy.spi.HttpRequest;
+import org.jboss.resteasy.spi.ResteasyAsynchronousResponse;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.Response;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Lets resource methods return a CompletionStage. The request is suspended as soon as
+ * the method returns, freeing up the request thread, and is resumed with whatever the
+ * stage completes with. RESTEasy 3.1 doesn't know about CompletionStage by itself.
+ */
+final class CompletionStageInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+        final CompletionStage<?> stage = (CompletionStage<?>) invocation.proceed();
+        final HttpRequest request = ResteasyProviderFactory.getContextData(HttpRequest.class);
+        final ResourceMethodInvoker method = request == null ? null
+                : (ResourceMethodInvoker) request.getAttribute(ResourceMethodInvoker.class.getName());
+        if (stage == null || method == null || request.getAsyncContext().isSuspended()) {
+            // not being dispatched by RESTEasy, or the resource is doing its own thing
+            return stage;
+        }
+        final ResteasyAsynchronousResponse response = request.getAsyncContext().suspend();
+        method.initializeAsync(response);
+        stage.whenComplete((entity, failure) -> {
+            if (failure == null) {
+                response.resume(toResponse(request, method, entity));
+            } else {
+                response.resume(failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure);
+            }
+        });
+        return null;
+    }
+
+    /**
+     * RESTEasy would pick a writer for the declared CompletionStage&lt;T&gt;; describe the
+     * entity as a T instead.
+     */
+    private static Object toResponse(final HttpRequest request, final ResourceMethodInvoker method, final Object entity) {
+        if (entity == null || entity instanceof Response) {
+            return entity;
+        }
+        final BuiltResponse response = (BuiltResponse) Response.ok(entity, method.resolveContentType(request, entity)).build();
+        response.setGenericType(completedType(method.getGenericReturnType()));
+        response.addMethodAnnotations(method.getMethodAnnotations());
+        return response;
+    }
+
+    private static Type completedType(final Type returnType) {
+        return TypeToken.of(returnType).resolveType(CompletionStage.class.getTypeParameters()[0]).getType();
+    }
+
+    /**
+     * Matches JAX-RS resource methods returning a CompletionStage.
+     */
+    static final class ResourceMethods extends AbstractMatcher<Method> {
+        @Override
+        public boolean matches(final Method method) {
+            if (!CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+                return false;
+            }
+            for (Annotation annotation : method.getAnnotations()) {
+                if (annotation.annotationType().isAnnotationPresent(HttpMethod.class)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Remembers the compressed form of recently seen response bodies, so constant
+ * responses aren't compressed over and over. Bounded by the total size of the
+ * bodies and their compressed forms; bodies bigger than an eighth of that are
+ * never cached. A body is only admitted the second time it's seen, so a stream
+ * of one-off responses can't push out the ones that keep coming back.
+ */
+final class CompressedBodyCache {
+    private static final int SEEN_SLOTS = 4096;
+
+    private final Cache<Body, byte[]> cache;
+    /** Hashes of bodies seen once, each in the slot its hash picks; a collision just forgets the older one. */
+    private final AtomicIntegerArray seen = new AtomicIntegerArray(SEEN_SLOTS);
+    private final long maxBodySize;
+    private final int level;
+
+    CompressedBodyCache(final long maxBytes, final int level) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Body body, byte[] compressed) -> body.bytes.length + compressed.length)
+                .build();
+        this.maxBodySize = maxBytes / 8;
+        this.level = level;
+    }
+
+    boolean isCacheable(final long bodySize) {
+        return bodySize <= maxBodySize;
+    }
+
+    byte[] compress(final ContentEncoding encoding, final byte[] body) {
+        if (!isCacheable(body.length)) {
+            return Compressor.compress(encoding, level, body);
+        }
+        final Body key = new Body(encoding, body);
+        final byte[] cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final byte[] compressed = Compressor.compress(encoding, level, body);
+        final int slot = key.hash & (SEEN_SLOTS - 1);
+        if (seen.get(slot) == key.hash) {
+            cache.put(key, compressed);
+        } else {
+            seen.set(slot, key.hash);
+        }
+        return compressed;
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    private static final class Body {
+        private final ContentEncoding encoding;
+        private final byte[] bytes;
+        private final int hash;
+
+        Body(final ContentEncoding encoding, final byte[] bytes) {
+            this.encoding = encoding;
+            this.bytes = bytes;
+            this.hash = 31 * encoding.hashCode() + Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Body)) {
+                return false;
+            }
+            final Body other = (Body) o;
+            return hash == other.hash && encoding == other.encoding && Arrays.equals(bytes, other.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
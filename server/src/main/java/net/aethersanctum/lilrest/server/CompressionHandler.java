@@ -0,0 +1,272 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.collect.ImmutableSet;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.Callback;
+
+import javax.annotation.Nullable;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compresses responses with gzip or deflate, whichever the client prefers. Only
+ * responses of the configured MIME types and at least the minimum size are
+ * compressed. Bodies written in one go, which is most of them, have their
+ * compressed form looked up in a {@link CompressedBodyCache} first; anything
+ * flushed along the way is compressed as it streams. Requests with the
+ * {@link #UNCOMPRESSED} attribute set are passed through as they are. A
+ * streaming response's deflater is ended by its last write, or failing that when
+ * Jetty is done with the request, so aborted responses don't hold on to it.
+ */
+final class CompressionHandler extends HandlerWrapper {
+    /**
+     * Request attribute asking for the response to be sent as written, for content that's
+     * better off reaching the socket without being copied.
+     */
+    static final String UNCOMPRESSED = CompressionHandler.class.getName() + ".uncompressed";
+
+    private static final HttpField VARY_ACCEPT_ENCODING = new HttpField(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+
+    private final Set<String> mimeTypes;
+    private final long minSize;
+    private final int level;
+    private final CompressedBodyCache cache;
+    private final AtomicInteger compressorsInUse = new AtomicInteger();
+    private final HttpChannel.Listener completion = new HttpChannel.Listener() {
+        @Override
+        public void onComplete(final Request request) {
+            HttpOutput.Interceptor interceptor = request.getResponse().getHttpOutput().getInterceptor();
+            for (; interceptor != null; interceptor = interceptor.getNextInterceptor()) {
+                if (interceptor instanceof CompressingInterceptor) {
+                    ((CompressingInterceptor) interceptor).end();
+                    return;
+                }
+            }
+        }
+    };
+
+    CompressionHandler(final Collection<String> mimeTypes, final long minSize, final int level, final long cacheSize) {
+        final ImmutableSet.Builder<String> types = ImmutableSet.builder();
+        mimeTypes.forEach(type -> types.add(type.toLowerCase(Locale.ROOT)));
+        this.mimeTypes = types.build();
+        this.minSize = minSize;
+        this.level = level;
+        this.cache = new CompressedBodyCache(cacheSize, level);
+    }
+
+    @Override
+    public void handle(final String target, final Request baseRequest,
+                       final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException, ServletException {
+        final HttpOutput out = baseRequest.getResponse().getHttpOutput();
+        if (!(out.getInterceptor() instanceof CompressingInterceptor)) {
+            final ContentEncoding encoding = ContentEncoding.negotiate(request.getHeader(HttpHeader.ACCEPT_ENCODING.asString()));
+            final boolean revalidating = encoding != null && unsuffixIfNoneMatch(baseRequest.getHttpFields(), encoding);
+            out.setInterceptor(new CompressingInterceptor(baseRequest, encoding, revalidating,
+                    out.getInterceptor()));
+        }
+        super.handle(target, baseRequest, request, response);
+    }
+
+    /**
+     * Listens on the connectors for requests completing; Jetty starts handlers before connectors,
+     * so this is in time for their first connection.
+     */
+    @Override
+    protected void doStart() throws Exception {
+        for (Connector connector : getServer().getConnectors()) {
+            connector.addBean(completion);
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+        for (Connector connector : getServer().getConnectors()) {
+            connector.removeBean(completion);
+        }
+    }
+
+    /**
+     * Compressed responses have their ETag suffixed with the encoding; take that off again
+     * when the client offers it back, so whatever made the ETag recognizes it.
+     *
+     * @return whether there was a suffix to take off
+     */
+    private static boolean unsuffixIfNoneMatch(final HttpFields fields, final ContentEncoding encoding) {
+        final String ifNoneMatch = fields.get(HttpHeader.IF_NONE_MATCH);
+        final String suffix = etagSuffix(encoding);
+        if (ifNoneMatch == null || !ifNoneMatch.contains(suffix + "\"")) {
+            return false;
+        }
+        fields.put(HttpHeader.IF_NONE_MATCH, ifNoneMatch.replace(suffix + "\"", "\""));
+        return true;
+    }
+
+    private static String etagSuffix(final ContentEncoding encoding) {
+        return "-" + encoding.token();
+    }
+
+    private static void suffixEtag(final HttpFields fields, final ContentEncoding encoding) {
+        final String etag = fields.get(HttpHeader.ETAG);
+        if (etag != null) {
+            fields.put(HttpHeader.ETAG, etag.endsWith("\"")
+                    ? etag.substring(0, etag.length() - 1) + etagSuffix(encoding) + "\""
+                    : etag + etagSuffix(encoding));
+        }
+    }
+
+    CompressedBodyCache cache() {
+        return cache;
+    }
+
+    /**
+     * @return how many responses have a deflater that's yet to be ended
+     */
+    int compressorsInUse() {
+        return compressorsInUse.get();
+    }
+
+    private enum State { UNDECIDED, COMPRESSING, PASSING }
+
+    private final class CompressingInterceptor implements HttpOutput.Interceptor {
+        private final Request request;
+        private final Response response;
+        private final ContentEncoding encoding;
+        private final boolean revalidating;
+        private final HttpOutput.Interceptor next;
+        private State state = State.UNDECIDED;
+        private Compressor compressor;
+
+        CompressingInterceptor(final Request request, @Nullable final ContentEncoding encoding,
+                               final boolean revalidating, final HttpOutput.Interceptor next) {
+            this.request = request;
+            this.response = request.getResponse();
+            this.encoding = encoding;
+            this.revalidating = revalidating;
+            this.next = next;
+        }
+
+        @Override
+        public void write(final ByteBuffer content, final boolean last, final Callback callback) {
+            if (state == State.UNDECIDED) {
+                state = decide(content, last);
+                if (state == State.COMPRESSING) {
+                    startCompressing();
+                    if (last && cache.isCacheable(content.remaining())) {
+                        next.write(ByteBuffer.wrap(cache.compress(encoding, toArray(content))), true, callback);
+                        return;
+                    }
+                    compressor = new Compressor(encoding, level);
+                    compressorsInUse.incrementAndGet();
+                }
+            }
+            if (state == State.PASSING) {
+                next.write(content, last, callback);
+                return;
+            }
+            final byte[] compressed;
+            try {
+                compressed = compressor.compress(content, last);
+            } finally {
+                if (last) {
+                    end();
+                }
+            }
+            next.write(ByteBuffer.wrap(compressed), last, callback);
+        }
+
+        /**
+         * Frees the deflater, if it's still there.
+         */
+        void end() {
+            if (compressor != null) {
+                compressor.end();
+                compressor = null;
+                compressorsInUse.decrementAndGet();
+            }
+        }
+
+        private State decide(final ByteBuffer content, final boolean last) {
+            final int status = response.getStatus();
+            if (status == 304 && revalidating) {
+                // the client's copy was compressed, keep its ETag looking like the compressed one's
+                suffixEtag(response.getHttpFields(), encoding);
+            }
+            if (status < 200 || status == 204 || status == 205 || status == 206 || status >= 300
+                    || request.getAttribute(UNCOMPRESSED) != null) {
+                return State.PASSING;
+            }
+            final String contentType = response.getContentType();
+            if (contentType == null
+                    || !mimeTypes.contains(MimeTypes.getContentTypeWithoutCharset(contentType).toLowerCase(Locale.ROOT))) {
+                return State.PASSING;
+            }
+            // whether or not we compress this one, the same resource might be compressed for others
+            final HttpFields fields = response.getHttpFields();
+            if (fields.contains(HttpHeader.VARY)) {
+                fields.addCSV(HttpHeader.VARY, VARY_ACCEPT_ENCODING.getValue());
+            } else {
+                fields.add(VARY_ACCEPT_ENCODING);
+            }
+            final long length = last ? content.remaining() : response.getContentLength();
+            if (encoding == null || fields.contains(HttpHeader.CONTENT_ENCODING) || 0 <= length && length < minSize) {
+                return State.PASSING;
+            }
+            return State.COMPRESSING;
+        }
+
+        private void startCompressing() {
+            final HttpFields fields = response.getHttpFields();
+            fields.put(HttpHeader.CONTENT_ENCODING, encoding.token());
+            response.setContentLength(-1);
+            suffixEtag(fields, encoding);
+        }
+
+        @Override
+        public HttpOutput.Interceptor getNextInterceptor() {
+            return next;
+        }
+
+        @Override
+        public boolean isOptimizedForDirectBuffers() {
+            return false;
+        }
+    }
+
+    private static byte[] toArray(final ByteBuffer content) {
+        final byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return bytes;
+    }
+}
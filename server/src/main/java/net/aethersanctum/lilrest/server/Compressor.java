@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses one response body, possibly a chunk at a time. Chunks other than the
+ * last are sync-flushed so whatever has been written so far reaches the client.
+ * Not thread safe, and {@link #end()} must be called once done with it.
+ */
+final class Compressor {
+    private static final byte[] GZIP_HEADER = {
+            (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private final ContentEncoding encoding;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[8192];
+    private boolean started;
+
+    Compressor(final ContentEncoding encoding, final int level) {
+        this.encoding = encoding;
+        // gzip wants raw deflate data in its own framing, HTTP's "deflate" is the zlib format
+        this.deflater = new Deflater(level, encoding == ContentEncoding.GZIP);
+    }
+
+    /**
+     * Compresses a whole body in one go.
+     */
+    static byte[] compress(final ContentEncoding encoding, final int level, final byte[] body) {
+        final Compressor compressor = new Compressor(encoding, level);
+        try {
+            return compressor.compress(ByteBuffer.wrap(body), true);
+        } finally {
+            compressor.end();
+        }
+    }
+
+    /**
+     * Consumes what remains of the chunk and returns its compressed form.
+     */
+    byte[] compress(final ByteBuffer chunk, final boolean last) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, chunk.remaining() / 4));
+        if (!started) {
+            started = true;
+            if (encoding == ContentEncoding.GZIP) {
+                out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            }
+        }
+        final byte[] input = toArray(chunk);
+        if (encoding == ContentEncoding.GZIP) {
+            crc.update(input, 0, input.length);
+        }
+        deflater.setInput(input);
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(scratch, 0, deflater.deflate(scratch));
+            }
+            if (encoding == ContentEncoding.GZIP) {
+                writeIntLE(out, (int) crc.getValue());
+                writeIntLE(out, (int) deflater.getBytesRead());
+            }
+        } else {
+            int count;
+            do {
+                count = deflater.deflate(scratch, 0, scratch.length, Deflater.SYNC_FLUSH);
+                out.write(scratch, 0, count);
+            } while (count == scratch.length);
+        }
+        return out.toByteArray();
+    }
+
+    void end() {
+        deflater.end();
+    }
+
+    private static byte[] toArray(final ByteBuffer chunk) {
+        final byte[] bytes = new byte[chunk.remaining()];
+        chunk.get(bytes);
+        return bytes;
+    }
+
+    private static void writeIntLE(final ByteArrayOutputStream out, final int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
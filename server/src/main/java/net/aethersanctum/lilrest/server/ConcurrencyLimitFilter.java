@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import net.aethersanctum.lilrest.limit.ConcurrencyLimiter;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Turns requests away with a bare 503 once the {@link ConcurrencyLimiter} says we're full,
+ * before Guice or RESTEasy do any work on them. Requests that suspend give their place back
+ * as soon as they've left the request thread, and aren't counted as samples since
+ * their round trip depends on whatever they're waiting for. Exempt paths, such as health
+ * checks, are let through without being counted.
+ */
+final class ConcurrencyLimitFilter implements Filter {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final ConcurrencyLimiter limiter;
+    private final Set<String> exemptPaths;
+
+    ConcurrencyLimitFilter(final ConcurrencyLimiter limiter, final Collection<String> exemptPaths) {
+        this.limiter = limiter;
+        this.exemptPaths = new HashSet<>(exemptPaths);
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+            throws IOException, ServletException {
+        if (exemptPaths.contains(RequestPaths.of((HttpServletRequest) request))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            final HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            httpResponse.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            httpResponse.setContentLength(0);
+            return;
+        }
+        final long start = System.nanoTime();
+        boolean suspended = false;
+        try {
+            chain.doFilter(request, response);
+            suspended = request.isAsyncStarted();
+        } finally {
+            limiter.release(start, !suspended);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.base.Splitter;
+
+import javax.annotation.Nullable;
+import java.util.Locale;
+
+/**
+ * The Content-Encodings we know how to produce.
+ */
+enum ContentEncoding {
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private static final Splitter COMMA = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final Splitter SEMICOLON = Splitter.on(';').trimResults();
+
+    private final String token;
+
+    ContentEncoding(final String token) {
+        this.token = token;
+    }
+
+    String token() {
+        return token;
+    }
+
+    /**
+     * Picks the encoding to use for an Accept-Encoding header, preferring gzip.
+     *
+     * @return null if the client accepts none of ours, or sent no header at all
+     */
+    @Nullable
+    static ContentEncoding negotiate(@Nullable final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        Boolean gzip = null;
+        Boolean deflate = null;
+        boolean wildcard = false;
+        for (String coding : COMMA.split(acceptEncoding)) {
+            final Iterable<String> parts = SEMICOLON.split(coding);
+            final String name = parts.iterator().next().toLowerCase(Locale.ROOT);
+            final boolean accepted = !isRefused(parts);
+            if (name.equals(GZIP.token)) {
+                gzip = accepted;
+            } else if (name.equals(DEFLATE.token)) {
+                deflate = accepted;
+            } else if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        // codings not mentioned at all are covered by a wildcard
+        if (gzip == null ? wildcard : gzip) {
+            return GZIP;
+        }
+        if (deflate == null ? wildcard : deflate) {
+            return DEFLATE;
+        }
+        return null;
+    }
+
+    private static boolean isRefused(final Iterable<String> parts) {
+        for (String parameter : parts) {
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnection;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * HTTP/1.1 connections which parse and handle their requests on a separate executor,
+ * instead of on whichever Jetty pool thread noticed the connection was readable.
+ * Selectors and acceptors stay on Jetty's pool, which matters for virtual threads:
+ * a selector blocked in select() would pin its carrier thread.
+ */
+final class DispatchingHttpConnectionFactory extends HttpConnectionFactory {
+    private final Executor executor;
+
+    DispatchingHttpConnectionFactory(final HttpConfiguration config, final Executor executor) {
+        super(config);
+        this.executor = executor;
+    }
+
+    @Override
+    public Connection newConnection(final Connector connector, final EndPoint endPoint) {
+        final HttpConnection connection = new HttpConnection(getHttpConfiguration(), connector, endPoint,
+                getHttpCompliance(), isRecordHttpComplianceViolations()) {
+            @Override
+            public void onFillable() {
+                try {
+                    executor.execute(super::onFillable);
+                } catch (RejectedExecutionException e) {
+                    // executor is shutting down, better to finish the work here than drop it
+                    super.onFillable();
+                }
+            }
+        };
+        return configure(connection, connector, endPoint);
+    }
+}
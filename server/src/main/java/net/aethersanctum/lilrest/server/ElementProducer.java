@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import java.util.function.Consumer;
+
+/**
+ * A response body produced one element at a time, for results too big to hold in
+ * memory. Return one from a resource method and {@link StreamingJsonProvider} writes
+ * each element as soon as it's handed to the sink. If the client goes away, the sink
+ * throws an {@link java.io.UncheckedIOException}; let it propagate, closing whatever
+ * the elements were coming from on the way.
+ *
+ * @param <T> the type of the elements
+ */
+@FunctionalInterface
+public interface ElementProducer<T> {
+    void produce(Consumer<? super T> sink) throws Exception;
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+/**
+ * Where the server runs request handling. Jetty's own housekeeping (acceptors,
+ * selectors, timers) always stays on its bounded thread pool.
+ */
+public enum ExecutorMode {
+    /**
+     * On Jetty's bounded QueuedThreadPool, sized by basic.server.max-threads.
+     */
+    QUEUED,
+
+    /**
+     * On a new virtual thread each time a connection has a request to process, so
+     * blocking resources no longer need a platform thread apiece. Needs a JDK with
+     * virtual threads; falls back to QUEUED on older runtimes.
+     */
+    VIRTUAL,
+
+    /**
+     * On the Executor bound with the {@link ServerExecutor} annotation.
+     */
+    BOUND
+}
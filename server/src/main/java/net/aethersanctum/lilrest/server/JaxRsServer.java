@@ -14,51 +14,203 @@
 package net.aethersanctum.lilrest.server;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.config.ConfigFactory;
 import net.aethersanctum.lilrest.config.ConfigModule;
+import net.aethersanctum.lilrest.lifecycle.Lifecycle;
 import org.eclipse.jetty.server.Server;
-import org.jboss.resteasy.plugins.server.servlet.HttpServletDispatcher;
+import org.eclipse.jetty.server.ServerConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base JAX-RS server with all the goodies set up in the JaxRsServerModule.
  * Extend this class with your own server type and implement getMainModule.
  * Have a main() in your class that creates a new instance of your server
  * and calls start() on it.
+ *
+ * <p>stop(), or the JVM shutting down, stops it gracefully: /api/health starts answering 503
+ * DRAINING, then after the drain period the server stops accepting connections, waits for
+ * requests in flight, and finally stops the {@link net.aethersanctum.lilrest.lifecycle.Managed}
+ * services.</p>
  */
 public abstract class JaxRsServer {
+    private static final Logger LOG = LoggerFactory.getLogger(JaxRsServer.class);
 
     @Inject
     private Server jettyServer;
+    @Inject
+    private Lifecycle lifecycle;
 
-    protected JaxRsServer() {
+    private final StartupReport startupReport = new StartupReport();
+    private final ConfigFactory configFactory;
+    private final JaxRsServerConfig config;
+    @Nullable
+    private final StartupListener startupListener;
 
-        final Injector injector = Guice.createInjector(
-                new ConfigModule(),
-                new JaxRsServerModule(),
-                getMainModule(),
-                new ServletModule() {
-                    @Override
-                    public void configureServlets() {
-                        serve("/*").with(HttpServletDispatcher.class);
-                    }
-                }
-        );
-        injector.injectMembers(this);
+    protected JaxRsServer() {
+        try {
+            configFactory = startupReport.time("config", ConfigFactory::new);
+            config = configFactory.extract(JaxRsServerConfig.class);
+            if (config.startupEarlyBind() && !config.tcpEnabled()) {
+                throw new IllegalStateException("basic.server.startup.early-bind needs basic.server.tcp.enabled");
+            }
+            startupListener = config.startupEarlyBind()
+                    ? startupReport.time("early bind", () -> StartupListener.open(config))
+                    : null;
+        } catch (Exception e) {
+            throw new IllegalStateException("couldn't load configuration or bind early", e);
+        }
+        try {
+            final Injector injector = startupReport.time("injector", () -> Guice.createInjector(
+                    startupReport.listener(),
+                    startupReport.timed(new ConfigModule(configFactory)),
+                    startupReport.timed(new JaxRsServerModule()),
+                    startupReport.timed(getMainModule()),
+                    startupReport.timed(new ServletModule() {
+                        @Override
+                        public void configureServlets() {
+                            serve("/*").with(TimedDispatcher.class);
+                        }
+                    })
+            ));
+            if (config.startupParallelInit()) {
+                startupReport.time("singletons", () -> {
+                    SingletonInitializer.initialize(injector, config.startupThreads());
+                    return null;
+                });
+            }
+            startupReport.time("server", () -> {
+                injector.injectMembers(this);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            closeStartupListener();
+            throw e;
+        } catch (Exception e) {
+            closeStartupListener();
+            throw new IllegalStateException("startup failed", e);
+        }
     }
 
     protected abstract ServletModule getMainModule();
 
     public final void start() throws Exception {
-        jettyServer.start();
+        startJetty();
+        if (config.startupTrainingRun()) {
+            train();
+            stop(0);
+            return;
+        }
+        if (config.shutdownHook()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::stopQuietly, "lilrest-shutdown"));
+        }
         jettyServer.join();
     }
 
+    /**
+     * Drains and stops the server, returning once it has stopped. Calls after the first wait for
+     * it to finish.
+     */
+    public final void stop() throws Exception {
+        stop(config.shutdownDrainPeriod().getMillis());
+    }
+
+    /**
+     * Where the time went getting this server up, complete once Jetty has started.
+     */
+    public StartupReport getStartupReport() {
+        return startupReport;
+    }
+
     @VisibleForTesting
-    Server getJettyServer()   {
+    protected Server getJettyServer()   {
         return jettyServer;
     }
+
+    /**
+     * Starts Jetty, taking over the early-bound socket if there is one, without waiting for it
+     * to stop.
+     */
+    @VisibleForTesting
+    protected final void startJetty() throws Exception {
+        startupReport.time("managed", () -> {
+            lifecycle.start();
+            return null;
+        });
+        startupReport.time("jetty", () -> {
+            if (startupListener != null) {
+                ((ServerConnector) jettyServer.getConnectors()[0]).open(startupListener.handOver());
+            }
+            jettyServer.start();
+            return null;
+        });
+        startupReport.finish();
+        LOG.info("{}", startupReport);
+    }
+
+    /**
+     * Sends one request to each training path, so that a run meant for recording loaded classes
+     * goes through the request handling code as well as startup.
+     */
+    private void train() throws IOException {
+        if (!(jettyServer.getConnectors()[0] instanceof ServerConnector)) {
+            LOG.warn("not training, since there's no TCP connector to send requests to");
+            return;
+        }
+        final ServerConnector connector = (ServerConnector) jettyServer.getConnectors()[0];
+        final String host = Strings.isNullOrEmpty(connector.getHost()) ? "localhost" : connector.getHost();
+        for (String path : config.startupTrainingPaths()) {
+            final HttpURLConnection connection =
+                    (HttpURLConnection) new URL("http", host, connector.getLocalPort(), path).openConnection();
+            final int status = connection.getResponseCode();
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (body != null) {
+                    ByteStreams.exhaust(body);
+                }
+            }
+            LOG.info("training request {} returned {}", path, status);
+        }
+    }
+
+    private synchronized void stop(final long drainMillis) throws Exception {
+        if (!lifecycle.drain()) {
+            return;
+        }
+        LOG.info("draining for {}ms before stopping", drainMillis);
+        TimeUnit.MILLISECONDS.sleep(drainMillis);
+        try {
+            jettyServer.stop();
+        } finally {
+            lifecycle.stop();
+            configFactory.close();
+        }
+        LOG.info("stopped");
+    }
+
+    private void stopQuietly() {
+        try {
+            stop();
+        } catch (Exception e) {
+            LOG.warn("trouble stopping", e);
+        }
+    }
+
+    private void closeStartupListener() {
+        if (startupListener != null) {
+            startupListener.close();
+        }
+    }
 }
@@ -14,16 +14,103 @@
 package net.aethersanctum.lilrest.server;
 
 import org.skife.config.Config;
+import org.skife.config.DataAmount;
 import org.skife.config.Default;
 import org.skife.config.TimeSpan;
 
+import java.util.List;
+
 /**
+ * Max threads, idle timeout, the basic.server.limit.* bounds and switch, and the
+ * basic.server.rate-limit.* switch and routes are applied to a running server when the
+ * config file is reloaded (see ConfigFactory). The rest need a restart.
  */
 public interface JaxRsServerConfig {
     @Config("basic.server.listen-port")
     @Default("8080")
     int port();
 
+    /**
+     * Interface to listen on. Use 0.0.0.0 (or empty) for all of them.
+     */
+    @Config("basic.server.host")
+    @Default("localhost")
+    String host();
+
+    /**
+     * Acceptor threads for the connector, -1 lets Jetty pick based on the number of cores.
+     */
+    @Config("basic.server.acceptors")
+    @Default("-1")
+    int acceptors();
+
+    /**
+     * Selector threads for the connector, -1 lets Jetty pick based on the number of cores.
+     */
+    @Config("basic.server.selectors")
+    @Default("-1")
+    int selectors();
+
+    /**
+     * Backlog of connections waiting to be accepted, 0 for the operating system's default.
+     */
+    @Config("basic.server.accept-queue-size")
+    @Default("0")
+    int acceptQueueSize();
+
+    /**
+     * TCP listeners sharing the listen port with SO_REUSEPORT, so the kernel spreads new connections
+     * across them. Acceptors and selectors are then per listener, -1 meaning one acceptor and an even
+     * share of the cores' selectors. Needs Java 9 or later; older runtimes get a single listener.
+     */
+    @Config("basic.server.listeners")
+    @Default("1")
+    int listeners();
+
+    /**
+     * With more than one listener, whether each gets its own thread pool of an even share of
+     * max-threads, rather than all of them sharing the server's. Slices follow max-threads on reload.
+     */
+    @Config("basic.server.listeners.thread-slices")
+    @Default("false")
+    boolean listenerThreadSlices();
+
+    /**
+     * Whether to listen on TCP at the host and listen port. Turn it off to only listen on the Unix
+     * domain socket.
+     */
+    @Config("basic.server.tcp.enabled")
+    @Default("true")
+    boolean tcpEnabled();
+
+    /**
+     * Unix domain socket to listen on as well as, or instead of, TCP; empty for none. Saves traffic
+     * from a proxy on the same host a trip through the loopback TCP stack.
+     */
+    @Config("basic.server.unix-socket.path")
+    @Default("")
+    String unixSocketPath();
+
+    /**
+     * Who may connect to the Unix domain socket, as file permissions in ls -l form. These are set
+     * before the socket appears at its path, so there's no moment when anyone else can connect.
+     */
+    @Config("basic.server.unix-socket.permissions")
+    @Default("rw-rw----")
+    String unixSocketPermissions();
+
+    /**
+     * Whether to also speak cleartext HTTP/2 (h2c) on the listen port, both by prior
+     * knowledge and by upgrade from HTTP/1.1.
+     */
+    @Config("basic.server.h2c.enabled")
+    @Default("false")
+    boolean h2cEnabled();
+
+    @Config("basic.server.h2c.max-concurrent-streams")
+    @Default("128")
+    int h2cMaxConcurrentStreams();
+
     @Config("basic.server.max-threads")
     @Default("500")
     int maxThreads();
@@ -31,4 +118,343 @@ public interface JaxRsServerConfig {
     @Config("basic.server.idle-timeout")
     @Default("30000ms")
     TimeSpan idleTimeout();
+
+    /**
+     * Biggest request body that may be read into an object, bigger ones getting a 413. For Stream
+     * and Iterator parameters, which are read an element at a time, it's the biggest element.
+     */
+    @Config("basic.server.max-request-size")
+    @Default("10MiB")
+    DataAmount maxRequestSize();
+
+    /**
+     * Where request handling runs, see {@link ExecutorMode}.
+     */
+    @Config("basic.server.executor")
+    @Default("QUEUED")
+    ExecutorMode executor();
+
+    /**
+     * How many requests suspended by async resources can be outstanding at once. Requests
+     * still being dispatched count too, since any of them might suspend. Zero or less means no limit.
+     */
+    @Config("basic.server.async.max-suspended")
+    @Default("10000")
+    int maxSuspendedRequests();
+
+    /**
+     * How long a suspended request may wait to be resumed, unless its resource sets its own timeout.
+     */
+    @Config("basic.server.async.timeout")
+    @Default("30s")
+    TimeSpan asyncTimeout();
+
+    /**
+     * Whether to turn requests away with a 503 once more are in flight than latency says
+     * we can handle. The limit adapts between min and max, starting from initial.
+     */
+    @Config("basic.server.limit.enabled")
+    @Default("false")
+    boolean limitEnabled();
+
+    @Config("basic.server.limit.initial")
+    @Default("20")
+    int limitInitial();
+
+    @Config("basic.server.limit.min")
+    @Default("4")
+    int limitMin();
+
+    @Config("basic.server.limit.max")
+    @Default("200")
+    int limitMax();
+
+    /**
+     * How many times the long-term average latency recent requests may take before the limit comes down.
+     */
+    @Config("basic.server.limit.tolerance")
+    @Default("1.5")
+    double limitTolerance();
+
+    /**
+     * How often the limit is recalculated from the latency of requests finished since.
+     */
+    @Config("basic.server.limit.window")
+    @Default("100ms")
+    TimeSpan limitWindow();
+
+    /**
+     * Paths that are always let through, so load balancers can see that we're DEGRADED.
+     */
+    @Config("basic.server.limit.exempt-paths")
+    @Default("/api/health,/api/metrics")
+    List<String> limitExemptPaths();
+
+    /**
+     * Whether to limit how fast each client may make requests, with a token bucket per
+     * client for each of basic.server.rate-limit.routes. Clients going faster get a 429.
+     */
+    @Config("basic.server.rate-limit.enabled")
+    @Default("false")
+    boolean rateLimitEnabled();
+
+    /**
+     * Per-route limits, as path-prefix=requests-per-second/burst, the longest matching
+     * prefix winning. A rate of 0 leaves the route unlimited.
+     */
+    @Config("basic.server.rate-limit.routes")
+    @Default("/=100/200,/api/health=0,/api/metrics=0")
+    List<String> rateLimitRoutes();
+
+    @Config("basic.server.rate-limit.key")
+    @Default("REMOTE_ADDRESS")
+    RateLimitKey rateLimitKey();
+
+    @Config("basic.server.rate-limit.header")
+    @Default("X-Forwarded-For")
+    String rateLimitHeader();
+
+    /**
+     * How many proxies in front of the server append to basic.server.rate-limit.header. The client
+     * is the value that many from the right, anything further left being up to the client.
+     */
+    @Config("basic.server.rate-limit.trusted-proxies")
+    @Default("1")
+    int rateLimitTrustedProxies();
+
+    @Config("basic.server.rate-limit.api-key-header")
+    @Default("X-API-Key")
+    String rateLimitApiKeyHeader();
+
+    /**
+     * Most client and route pairs to remember. Past this, clients that have used none of
+     * their allowance lately are forgotten first.
+     */
+    @Config("basic.server.rate-limit.max-clients")
+    @Default("1048576")
+    int rateLimitMaxClients();
+
+    /**
+     * Most requests a POST to /api/batch may carry.
+     */
+    @Config("basic.server.batch.max-size")
+    @Default("50")
+    int batchMaxSize();
+
+    /**
+     * How long a whole batch may take. Requests still going after that are answered with a 504.
+     */
+    @Config("basic.server.batch.timeout")
+    @Default("10s")
+    TimeSpan batchTimeout();
+
+    /**
+     * Threads shared by all batches for running their requests in parallel.
+     */
+    @Config("basic.server.batch.threads")
+    @Default("8")
+    int batchThreads();
+
+    /**
+     * How often bound HealthChecks are run. /api/health always answers from the last run.
+     */
+    @Config("basic.server.health.refresh")
+    @Default("5s")
+    TimeSpan healthRefresh();
+
+    /**
+     * How long a HealthCheck may run, from when it gets a thread, before it counts as DOWN.
+     */
+    @Config("basic.server.health.timeout")
+    @Default("2s")
+    TimeSpan healthTimeout();
+
+    /**
+     * Threads for running HealthChecks, which run in parallel up to this many at once.
+     */
+    @Config("basic.server.health.threads")
+    @Default("2")
+    int healthThreads();
+
+    /**
+     * Whether responses are gzip or deflate compressed for clients that accept it. Off unless
+     * asked for, since it drops Content-Length, suffixes ETags and adds Vary.
+     */
+    @Config("basic.server.compression.enabled")
+    @Default("false")
+    boolean compressionEnabled();
+
+    /**
+     * Responses smaller than this aren't worth compressing.
+     */
+    @Config("basic.server.compression.min-size")
+    @Default("256B")
+    DataAmount compressionMinSize();
+
+    @Config("basic.server.compression.mime-types")
+    @Default("application/json,application/xml,application/javascript,text/plain,text/html,text/css,text/xml")
+    List<String> compressionMimeTypes();
+
+    /**
+     * Deflater level, 1 (fastest) to 9 (smallest), or -1 for the JDK's default.
+     */
+    @Config("basic.server.compression.level")
+    @Default("6")
+    int compressionLevel();
+
+    /**
+     * How much memory to spend remembering compressed forms of response bodies that have been sent more than once.
+     */
+    @Config("basic.server.compression.cache-size")
+    @Default("1MiB")
+    DataAmount compressionCacheSize();
+
+    /**
+     * Whether to write an access log line for every request, off the request threads.
+     */
+    @Config("basic.server.access-log.enabled")
+    @Default("false")
+    boolean accessLogEnabled();
+
+    /**
+     * Where the access log goes; yyyy_mm_dd is replaced by the date, and a new file started each day.
+     */
+    @Config("basic.server.access-log.file")
+    @Default("logs/access-yyyy_mm_dd.log")
+    String accessLogFile();
+
+    /**
+     * Days of access log files to keep, or 0 for all of them.
+     */
+    @Config("basic.server.access-log.retain-days")
+    @Default("7")
+    int accessLogRetainDays();
+
+    /**
+     * Records that can wait for the writer before more are dropped. Rounded up to a power of two.
+     */
+    @Config("basic.server.access-log.buffer")
+    @Default("16384")
+    int accessLogBuffer();
+
+    /**
+     * Memory for keeping static files in, shared by every StaticContentModule.
+     */
+    @Config("basic.server.static.cache-size")
+    @Default("64MiB")
+    DataAmount staticCacheSize();
+
+    /**
+     * Static files bigger than this aren't kept in memory, but mapped a window at a time as they're sent.
+     */
+    @Config("basic.server.static.max-cached-file")
+    @Default("1MiB")
+    DataAmount staticMaxCachedFile();
+
+    /**
+     * How much of a big static file to map at once while sending it.
+     */
+    @Config("basic.server.static.map-window")
+    @Default("16MiB")
+    DataAmount staticMapWindow();
+
+    /**
+     * Cache-Control for static content, or empty for none. The default has clients revalidate
+     * each time, which the ETags make cheap.
+     */
+    @Config("basic.server.static.cache-control")
+    @Default("no-cache")
+    String staticCacheControl();
+
+    /**
+     * Bind the listen port before the injector is built, answering /api/health with 503 STARTING
+     * (and everything else with 503) until the server proper takes the socket over.
+     */
+    @Config("basic.server.startup.early-bind")
+    @Default("false")
+    boolean startupEarlyBind();
+
+    /**
+     * Create every singleton on a small pool once the injector exists, rather than one at a time
+     * on first use. Singletons that need a request in scope to construct can't use this.
+     */
+    @Config("basic.server.startup.parallel-init")
+    @Default("false")
+    boolean startupParallelInit();
+
+    /**
+     * Threads for parallel-init, 0 for one per core.
+     */
+    @Config("basic.server.startup.threads")
+    @Default("0")
+    int startupThreads();
+
+    /**
+     * Start, request each of the training paths once, then stop. For producing class lists and
+     * AppCDS archives from a representative run.
+     */
+    @Config("basic.server.startup.training-run")
+    @Default("false")
+    boolean startupTrainingRun();
+
+    @Config("basic.server.startup.training-paths")
+    @Default("/api/health,/api/ping")
+    List<String> startupTrainingPaths();
+
+    /**
+     * How long to keep answering while /api/health says we're going, so load balancers notice and
+     * route around us before we stop accepting connections.
+     */
+    @Config("basic.server.shutdown.drain-period")
+    @Default("5s")
+    TimeSpan shutdownDrainPeriod();
+
+    /**
+     * How long requests still in flight when we stop accepting connections get to finish.
+     */
+    @Config("basic.server.shutdown.timeout")
+    @Default("30s")
+    TimeSpan shutdownTimeout();
+
+    /**
+     * Stop gracefully when the JVM is shutting down, e.g. on SIGTERM.
+     */
+    @Config("basic.server.shutdown.hook")
+    @Default("true")
+    boolean shutdownHook();
+
+    /**
+     * Whether requests can be timed phase by phase. Nothing is installed for it when off.
+     */
+    @Config("basic.server.timing.enabled")
+    @Default("false")
+    boolean timingEnabled();
+
+    /**
+     * Requests carrying this header are timed, and get a Server-Timing header back.
+     */
+    @Config("basic.server.timing.header")
+    @Default("X-Request-Timing")
+    String timingHeader();
+
+    /**
+     * Fraction of the other requests to time, from 0 to 1.
+     */
+    @Config("basic.server.timing.sample-rate")
+    @Default("0")
+    double timingSampleRate();
+
+    /**
+     * How many of the slowest timed requests to keep for /api/timing/slowest.
+     */
+    @Config("basic.server.timing.slowest")
+    @Default("50")
+    int timingSlowest();
+
+    /**
+     * How long a slow request is kept for before it's forgotten.
+     */
+    @Config("basic.server.timing.window")
+    @Default("10m")
+    TimeSpan timingWindow();
 }
@@ -13,38 +13,81 @@
  */
 package net.aethersanctum.lilrest.server;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.common.base.Strings;
 import com.google.inject.AbstractModule;
+import com.google.inject.Binding;
 import com.google.inject.Injector;
+import com.google.inject.Key;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.multibindings.Multibinder;
 import com.google.inject.servlet.GuiceFilter;
 import com.google.inject.servlet.GuiceServletContextListener;
+import net.aethersanctum.lilrest.accesslog.AccessLog;
+import net.aethersanctum.lilrest.accesslog.AccessLogRing;
+import net.aethersanctum.lilrest.batch.BatchResource;
+import net.aethersanctum.lilrest.cache.ResponseCacheFeature;
+import net.aethersanctum.lilrest.cache.ResponseCaches;
+import net.aethersanctum.lilrest.coalesce.CoalescingFeature;
 import net.aethersanctum.lilrest.config.ConfigFactory;
 import net.aethersanctum.lilrest.health.HealthModule;
+import net.aethersanctum.lilrest.lifecycle.Lifecycle;
+import net.aethersanctum.lilrest.lifecycle.Managed;
+import net.aethersanctum.lilrest.limit.ConcurrencyLimiter;
+import net.aethersanctum.lilrest.limit.GradientLimit;
+import net.aethersanctum.lilrest.metrics.RequestMetrics;
+import net.aethersanctum.lilrest.metrics.RequestMetricsFilter;
+import net.aethersanctum.lilrest.ratelimit.RateLimitRule;
+import net.aethersanctum.lilrest.ratelimit.RateLimiter;
+import net.aethersanctum.lilrest.timing.SlowRequests;
+import net.aethersanctum.lilrest.timing.TimedThreadPool;
+import net.aethersanctum.lilrest.timing.TimingFeature;
+import net.aethersanctum.lilrest.timing.TimingHandler;
+import net.aethersanctum.lilrest.timing.TimingResource;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.jboss.resteasy.plugins.guice.GuiceResteasyBootstrapServletContextListener;
-import org.jboss.resteasy.plugins.server.servlet.HttpServletDispatcher;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Singleton;
 import javax.servlet.DispatcherType;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Basic module for a JAX-RS Server. Binds all the RESTEasy and Jackson
  * stuff we need to serve JSON over REST. Sets up Jetty.
  */
 public final class JaxRsServerModule extends AbstractModule {
+    private static final Logger LOG = LoggerFactory.getLogger(JaxRsServerModule.class);
+    private static final Key<Executor> SERVER_EXECUTOR = Key.get(Executor.class, ServerExecutor.class);
+
     @Override
     public void configure() {
         binder().requireExplicitBindings();
@@ -52,22 +95,53 @@ public final class JaxRsServerModule extends AbstractModule {
 
         bind(ObjectMapper.class).toProvider(this::customMapper).asEagerSingleton();
 
+        bind(StreamingJsonProvider.class);
+        bind(RequestSizeInterceptor.class);
+
         bind(GuiceFilter.class);
-        bind(HttpServletDispatcher.class).in(Scopes.SINGLETON);
+        bind(TimedDispatcher.class).in(Scopes.SINGLETON);
+        bindInterceptor(Matchers.any(), new CompletionStageInterceptor.ResourceMethods(),
+                new CompletionStageInterceptor());
+
+        bind(ResponseCaches.class);
+        bind(ResponseCacheFeature.class);
+        bind(CoalescingFeature.class);
+        bind(BatchResource.class);
+        bind(StaticContentCache.class);
+        bind(TimingFeature.class);
+        bind(TimingResource.class);
+
+        bind(Lifecycle.class);
+        Multibinder.newSetBinder(binder(), Managed.class).addBinding().to(BatchResource.class);
 
         install(new HealthModule());
     }
 
     @Provides
     @Singleton
-    public JacksonJsonProvider jacksonJsonProvider(ObjectMapper mapper) {
-        JacksonJsonProvider p = new JacksonJsonProvider();
-        p.setMapper(mapper);
-        return p;
+    public JacksonProvider jacksonJsonProvider(ObjectMapper mapper) {
+        return new JacksonProvider(mapper);
     }
 
+    @Provides
+    @Singleton
+    public BinaryJacksonProvider binaryJacksonProvider() {
+        return new BinaryJacksonProvider(customMapper(new SmileFactory()), customMapper(new CBORFactory()),
+                customMapper(new MessagePackFactory()));
+    }
+
+    /**
+     * The one mapper configuration used by every provider.
+     */
     public ObjectMapper customMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+        return customMapper(null);
+    }
+
+    /**
+     * The same configuration for another data format, such as Smile; null means JSON.
+     */
+    public ObjectMapper customMapper(@Nullable final JsonFactory format) {
+        ObjectMapper objectMapper = new ObjectMapper(format);
         objectMapper.registerModules(
                 new Jdk8Module(),
                 new JavaTimeModule());
@@ -75,44 +149,247 @@ public final class JaxRsServerModule extends AbstractModule {
         return objectMapper;
     }
 
+    /**
+     * Not scoped, so it always reflects the latest config, which is cheap since
+     * ConfigFactory only builds it once per load.
+     */
     @Provides
     public JaxRsServerConfig serverConfiguration(@Nonnull final ConfigFactory factory) {
         return factory.extract(JaxRsServerConfig.class);
     }
 
     @Provides
+    @Singleton
+    public ConcurrencyLimiter concurrencyLimiter(JaxRsServerConfig config) {
+        return new ConcurrencyLimiter(config.limitEnabled(),
+                new GradientLimit(config.limitInitial(), config.limitMin(), config.limitMax(), config.limitTolerance()),
+                config.limitWindow().getMillis() * 1_000_000L);
+    }
+
+    @Provides
+    @Singleton
+    public AccessLog accessLog(JaxRsServerConfig config) {
+        return new AccessLog(config.accessLogEnabled(), new AccessLogRing(config.accessLogBuffer()),
+                config.accessLogFile(), config.accessLogRetainDays(), ZoneId.systemDefault());
+    }
+
+    @Provides
+    @Singleton
+    public SlowRequests slowRequests(JaxRsServerConfig config) {
+        return new SlowRequests(config.timingSlowest(), config.timingWindow().getMillis());
+    }
+
+    @Provides
+    @Singleton
+    public RateLimiter rateLimiter(JaxRsServerConfig config) {
+        return new RateLimiter(config.rateLimitEnabled(), rateLimitRules(config), config.rateLimitMaxClients());
+    }
+
+    static List<RateLimitRule> rateLimitRules(final JaxRsServerConfig config) {
+        final List<RateLimitRule> rules = new ArrayList<>();
+        config.rateLimitRoutes().forEach(route -> rules.add(RateLimitRule.parse(route)));
+        return rules;
+    }
+
+    @Provides
+    @Singleton
     private Server assembleJettyServer(JaxRsServerConfig config,
-                                       ServletContextHandler context) {
-        final QueuedThreadPool threadPool = new QueuedThreadPool();
+                                       ServletContextHandler context,
+                                       ConfigFactory configFactory,
+                                       ConcurrencyLimiter limiter,
+                                       RateLimiter rateLimiter,
+                                       AccessLog accessLog,
+                                       Lifecycle lifecycle,
+                                       SlowRequests slowRequests,
+                                       Injector injector) {
+        final QueuedThreadPool threadPool = config.timingEnabled() ? new TimedThreadPool() : new QueuedThreadPool();
         threadPool.setMaxThreads(config.maxThreads());
 
         final Server server = new Server(threadPool);
-        server.setHandler(context);
+        final DrainingHandler draining = new DrainingHandler(lifecycle);
+        draining.setHandler(config.compressionEnabled() ? compression(config, context) : context);
+        if (config.timingEnabled()) {
+            final TimingHandler timing = new TimingHandler(config.timingHeader(), config.timingSampleRate(), slowRequests);
+            timing.setHandler(draining);
+            server.setHandler(timing);
+        } else {
+            server.setHandler(draining);
+        }
+        server.setStopTimeout(config.shutdownTimeout().getMillis());
+        if (accessLog.isEnabled()) {
+            server.setRequestLog(accessLog);
+        }
 
         // Setup JMX
         //MBeanContainer mbContainer=new MBeanContainer(ManagementFactory.getPlatformMBeanServer());
         //server.addBean(mbContainer);
 
-        setupConnectors(config, server);
+        setupConnectors(config, server, requestExecutor(config, injector));
+        configFactory.addListener(new LiveSettings(server, limiter, rateLimiter));
         return server;
     }
 
-    private void setupConnectors(final JaxRsServerConfig config, final Server server) {
-        final ServerConnector httpConnector = new ServerConnector(server);
-        httpConnector.setHost("localhost");
-        httpConnector.setPort(config.port());
-        httpConnector.setIdleTimeout(config.idleTimeout().getMillis());
+    private static CompressionHandler compression(final JaxRsServerConfig config, final Handler handler) {
+        final CompressionHandler compression = new CompressionHandler(config.compressionMimeTypes(),
+                config.compressionMinSize().getNumberOfBytes(),
+                config.compressionLevel(),
+                config.compressionCacheSize().getNumberOfBytes());
+        compression.setHandler(handler);
+        return compression;
+    }
+
+    /**
+     * @return the executor that request handling should be handed off to, or null
+     * to handle requests on Jetty's own thread pool.
+     */
+    @Nullable
+    private Executor requestExecutor(final JaxRsServerConfig config, final Injector injector) {
+        switch (config.executor()) {
+            case VIRTUAL:
+                return RequestExecutors.virtualThreads().orElse(null);
+            case BOUND:
+                final Binding<Executor> binding = injector.getExistingBinding(SERVER_EXECUTOR);
+                if (binding == null) {
+                    throw new IllegalStateException("basic.server.executor is BOUND but no Executor is bound with @"
+                            + ServerExecutor.class.getSimpleName());
+                }
+                return binding.getProvider().get();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * TCP first when it's enabled, then the Unix domain socket if there is one. They all serve the
+     * same handlers, and each keeps its own connection statistics.
+     */
+    private void setupConnectors(final JaxRsServerConfig config, final Server server,
+                                 @Nullable final Executor requestExecutor) {
+        final HttpConfiguration httpConfig = new HttpConfiguration();
+        final List<Connector> connectors = new ArrayList<>();
+        if (config.tcpEnabled()) {
+            connectors.addAll(tcpConnectors(config, server, httpConfig, requestExecutor));
+        }
+        if (!config.unixSocketPath().isEmpty()) {
+            final UnixDomainConnector unixConnector = new UnixDomainConnector(server, config.selectors(),
+                    config.unixSocketPath(), config.unixSocketPermissions(),
+                    connectionFactories(config, httpConfig, requestExecutor));
+            unixConnector.setName("unix");
+            unixConnector.setIdleTimeout(config.idleTimeout().getMillis());
+            unixConnector.setAcceptQueueSize(config.acceptQueueSize());
+            unixConnector.addBean(new ConnectionStatistics());
+            connectors.add(unixConnector);
+        }
+        if (connectors.isEmpty()) {
+            throw new IllegalStateException("basic.server.tcp.enabled is false and there's no "
+                    + "basic.server.unix-socket.path, so there's nothing to listen on");
+        }
+        server.setConnectors(connectors.toArray(new Connector[0]));
+    }
+
+    /**
+     * One listener, or as many as basic.server.listeners asks for sharing the port when the runtime
+     * can do that, opened in order so that later ones can find out an ephemeral port from the first.
+     */
+    private static List<ServerConnector> tcpConnectors(final JaxRsServerConfig config, final Server server,
+                                                       final HttpConfiguration httpConfig,
+                                                       @Nullable final Executor requestExecutor) {
+        final int listeners = config.listeners();
+        if (listeners <= 1 || !ReusePortConnector.isSupported()) {
+            if (listeners > 1) {
+                LOG.warn("basic.server.listeners is {} but Java {} can't share a port, so there's just the one",
+                        listeners, System.getProperty("java.version"));
+            }
+            final ServerConnector connector = new ServerConnector(server, null, null, null,
+                    config.acceptors(), config.selectors(), connectionFactories(config, httpConfig, requestExecutor));
+            return Collections.singletonList(tcpSettings(config, connector, "tcp"));
+        }
+        final int acceptors = config.acceptors() < 0 ? 1 : config.acceptors();
+        final int selectors = config.selectors() < 0
+                ? Math.max(1, Runtime.getRuntime().availableProcessors() / 2 / listeners)
+                : config.selectors();
+        final List<ServerConnector> connectors = new ArrayList<>(listeners);
+        ServerConnector first = null;
+        for (int i = 0; i < listeners; i++) {
+            final ReusePortConnector connector = new ReusePortConnector(server,
+                    config.listenerThreadSlices() ? threadSlice(config, i) : null, acceptors, selectors, first,
+                    connectionFactories(config, httpConfig, requestExecutor));
+            connectors.add(tcpSettings(config, connector, "tcp-" + i));
+            if (first == null) {
+                first = connector;
+            }
+        }
+        return connectors;
+    }
+
+    private static ServerConnector tcpSettings(final JaxRsServerConfig config, final ServerConnector connector,
+                                               final String name) {
+        connector.setName(name);
+        connector.setHost(Strings.emptyToNull(config.host()));
+        connector.setPort(config.port());
+        connector.setIdleTimeout(config.idleTimeout().getMillis());
+        connector.setAcceptQueueSize(config.acceptQueueSize());
+        connector.addBean(new ConnectionStatistics());
+        return connector;
+    }
+
+    private static QueuedThreadPool threadSlice(final JaxRsServerConfig config, final int listener) {
+        final QueuedThreadPool slice = config.timingEnabled() ? new TimedThreadPool() : new QueuedThreadPool();
+        slice.setName("lilrest-listener-" + listener);
+        slice.setMaxThreads(Math.max(1, config.maxThreads() / config.listeners()));
+        slice.setMinThreads(Math.min(slice.getMinThreads(), slice.getMaxThreads()));
+        return slice;
+    }
 
-        server.setConnectors(new Connector[]{httpConnector});
+    /**
+     * A fresh set for each connector, since connectors manage the lifecycle of their factories.
+     */
+    private static ConnectionFactory[] connectionFactories(final JaxRsServerConfig config,
+                                                           final HttpConfiguration httpConfig,
+                                                           @Nullable final Executor requestExecutor) {
+        final HttpConnectionFactory http = requestExecutor == null
+                ? new HttpConnectionFactory(httpConfig)
+                : new DispatchingHttpConnectionFactory(httpConfig, requestExecutor);
+        if (config.h2cEnabled()) {
+            final HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(httpConfig);
+            h2c.setMaxConcurrentStreams(config.h2cMaxConcurrentStreams());
+            return new ConnectionFactory[]{http, h2c};
+        }
+        return new ConnectionFactory[]{http};
     }
 
     @Provides
-    public ServletContextHandler servletContext(GuiceResteasyBootstrapServletContextListener resteasyListener,
+    public ServletContextHandler servletContext(JaxRsServerConfig config,
+                                                RequestMetrics requestMetrics,
+                                                ConcurrencyLimiter limiter,
+                                                RateLimiter rateLimiter,
+                                                GuiceResteasyBootstrapServletContextListener resteasyListener,
                                                 GuiceFilter guiceFilter,
                                                 GuiceServletContextListener guiceServletContextListener) {
+        final FilterHolder metricsHolder = new FilterHolder(new RequestMetricsFilter(requestMetrics));
+        metricsHolder.setAsyncSupported(true);
+        final FilterHolder rateLimitHolder = new FilterHolder(new RateLimitFilter(rateLimiter,
+                config.rateLimitKey(), config.rateLimitKey().header(config), config.rateLimitTrustedProxies()));
+        rateLimitHolder.setAsyncSupported(true);
+        final FilterHolder limitHolder = new FilterHolder(new ConcurrencyLimitFilter(limiter, config.limitExemptPaths()));
+        limitHolder.setAsyncSupported(true);
+        final FilterHolder suspendedRequestHolder = new FilterHolder(new SuspendedRequestFilter(
+                config.maxSuspendedRequests(), config.asyncTimeout().getMillis()));
+        suspendedRequestHolder.setAsyncSupported(true);
         final FilterHolder guiceFilterHolder = new FilterHolder(guiceFilter);
+        guiceFilterHolder.setAsyncSupported(true);
         final ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.addFilter(metricsHolder, "/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(rateLimitHolder, "/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(limitHolder, "/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(suspendedRequestHolder, "/*", EnumSet.of(DispatcherType.REQUEST));
+        if (config.timingEnabled()) {
+            final FilterHolder timingHolder = new FilterHolder(new TimingFilter());
+            timingHolder.setAsyncSupported(true);
+            context.addFilter(timingHolder, "/*", EnumSet.of(DispatcherType.REQUEST));
+        }
         context.addFilter(guiceFilterHolder, "/*", EnumSet.allOf(DispatcherType.class));
+        context.addEventListener(new CoalescingFeature.LandingListener());
         context.addEventListener(resteasyListener);
         context.addEventListener(guiceServletContextListener);
         return context;
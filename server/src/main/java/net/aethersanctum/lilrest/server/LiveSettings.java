@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import net.aethersanctum.lilrest.config.ConfigFactory;
+import net.aethersanctum.lilrest.config.ConfigListener;
+import net.aethersanctum.lilrest.limit.ConcurrencyLimiter;
+import net.aethersanctum.lilrest.ratelimit.RateLimiter;
+import org.eclipse.jetty.server.AbstractConnector;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Applies the settings that are safe to change on a running server whenever the config is
+ * reloaded: the thread pool's max threads (and each listener's thread slice, if they have them),
+ * the connectors' idle timeout (for connections made from then on), the concurrency limit and the
+ * rate limits. Everything else needs a restart.
+ */
+final class LiveSettings implements ConfigListener {
+    private static final Logger LOG = LoggerFactory.getLogger(LiveSettings.class);
+
+    private final Server server;
+    private final ConcurrencyLimiter limiter;
+    private final RateLimiter rateLimiter;
+
+    LiveSettings(@Nonnull final Server server, @Nonnull final ConcurrencyLimiter limiter,
+                 @Nonnull final RateLimiter rateLimiter) {
+        this.server = server;
+        this.limiter = limiter;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void configChanged(@Nonnull final ConfigFactory factory) {
+        final JaxRsServerConfig config = factory.extract(JaxRsServerConfig.class);
+        if (server.getThreadPool() instanceof QueuedThreadPool) {
+            resize((QueuedThreadPool) server.getThreadPool(), config.maxThreads());
+        }
+        // the thread slices actually on the server share max-threads between them, whatever listeners says now
+        final Set<QueuedThreadPool> slices = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Connector connector : server.getConnectors()) {
+            final Executor executor = connector.getExecutor();
+            if (executor instanceof QueuedThreadPool && executor != server.getThreadPool()) {
+                slices.add((QueuedThreadPool) executor);
+            }
+        }
+        for (QueuedThreadPool slice : slices) {
+            resize(slice, Math.max(1, config.maxThreads() / slices.size()));
+        }
+        final long idleTimeout = config.idleTimeout().getMillis();
+        for (Connector connector : server.getConnectors()) {
+            if (connector instanceof AbstractConnector && connector.getIdleTimeout() != idleTimeout) {
+                LOG.info("idle timeout {}ms -> {}ms", connector.getIdleTimeout(), idleTimeout);
+                ((AbstractConnector) connector).setIdleTimeout(idleTimeout);
+            }
+        }
+        try {
+            limiter.gradient().setBounds(config.limitMin(), config.limitMax(), config.limitTolerance());
+        } catch (IllegalArgumentException e) {
+            LOG.warn("keeping the old concurrency limit bounds: {}", e.getMessage());
+        }
+        if (limiter.isEnabled() != config.limitEnabled()) {
+            LOG.info("concurrency limit {}", config.limitEnabled() ? "enabled" : "disabled");
+            limiter.setEnabled(config.limitEnabled());
+        }
+        try {
+            rateLimiter.setRules(config.rateLimitEnabled(), JaxRsServerModule.rateLimitRules(config));
+        } catch (IllegalArgumentException e) {
+            LOG.warn("keeping the old rate limits: {}", e.getMessage());
+        }
+    }
+
+    private static void resize(final QueuedThreadPool pool, final int maxThreads) {
+        if (pool.getMaxThreads() != maxThreads) {
+            LOG.info("{} max threads {} -> {}", pool.getName(), pool.getMaxThreads(), maxThreads);
+            pool.setMinThreads(Math.min(pool.getMinThreads(), maxThreads));
+            pool.setMaxThreads(maxThreads);
+        }
+    }
+}
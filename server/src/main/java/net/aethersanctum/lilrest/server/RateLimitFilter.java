@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import net.aethersanctum.lilrest.ratelimit.RateLimitRule;
+import net.aethersanctum.lilrest.ratelimit.RateLimiter;
+
+import javax.annotation.Nullable;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Turns away clients making requests faster than their {@link RateLimiter} rule allows
+ * with a bare 429. Limited responses say how many requests the client has left, and
+ * 429s say how long until it can make another.
+ */
+final class RateLimitFilter implements Filter {
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final RateLimiter limiter;
+    private final RateLimitKey key;
+    private final String header;
+    private final int trustedProxies;
+
+    RateLimitFilter(final RateLimiter limiter, final RateLimitKey key, @Nullable final String header,
+                    final int trustedProxies) {
+        this.limiter = limiter;
+        this.key = key;
+        this.header = header;
+        this.trustedProxies = trustedProxies;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+            throws IOException, ServletException {
+        final HttpServletRequest httpRequest = (HttpServletRequest) request;
+        final RateLimitRule rule = limiter.ruleFor(RequestPaths.of(httpRequest));
+        if (rule == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final long remaining = limiter.take(rule, key.client(httpRequest, header, trustedProxies));
+        final HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.setIntHeader("X-RateLimit-Limit", rule.getBurst());
+        httpResponse.setHeader("X-RateLimit-Remaining", Long.toString(Math.max(0, remaining)));
+        if (remaining < 0) {
+            httpResponse.setStatus(TOO_MANY_REQUESTS);
+            httpResponse.setHeader("Retry-After", Long.toString(RateLimiter.retryAfterSeconds(remaining)));
+            httpResponse.setContentLength(0);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
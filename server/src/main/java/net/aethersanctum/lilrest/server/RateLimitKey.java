@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * What tells one client apart from another for rate limiting. Requests without the
+ * header are told apart by remote address instead.
+ */
+public enum RateLimitKey {
+    /**
+     * The address the connection came from.
+     */
+    REMOTE_ADDRESS,
+
+    /**
+     * The value of basic.server.rate-limit.header, such as X-Forwarded-For behind a proxy, that the
+     * nearest of basic.server.rate-limit.trusted-proxies proxies was given. Values to the left of
+     * that are whatever the client chose to send, so they're ignored.
+     */
+    HEADER,
+
+    /**
+     * The API key in basic.server.rate-limit.api-key-header.
+     */
+    API_KEY;
+
+    /**
+     * @return the header this key is read from, or null if it isn't read from one
+     */
+    @Nullable
+    public String header(@Nonnull final JaxRsServerConfig config) {
+        switch (this) {
+            case HEADER:
+                return config.rateLimitHeader();
+            case API_KEY:
+                return config.rateLimitApiKeyHeader();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param header what {@link #header} returned
+     * @return who is making this request, as far as rate limits are concerned
+     */
+    @Nonnull
+    public String client(@Nonnull final HttpServletRequest request, @Nullable final String header,
+                         final int trustedProxies) {
+        final String value = header == null ? null : request.getHeader(header);
+        if (value == null || value.trim().isEmpty()) {
+            return request.getRemoteAddr();
+        }
+        return this == HEADER ? trustedHop(value, trustedProxies) : value.trim();
+    }
+
+    /**
+     * Proxies append the address they were connected from on the right, so with n of them ours, the
+     * nth value from the right is the furthest one that a proxy, rather than the client, wrote.
+     */
+    static String trustedHop(final String value, final int trustedProxies) {
+        final String[] hops = value.split(",");
+        final int index = Math.max(0, hops.length - Math.max(1, trustedProxies));
+        return hops[index].trim();
+    }
+}
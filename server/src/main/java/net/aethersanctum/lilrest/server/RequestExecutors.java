@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors that request handling can be handed off to. Virtual threads are looked
+ * up reflectively since we still build for, and run on, JDK 8.
+ */
+final class RequestExecutors {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestExecutors.class);
+
+    private RequestExecutors() {
+    }
+
+    /**
+     * @return an executor starting a new, named virtual thread per task, or empty if
+     * this runtime doesn't have virtual threads.
+     */
+    static Optional<Executor> virtualThreads() {
+        try {
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            final Object builder = builderType.getMethod("name", String.class, long.class)
+                    .invoke(Thread.class.getMethod("ofVirtual").invoke(null), "lilrest-request-", 0L);
+            final ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            final Executor executor = (Executor) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+            return Optional.of(executor);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("virtual threads aren't available on Java {}, using the bounded thread pool instead",
+                    System.getProperty("java.version"));
+            LOG.debug("virtual thread lookup failed", e);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Strings;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The path a request will be routed on, for filters that pick rules by path.
+ */
+final class RequestPaths {
+    private static final CharMatcher SLASH = CharMatcher.is('/');
+
+    private RequestPaths() {
+    }
+
+    /**
+     * Decoded, with runs of slashes collapsed, so /%61pi//ping is matched as the /api/ping it'll
+     * reach rather than slipping past rules written for that.
+     */
+    @Nonnull
+    static String of(@Nonnull final HttpServletRequest request) {
+        return SLASH.collapseFrom(request.getServletPath() + Strings.nullToEmpty(request.getPathInfo()), '/');
+    }
+}
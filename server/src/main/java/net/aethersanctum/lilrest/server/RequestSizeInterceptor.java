@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.base.Strings;
+import com.google.common.primitives.Longs;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Holds request bodies to basic.server.max-request-size before any MessageBodyReader sees them.
+ * A Content-Length over it is a 413 without a byte being read, and a body that turns out to be
+ * bigger is cut off with one as soon as it gets there. Stream and Iterator parameters are read an
+ * element at a time, so there it's each element, rather than the whole body, that has to fit.
+ */
+@Provider
+@Singleton
+public final class RequestSizeInterceptor implements ReaderInterceptor {
+    private final long maxBytes;
+
+    @Inject
+    RequestSizeInterceptor(final JaxRsServerConfig config) {
+        this.maxBytes = config.maxRequestSize().getNumberOfBytes();
+    }
+
+    @Override
+    public Object aroundReadFrom(final ReaderInterceptorContext context) throws IOException {
+        if (!StreamingJsonProvider.isStreamed(context.getType())) {
+            final Long length = Longs.tryParse(Strings.nullToEmpty(context.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH)));
+            if (length != null && length > maxBytes) {
+                throw new TooLarge(maxBytes).response();
+            }
+        }
+        context.setInputStream(new LimitedInputStream(context.getInputStream(), maxBytes));
+        try {
+            return context.proceed();
+        } catch (IOException | RuntimeException e) {
+            final TooLarge tooLarge = tooLarge(e);
+            if (tooLarge != null) {
+                throw tooLarge.response();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return what cut a read short for being too large, even where Jackson has wrapped it up, or
+     * null if that isn't why it failed
+     */
+    @Nullable
+    static TooLarge tooLarge(final Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TooLarge) {
+                return (TooLarge) cause;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Thrown from reads that would go past the limit. It's an IOException so that Jackson mostly
+     * passes it along as it is.
+     */
+    static final class TooLarge extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        TooLarge(final long maxBytes) {
+            super("request bodies, and each element of streamed ones, may be at most " + maxBytes + " bytes");
+        }
+
+        WebApplicationException response() {
+            return new WebApplicationException(this, Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+                    .type(MediaType.TEXT_PLAIN_TYPE).entity(getMessage()).build());
+        }
+    }
+
+    /**
+     * Reads no more than the limit past where the current element started. Reads are cut short at
+     * the limit rather than going over it, so that nothing is refused that would have fitted.
+     */
+    static final class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long count;
+        private long limit;
+
+        LimitedInputStream(final InputStream in, final long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.limit = maxBytes;
+        }
+
+        /**
+         * Allows another maxBytes from here, for the next element. Whatever the reader has already
+         * buffered comes free, so an element can take up to twice that.
+         */
+        void nextElement() {
+            limit = count + maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                counted(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (count >= limit) {
+                // only too large if there's more to come
+                return read();
+            }
+            final int n = super.read(b, off, (int) Math.min(len, limit - count));
+            if (n > 0) {
+                counted(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = super.skip(Math.min(n, Math.max(1, limit - count)));
+            counted(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void counted(final long n) throws TooLarge {
+            count += n;
+            if (count > limit) {
+                throw new TooLarge(maxBytes);
+            }
+        }
+    }
+}
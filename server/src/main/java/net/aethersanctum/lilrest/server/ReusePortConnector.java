@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * One of several TCP listeners bound to the same port with SO_REUSEPORT, each with its own
+ * acceptors and selectors, so that the kernel spreads new connections across them rather than
+ * queueing them all for one. SO_REUSEPORT is looked up reflectively since it only arrived in
+ * Java 9.
+ */
+final class ReusePortConnector extends ServerConnector {
+    @Nullable
+    private static final SocketOption<Boolean> SO_REUSEPORT = reusePortOption();
+
+    @Nullable
+    private final ServerConnector first;
+
+    /**
+     * @param executor this listener's own slice of threads, or null to share the server's pool
+     * @param first the listener opened before this one, whose port this one binds when the
+     *              configured port is 0, or null if this is the first
+     */
+    ReusePortConnector(final Server server, @Nullable final Executor executor, final int acceptors,
+                       final int selectors, @Nullable final ServerConnector first,
+                       final ConnectionFactory... factories) {
+        super(server, executor, null, null, acceptors, selectors, factories);
+        this.first = first;
+    }
+
+    /**
+     * @return whether this runtime can share a port between listening sockets
+     */
+    static boolean isSupported() {
+        if (SO_REUSEPORT == null) {
+            return false;
+        }
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lets other sockets bind the port this one is about to, which all of them have to ask for.
+     */
+    static void reusePort(final ServerSocketChannel channel) throws IOException {
+        if (SO_REUSEPORT == null) {
+            throw new IOException("SO_REUSEPORT isn't available on Java " + System.getProperty("java.version"));
+        }
+        channel.setOption(SO_REUSEPORT, true);
+    }
+
+    @Override
+    protected ServerSocketChannel openAcceptChannel() throws IOException {
+        final int port = first != null && getPort() == 0 ? first.getLocalPort() : getPort();
+        final ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.socket().setReuseAddress(getReuseAddress());
+            reusePort(channel);
+            channel.bind(getHost() == null ? new InetSocketAddress(port) : new InetSocketAddress(getHost(), port),
+                    getAcceptQueueSize());
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePortOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Scopes;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Creates every singleton an injector knows about on a small pool. Guice's singleton scope
+ * copes with independent singletons being built concurrently, and with one thread waiting on
+ * another that is already building a shared dependency.
+ */
+final class SingletonInitializer {
+    private SingletonInitializer() {
+    }
+
+    static void initialize(Injector injector, int threads) throws InterruptedException {
+        final List<Key<?>> keys = injector.getAllBindings().values().stream()
+                .filter(Scopes::isSingleton)
+                .map(Binding::getKey)
+                .collect(Collectors.toList());
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder().setNameFormat("lilrest-startup-%d").setDaemon(true).build());
+        try {
+            final List<Future<?>> created = keys.stream()
+                    .map(key -> pool.submit(() -> injector.getInstance(key)))
+                    .collect(Collectors.toList());
+            for (Future<?> singleton : created) {
+                try {
+                    singleton.get();
+                } catch (ExecutionException e) {
+                    Throwables.throwIfUnchecked(e.getCause());
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
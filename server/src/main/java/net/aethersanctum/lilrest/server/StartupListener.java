@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.base.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Holds the listen port while the server is still being built, so that load balancers and
+ * orchestrators see a live but not-yet-ready instance instead of connection refused.
+ *
+ * <p>Every request gets a 503 and its connection closed; /api/health's body says STARTING. Once
+ * the server is ready the socket itself is handed to its connector, so connections arriving
+ * during the switch wait in the accept queue rather than being refused.</p>
+ */
+final class StartupListener {
+    private static final Logger LOG = LoggerFactory.getLogger(StartupListener.class);
+    private static final String HEALTH = "/api/health";
+    private static final String STARTING = "{\"status\":\"STARTING\"}";
+    private static final int POLL_MILLIS = 50;
+    private static final int READ_TIMEOUT_MILLIS = 1000;
+    private static final int MAX_REQUEST_HEAD = 8192;
+
+    private final ServerSocketChannel channel;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean handingOver;
+
+    private StartupListener(ServerSocketChannel channel, Selector selector) {
+        this.channel = channel;
+        this.selector = selector;
+        this.thread = new Thread(this::run, "lilrest-startup-listener");
+        thread.setDaemon(true);
+    }
+
+    static StartupListener open(JaxRsServerConfig config) throws IOException {
+        final ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            final String host = Strings.emptyToNull(config.host());
+            channel.socket().setReuseAddress(true);
+            if (config.listeners() > 1 && ReusePortConnector.isSupported()) {
+                // the other listeners can only join a port whose first socket asked for it too
+                ReusePortConnector.reusePort(channel);
+            }
+            channel.bind(host == null ? new InetSocketAddress(config.port()) : new InetSocketAddress(host, config.port()),
+                    config.acceptQueueSize());
+            channel.configureBlocking(false);
+            final Selector selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+            final StartupListener listener = new StartupListener(channel, selector);
+            listener.thread.start();
+            LOG.info("answering as STARTING on {} until ready", channel.getLocalAddress());
+            return listener;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops answering and returns the still-bound socket, in blocking mode as Jetty expects.
+     */
+    ServerSocketChannel handOver() throws IOException, InterruptedException {
+        stop();
+        channel.configureBlocking(true);
+        return channel;
+    }
+
+    /**
+     * Stops answering and releases the port, for when startup fails.
+     */
+    void close() {
+        try {
+            stop();
+            channel.close();
+        } catch (IOException | InterruptedException e) {
+            LOG.warn("trouble closing startup listener", e);
+        }
+    }
+
+    private void stop() throws IOException, InterruptedException {
+        handingOver = true;
+        selector.wakeup();
+        thread.join();
+        // closing the selector deregisters the channel, which can then go back to blocking
+        selector.close();
+    }
+
+    private void run() {
+        try {
+            while (!handingOver) {
+                if (selector.select(POLL_MILLIS) == 0) {
+                    continue;
+                }
+                selector.selectedKeys().clear();
+                SocketChannel client;
+                while (!handingOver && (client = channel.accept()) != null) {
+                    answer(client);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("startup listener stopped answering", e);
+        }
+    }
+
+    private static void answer(SocketChannel client) {
+        try (Socket socket = client.socket()) {
+            client.configureBlocking(true);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            final String path = requestPath(new BufferedInputStream(socket.getInputStream()));
+            final String body = HEALTH.equals(path) ? STARTING : "";
+            final String response = "HTTP/1.1 503 Service Unavailable\r\n"
+                    + "Retry-After: 1\r\n"
+                    + (body.isEmpty() ? "" : "Content-Type: application/json\r\n")
+                    + "Content-Length: " + body.length() + "\r\n"
+                    + "Connection: close\r\n"
+                    + "\r\n"
+                    + body;
+            final OutputStream out = socket.getOutputStream();
+            out.write(response.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+        } catch (IOException e) {
+            LOG.debug("couldn't answer during startup", e);
+        }
+    }
+
+    /**
+     * Reads the request head and returns the path from its request line, without any query.
+     */
+    private static String requestPath(InputStream in) throws IOException {
+        final StringBuilder head = new StringBuilder();
+        int c;
+        while (head.length() < MAX_REQUEST_HEAD && (c = in.read()) >= 0) {
+            head.append((char) c);
+            final int n = head.length();
+            if (c == '\n' && n >= 4 && head.charAt(n - 2) == '\r' && head.charAt(n - 3) == '\n') {
+                break;
+            }
+        }
+        final String[] requestLine = head.toString().split("\r\n", 2)[0].split(" ");
+        if (requestLine.length < 2) {
+            return "";
+        }
+        final String target = requestLine[1];
+        final int query = target.indexOf('?');
+        return query < 0 ? target : target.substring(0, query);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.Scopes;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.spi.ProvisionListener;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Where startup time went: loading configuration, each module's configure(), building the
+ * injector, every singleton provisioned along the way and starting Jetty.
+ *
+ * <p>Singleton times are inclusive, so a singleton's dependencies are counted again under it.</p>
+ */
+public final class StartupReport implements ProvisionListener {
+    private static final int SLOWEST = 10;
+
+    private final long began = System.nanoTime();
+    private final Map<String, Duration> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, Duration> modules = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<Key<?>, Duration> singletons = new ConcurrentHashMap<>();
+    private volatile boolean recording = true;
+    private volatile Duration total;
+
+    <T> T time(String phase, Callable<T> work) throws Exception {
+        final long start = System.nanoTime();
+        try {
+            return work.call();
+        } finally {
+            phases.put(phase, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Wraps a module so that its configure() is timed when the injector installs it.
+     */
+    Module timed(Module module) {
+        return binder -> {
+            final long start = System.nanoTime();
+            binder.install(module);
+            modules.put(name(module), Duration.ofNanos(System.nanoTime() - start));
+        };
+    }
+
+    /**
+     * Installs this as a provision listener, which is how singleton times are collected.
+     */
+    Module listener() {
+        return binder -> binder.bindListener(Matchers.any(), this);
+    }
+
+    @Override
+    public <T> void onProvision(ProvisionInvocation<T> provision) {
+        if (recording && Scopes.isSingleton(provision.getBinding())) {
+            final long start = System.nanoTime();
+            provision.provision();
+            singletons.put(provision.getBinding().getKey(), Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    void finish() {
+        recording = false;
+        total = Duration.ofNanos(System.nanoTime() - began);
+    }
+
+    /**
+     * From construction of the server to Jetty having started, or null if it hasn't yet.
+     */
+    public Duration total() {
+        return total;
+    }
+
+    public Map<String, Duration> phases() {
+        return copy(phases);
+    }
+
+    public Map<String, Duration> modules() {
+        return copy(modules);
+    }
+
+    /**
+     * Singletons provisioned during startup, slowest first.
+     */
+    public Map<Key<?>, Duration> singletons() {
+        return singletons.entrySet().stream()
+                .sorted(Map.Entry.<Key<?>, Duration>comparingByValue().reversed())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("started in ").append(millis(total));
+        sb.append("\n  phases: ").append(format(phases()));
+        sb.append("\n  modules: ").append(format(modules()));
+        sb.append("\n  slowest singletons: ").append(singletons().entrySet().stream()
+                .limit(SLOWEST)
+                .map(e -> describe(e.getKey()) + " " + millis(e.getValue()))
+                .collect(Collectors.joining(", ")));
+        return sb.toString();
+    }
+
+    private static String format(Map<String, Duration> times) {
+        return times.entrySet().stream()
+                .map(e -> e.getKey() + " " + millis(e.getValue()))
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String millis(Duration duration) {
+        return duration == null ? "-" : String.format("%.1fms", duration.toNanos() / 1e6);
+    }
+
+    private static String describe(Key<?> key) {
+        final String type = key.getTypeLiteral().getRawType().getSimpleName();
+        return key.getAnnotationType() == null ? type : "@" + key.getAnnotationType().getSimpleName() + " " + type;
+    }
+
+    private static String name(Module module) {
+        final String name = module.getClass().getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static <K> Map<K, Duration> copy(Map<K, Duration> map) {
+        synchronized (map) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.io.ByteStreams;
+import org.eclipse.jetty.server.HttpOutput;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One file or classpath resource as it was when last looked at, and its bytes if it's small
+ * enough to keep: mapped for files, copied for resources inside jars.
+ */
+final class StaticContent {
+    @Nullable
+    private final Path file;
+    @Nullable
+    private final URL resource;
+    private final long length;
+    private final long lastModified;
+    private final String etag;
+    @Nullable
+    private final ByteBuffer buffer;
+
+    private StaticContent(@Nullable final Path file, @Nullable final URL resource, final long length,
+                          final long lastModified, @Nullable final ByteBuffer buffer) {
+        this.file = file;
+        this.resource = resource;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+        this.buffer = buffer == null ? null : buffer.asReadOnlyBuffer();
+    }
+
+    static StaticContent ofFile(final Path file, final long length, final long lastModified,
+                                @Nullable final ByteBuffer mapped) {
+        return new StaticContent(file, null, length, lastModified, mapped);
+    }
+
+    static StaticContent ofResource(final URL resource, final long length, final long lastModified,
+                                    @Nullable final ByteBuffer copied) {
+        return new StaticContent(null, resource, length, lastModified, copied);
+    }
+
+    long length() {
+        return length;
+    }
+
+    long lastModified() {
+        return lastModified;
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    boolean isCached() {
+        return buffer != null;
+    }
+
+    boolean isCurrent(final long currentLength, final long currentLastModified) {
+        return length == currentLength && lastModified == currentLastModified;
+    }
+
+    /**
+     * Writes count bytes from offset. Jetty's output takes mapped and direct buffers as they are,
+     * so file content never passes through the heap; big files are mapped a window at a time.
+     */
+    void writeTo(final OutputStream out, final long offset, final long count, final long window) throws IOException {
+        if (buffer != null) {
+            final ByteBuffer slice = buffer.duplicate();
+            // through Buffer, as ByteBuffer's covariant overrides only exist from Java 9
+            ((Buffer) slice).limit((int) (offset + count)).position((int) offset);
+            write(out, slice);
+        } else if (file != null) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final long end = offset + count;
+                for (long position = offset; position < end; position += window) {
+                    write(out, channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(window, end - position)));
+                }
+            }
+        } else if (resource != null) {
+            try (InputStream in = resource.openStream()) {
+                ByteStreams.skipFully(in, offset);
+                ByteStreams.copy(ByteStreams.limit(in, count), out);
+            }
+        }
+    }
+
+    private static void write(final OutputStream out, final ByteBuffer content) throws IOException {
+        if (out instanceof HttpOutput) {
+            ((HttpOutput) out).write(content);
+            return;
+        }
+        final WritableByteChannel channel = Channels.newChannel(out);
+        while (content.hasRemaining()) {
+            channel.write(content);
+        }
+    }
+}
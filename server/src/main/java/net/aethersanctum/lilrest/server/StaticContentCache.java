@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Looks up static files and classpath resources for every StaticContentModule, keeping the small
+ * ones in memory up to a total size. Files are checked for changes on every lookup, which is one
+ * stat; resources inside jars are taken not to change.
+ */
+@Singleton
+final class StaticContentCache {
+    private final Cache<String, StaticContent> cache;
+    private final long maxCachedFile;
+
+    @Inject
+    StaticContentCache(@Nonnull final JaxRsServerConfig config) {
+        this.maxCachedFile = Math.min(Integer.MAX_VALUE, config.staticMaxCachedFile().getNumberOfBytes());
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(config.staticCacheSize().getNumberOfBytes())
+                .weigher((String key, StaticContent content) -> (int) Math.max(1, content.length()))
+                .build();
+    }
+
+    /**
+     * @return null if there's no regular file there
+     */
+    @Nullable
+    StaticContent file(final Path file) throws IOException {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        final long length = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final String key = file.toString();
+        final StaticContent cached = cache.getIfPresent(key);
+        if (cached != null && cached.isCurrent(length, lastModified)) {
+            return cached;
+        }
+        if (length > maxCachedFile) {
+            cache.invalidate(key);
+            return StaticContent.ofFile(file, length, lastModified, null);
+        }
+        final StaticContent content;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            content = StaticContent.ofFile(file, length, lastModified,
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+        cache.put(key, content);
+        return content;
+    }
+
+    /**
+     * @return null if the resource is a directory
+     */
+    @Nullable
+    StaticContent resource(final URL resource) throws IOException {
+        final String key = resource.toString();
+        final StaticContent cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final URLConnection connection = resource.openConnection();
+        if (connection instanceof JarURLConnection && ((JarURLConnection) connection).getJarEntry().isDirectory()) {
+            return null;
+        }
+        final long length = connection.getContentLengthLong();
+        final long lastModified = connection.getLastModified();
+        if (length > maxCachedFile) {
+            connection.getInputStream().close();
+            return StaticContent.ofResource(resource, length, lastModified, null);
+        }
+        final byte[] bytes;
+        try (InputStream in = connection.getInputStream()) {
+            bytes = ByteStreams.toByteArray(in);
+        }
+        final ByteBuffer copy = ByteBuffer.allocateDirect(bytes.length);
+        ((Buffer) copy.put(bytes)).flip();
+        final StaticContent content = StaticContent.ofResource(resource, bytes.length, lastModified, copy);
+        if (bytes.length > maxCachedFile) {
+            // didn't say how big it was, and turned out too big to keep
+            return content;
+        }
+        cache.put(key, content);
+        return content;
+    }
+}
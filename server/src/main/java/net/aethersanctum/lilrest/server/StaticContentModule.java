@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.inject.servlet.ServletModule;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Serves the files in a directory, or the resources under a classpath prefix, at a path of
+ * their own. Install one in your main module for each place files come from:
+ * <pre>
+ *     install(new StaticContentModule("/ui", "classpath:ui"));
+ *     install(new StaticContentModule("/exports", "/var/data/exports"));
+ * </pre>
+ * Small files are kept in memory up to basic.server.static.cache-size, mapped rather than
+ * read, and bigger ones are mapped a window at a time while they're sent, so bytes go from the
+ * page cache to the socket without passing through the heap. Responses carry ETag and
+ * Last-Modified and answer conditional requests with a 304; a single Range gets a 206. Where
+ * a file has a .gz sibling, clients accepting gzip are sent that instead. Paths ending in /
+ * serve their index.html.
+ */
+public final class StaticContentModule extends ServletModule {
+    private static final String CLASSPATH = "classpath:";
+
+    private final String urlPath;
+    private final String location;
+
+    /**
+     * @param urlPath where to serve them, e.g. /ui; must not be empty, as that would hide every resource
+     * @param location a directory, or classpath: followed by a resource prefix
+     */
+    public StaticContentModule(@Nonnull final String urlPath, @Nonnull final String location) {
+        if (!urlPath.startsWith("/") || urlPath.length() < 2 || urlPath.endsWith("/")) {
+            throw new IllegalArgumentException("static content needs a path like /ui, not '" + urlPath + "'");
+        }
+        this.urlPath = urlPath;
+        this.location = location;
+    }
+
+    @Override
+    protected void configureServlets() {
+        final Path directory;
+        final String resourcePrefix;
+        if (location.startsWith(CLASSPATH)) {
+            directory = null;
+            resourcePrefix = trimSlashes(location.substring(CLASSPATH.length()));
+        } else {
+            directory = Paths.get(location).toAbsolutePath().normalize();
+            resourcePrefix = null;
+        }
+        serve(urlPath, urlPath + "/*").with(new StaticContentServlet(directory, resourcePrefix,
+                getProvider(StaticContentCache.class), getProvider(JaxRsServerConfig.class)));
+    }
+
+    private static String trimSlashes(final String prefix) {
+        int start = 0;
+        int end = prefix.length();
+        while (start < end && prefix.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && prefix.charAt(end - 1) == '/') {
+            end--;
+        }
+        return prefix.substring(start, end);
+    }
+}
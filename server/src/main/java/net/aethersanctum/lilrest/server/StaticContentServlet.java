@@ -0,0 +1,258 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.inject.Provider;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Serves GET and HEAD for one directory or classpath prefix, see {@link StaticContentModule}.
+ */
+final class StaticContentServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final String INDEX = "index.html";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final Splitter COMMA = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    @Nullable
+    private final transient Path directory;
+    @Nullable
+    private final String resourcePrefix;
+    private final transient Provider<StaticContentCache> cacheProvider;
+    private final transient Provider<JaxRsServerConfig> configProvider;
+
+    StaticContentServlet(@Nullable final Path directory, @Nullable final String resourcePrefix,
+                         final Provider<StaticContentCache> cacheProvider,
+                         final Provider<JaxRsServerConfig> configProvider) {
+        this.directory = directory;
+        this.resourcePrefix = resourcePrefix;
+        this.cacheProvider = cacheProvider;
+        this.configProvider = configProvider;
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        serve(request, response, true);
+    }
+
+    @Override
+    protected void doHead(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        serve(request, response, false);
+    }
+
+    private void serve(final HttpServletRequest request, final HttpServletResponse response, final boolean body)
+            throws IOException {
+        String path = Strings.isNullOrEmpty(request.getPathInfo()) ? "/" : request.getPathInfo();
+        if (path.endsWith("/")) {
+            path += INDEX;
+        }
+        final StaticContent plain = isSafe(request.getRequestURI(), path) ? lookup(path) : null;
+        if (plain == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        final JaxRsServerConfig config = configProvider.get();
+        final String range = request.getHeader(HttpHeader.RANGE.asString());
+        final StaticContent gzipped = lookup(path + GZIP_SUFFIX);
+        final boolean sendGzipped = gzipped != null && range == null
+                && ContentEncoding.negotiate(request.getHeader(HttpHeader.ACCEPT_ENCODING.asString()))
+                == ContentEncoding.GZIP;
+        final StaticContent content = sendGzipped ? gzipped : plain;
+
+        response.setContentType(contentType(path));
+        response.setDateHeader(HttpHeader.LAST_MODIFIED.asString(), content.lastModified());
+        response.setHeader(HttpHeader.ETAG.asString(), content.etag());
+        response.setHeader(HttpHeader.ACCEPT_RANGES.asString(), "bytes");
+        if (!config.staticCacheControl().isEmpty()) {
+            response.setHeader(HttpHeader.CACHE_CONTROL.asString(), config.staticCacheControl());
+        }
+        if (gzipped != null) {
+            response.setHeader(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+        }
+        if (sendGzipped) {
+            response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), ContentEncoding.GZIP.token());
+        } else if (!content.isCached()) {
+            // compressing on the fly would copy every window of a big file through the heap
+            request.setAttribute(CompressionHandler.UNCOMPRESSED, Boolean.TRUE);
+        }
+        if (notModified(request, content)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long offset = 0;
+        long count = content.length();
+        if (range != null && ifRangeMatches(request, content)) {
+            final long[] bounds = parseRange(range, content.length());
+            if (bounds == UNSATISFIABLE) {
+                response.setHeader(HttpHeader.CONTENT_RANGE.asString(), "bytes */" + content.length());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                offset = bounds[0];
+                count = bounds[1] - bounds[0] + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeader.CONTENT_RANGE.asString(),
+                        "bytes " + bounds[0] + "-" + bounds[1] + "/" + content.length());
+            }
+        }
+        response.setContentLengthLong(count);
+        if (body && count > 0) {
+            content.writeTo(response.getOutputStream(), offset, count,
+                    config.staticMapWindow().getNumberOfBytes());
+        }
+    }
+
+    @Nullable
+    private StaticContent lookup(final String path) throws IOException {
+        final StaticContentCache cache = cacheProvider.get();
+        if (directory != null) {
+            final Path file = directory.resolve(path.substring(1)).normalize();
+            return file.startsWith(directory) ? cache.file(file) : null;
+        }
+        final URL resource = getClass().getClassLoader().getResource(resourcePrefix + path);
+        if (resource == null) {
+            return null;
+        }
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                return cache.file(Paths.get(resource.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        return cache.resource(resource);
+    }
+
+    /**
+     * No climbing out of the root, and nothing hidden. The path info is already decoded, so an
+     * encoded separator in the raw URI would otherwise pass for a real one, and an empty segment
+     * would make the rest of the path absolute.
+     */
+    private static boolean isSafe(final String requestUri, final String path) {
+        final String rawUri = requestUri.toLowerCase(Locale.ROOT);
+        if (rawUri.contains("%2f") || rawUri.contains("%5c") || !path.startsWith("/")) {
+            return false;
+        }
+        for (String segment : Splitter.on('/').split(path.substring(1))) {
+            if (segment.isEmpty() || segment.startsWith(".") || segment.indexOf('\\') >= 0
+                    || segment.indexOf('\0') >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String contentType(final String path) {
+        final String type = getServletContext().getMimeType(path);
+        if (type != null) {
+            return type;
+        }
+        final String byExtension = MimeTypes.getDefaultMimeByExtension(path);
+        return byExtension == null ? "application/octet-stream" : byExtension;
+    }
+
+    private static boolean notModified(final HttpServletRequest request, final StaticContent content) {
+        final String ifNoneMatch = request.getHeader(HttpHeader.IF_NONE_MATCH.asString());
+        if (ifNoneMatch != null) {
+            for (String tag : COMMA.split(ifNoneMatch)) {
+                if (tag.equals("*") || tag.equals(content.etag()) || tag.equals("W/" + content.etag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        final long ifModifiedSince = dateHeader(request, HttpHeader.IF_MODIFIED_SINCE.asString());
+        return ifModifiedSince >= 0 && content.lastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * A Range only counts if If-Range, when there is one, still describes what we have.
+     */
+    private static boolean ifRangeMatches(final HttpServletRequest request, final StaticContent content) {
+        final String ifRange = request.getHeader(HttpHeader.IF_RANGE.asString());
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(content.etag());
+        }
+        final long date = dateHeader(request, HttpHeader.IF_RANGE.asString());
+        return date >= 0 && content.lastModified() / 1000 <= date / 1000;
+    }
+
+    private static long dateHeader(final HttpServletRequest request, final String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Only a single range is honoured; for anything else the whole thing is sent, which RFC 7233
+     * allows.
+     *
+     * @return first and last byte, null to send everything, or {@link #UNSATISFIABLE}
+     */
+    @Nullable
+    static long[] parseRange(final String header, final long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        final String spec = header.substring("bytes=".length()).trim();
+        final int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            final long first;
+            final long last;
+            if (dash == 0) {
+                final long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = dash == spec.length() - 1 ? length - 1
+                        : Math.min(length - 1, Long.parseLong(spec.substring(dash + 1)));
+                if (last < first) {
+                    return first < length ? null : UNSATISFIABLE;
+                }
+            }
+            return first < length ? new long[] {first, last} : UNSATISFIABLE;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.reflect.TypeToken;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Writes {@link Stream}, {@link Iterator} and {@link ElementProducer} results an element
+ * at a time, as a JSON array or as newline delimited JSON, so nothing bigger than one
+ * element is ever held in memory. Output is flushed after the first element and then
+ * every {@value #FLUSH_EVERY} elements. Streams, and iterators that are
+ * {@link AutoCloseable}, are closed once written, including when the client disconnects.
+ *
+ * <p>Resource methods can take a {@link Stream} or {@link Iterator} body the same way. It's
+ * read from a JSON array or newline delimited JSON an element at a time as the method consumes
+ * it, so a big upload can be worked through while the client is still sending, in constant
+ * memory. It has to be consumed before the method returns.</p>
+ */
+@Provider
+@Singleton
+@Consumes({MediaType.APPLICATION_JSON, StreamingJsonProvider.APPLICATION_NDJSON})
+@Produces({MediaType.APPLICATION_JSON, StreamingJsonProvider.APPLICATION_NDJSON})
+public final class StreamingJsonProvider implements MessageBodyWriter<Object>, MessageBodyReader<Object> {
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON_TYPE = MediaType.valueOf(APPLICATION_NDJSON);
+
+    static final int FLUSH_EVERY = 1000;
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+
+    @Inject
+    StreamingJsonProvider(final ObjectMapper mapper) {
+        this.mapper = mapper;
+        // we decide when to flush, not Jackson
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @return whether a body of this type is read an element at a time
+     */
+    static boolean isStreamed(final Class<?> type) {
+        return Stream.class.equals(type) || Iterator.class.equals(type);
+    }
+
+    @Override
+    public boolean isReadable(final Class<?> type, final Type genericType, final Annotation[] annotations,
+                              final MediaType mediaType) {
+        return isStreamed(type);
+    }
+
+    @Override
+    public Object readFrom(final Class<Object> type, final Type genericType, final Annotation[] annotations,
+                           final MediaType mediaType, final MultivaluedMap<String, String> httpHeaders,
+                           final InputStream entityStream) throws IOException {
+        final boolean ndjson = APPLICATION_NDJSON_TYPE.isCompatible(mediaType);
+        final Type elementType = elementType(type, genericType);
+        final ObjectReader reader = elementType == null
+                ? mapper.readerFor(Object.class)
+                : mapper.readerFor(mapper.constructType(elementType));
+        final JsonParser parser = mapper.getFactory().createParser(entityStream);
+        try {
+            if (!ndjson && parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                throw new BadRequestException("expected a JSON array");
+            }
+        } catch (JsonProcessingException e) {
+            parser.close();
+            throw new BadRequestException("couldn't read body: " + e.getOriginalMessage(), e);
+        }
+        final BodyElements elements = new BodyElements(parser, reader, ndjson,
+                entityStream instanceof RequestSizeInterceptor.LimitedInputStream
+                        ? (RequestSizeInterceptor.LimitedInputStream) entityStream
+                        : null);
+        if (Iterator.class.equals(type)) {
+            return elements;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED), false)
+                .onClose(elements::close);
+    }
+
+    @Override
+    public boolean isWriteable(final Class<?> type, final Type genericType, final Annotation[] annotations,
+                               final MediaType mediaType) {
+        return Stream.class.isAssignableFrom(type)
+                || Iterator.class.isAssignableFrom(type)
+                || ElementProducer.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(final Object o, final Class<?> type, final Type genericType, final Annotation[] annotations,
+                        final MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(final Object source, final Class<?> type, final Type genericType, final Annotation[] annotations,
+                        final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders,
+                        final OutputStream entityStream) throws IOException {
+        final boolean ndjson = APPLICATION_NDJSON_TYPE.isCompatible(mediaType);
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(entityStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            final Elements elements = new Elements(generator, elementWriter(type, genericType), ndjson);
+            elements.start();
+            if (source instanceof Stream) {
+                try (Stream<?> stream = (Stream<?>) source) {
+                    stream.forEachOrdered(elements);
+                }
+            } else if (source instanceof Iterator) {
+                try {
+                    ((Iterator<?>) source).forEachRemaining(elements);
+                } finally {
+                    closeIfCloseable(source);
+                }
+            } else {
+                ((ElementProducer<?>) source).produce(elements);
+            }
+            elements.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("producing a streamed response failed", e);
+        }
+    }
+
+    /**
+     * Uses the declared element type if there is one, like Jackson does for collections.
+     */
+    private ObjectWriter elementWriter(final Class<?> type, final Type genericType) {
+        final Type elementType = elementType(type, genericType);
+        return elementType == null ? writer : writer.forType(mapper.constructType(elementType));
+    }
+
+    /**
+     * @return the declared element type, or null if there isn't one
+     */
+    @Nullable
+    private static Type elementType(final Class<?> type, final Type genericType) {
+        final Class<?> container = Stream.class.isAssignableFrom(type) ? Stream.class
+                : Iterator.class.isAssignableFrom(type) ? Iterator.class
+                : ElementProducer.class;
+        final Type elementType = TypeToken.of(genericType == null ? type : genericType)
+                .resolveType(container.getTypeParameters()[0]).getType();
+        return elementType instanceof TypeVariable || elementType == Object.class ? null : elementType;
+    }
+
+    private static void closeIfCloseable(final Object source) throws IOException {
+        if (source instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) source).close();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static final class Elements implements Consumer<Object> {
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+        private final boolean ndjson;
+        private long written;
+
+        Elements(final JsonGenerator generator, final ObjectWriter writer, final boolean ndjson) {
+            this.generator = generator;
+            this.writer = writer;
+            this.ndjson = ndjson;
+        }
+
+        void start() throws IOException {
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+        }
+
+        @Override
+        public void accept(final Object element) {
+            try {
+                writer.writeValue(generator, element);
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+                if (++written % FLUSH_EVERY == 1) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void end() throws IOException {
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    /**
+     * Reads the next element of a request body each time it's asked for one. Malformed elements are
+     * a 400, and elements that are too big a 413, thrown from the resource method iterating.
+     */
+    private static final class BodyElements implements Iterator<Object>, Closeable {
+        private final JsonParser parser;
+        private final ObjectReader reader;
+        private final boolean ndjson;
+        @Nullable
+        private final RequestSizeInterceptor.LimitedInputStream limited;
+        private Object next;
+        private boolean fetched;
+        private boolean done;
+
+        BodyElements(final JsonParser parser, final ObjectReader reader, final boolean ndjson,
+                     @Nullable final RequestSizeInterceptor.LimitedInputStream limited) {
+            this.parser = parser;
+            this.reader = reader;
+            this.ndjson = ndjson;
+            this.limited = limited;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!fetched && !done) {
+                fetch();
+            }
+            return !done;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            fetched = false;
+            final Object element = next;
+            next = null;
+            return element;
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // only the request body is let go of, and the request is over or failing anyway
+            }
+        }
+
+        private void fetch() {
+            try {
+                if (limited != null) {
+                    limited.nextElement();
+                }
+                final JsonToken token = parser.nextToken();
+                if (token == null || (!ndjson && token == JsonToken.END_ARRAY)) {
+                    close();
+                    return;
+                }
+                next = reader.readValue(parser);
+                fetched = true;
+            } catch (IOException e) {
+                close();
+                final RequestSizeInterceptor.TooLarge tooLarge = RequestSizeInterceptor.tooLarge(e);
+                if (tooLarge != null) {
+                    throw tooLarge.response();
+                }
+                if (e instanceof JsonProcessingException) {
+                    throw new BadRequestException("couldn't read element: "
+                            + ((JsonProcessingException) e).getOriginalMessage(), e);
+                }
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of requests which were suspended by async resources, bounds how many
+ * of them there can be at once, and gives them a timeout if the resource didn't.
+ * Since we can't tell in advance which requests will suspend, each request takes a
+ * slot on the way in and gives it back if it didn't suspend; once the slots run out
+ * new requests are turned away with a 503 until some of the suspended ones finish.
+ */
+final class SuspendedRequestFilter implements Filter {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final int maxSuspended;
+    private final long timeoutMillis;
+    private final AtomicInteger suspended = new AtomicInteger();
+    private final AsyncListener completion = new Completion();
+
+    SuspendedRequestFilter(final int maxSuspended, final long timeoutMillis) {
+        this.maxSuspended = maxSuspended;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+            throws IOException, ServletException {
+        if (suspended.incrementAndGet() > maxSuspended && maxSuspended > 0) {
+            suspended.decrementAndGet();
+            final HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        boolean keptSlot = false;
+        try {
+            chain.doFilter(request, response);
+
+            if (request.isAsyncStarted()) {
+                final AsyncContext context = request.getAsyncContext();
+                // RESTEasy suspends without a timeout unless the resource asked for one
+                if (context.getTimeout() <= 0 && timeoutMillis > 0) {
+                    context.setTimeout(timeoutMillis);
+                }
+                context.addListener(completion);
+                keptSlot = true;
+            }
+        } finally {
+            if (!keptSlot) {
+                suspended.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * @return how many requests are suspended, or being dispatched and might yet suspend
+     */
+    int suspendedRequests() {
+        return suspended.get();
+    }
+
+    /**
+     * Timeouts and errors always end in completion too, so that's the only place we count.
+     */
+    private final class Completion implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            suspended.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
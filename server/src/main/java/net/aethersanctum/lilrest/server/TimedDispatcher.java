@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import net.aethersanctum.lilrest.timing.Phase;
+import net.aethersanctum.lilrest.timing.RequestTiming;
+import org.jboss.resteasy.plugins.server.servlet.HttpServlet30Dispatcher;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * The RESTEasy dispatcher, ending the {@link Phase#SCOPE} phase of timed requests once the Guice
+ * filter has handed them over.
+ */
+final class TimedDispatcher extends HttpServlet30Dispatcher {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean timing;
+
+    @Inject
+    TimedDispatcher(final JaxRsServerConfig config) {
+        this.timing = config.timingEnabled();
+    }
+
+    @Override
+    public void service(final String httpMethod, final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException {
+        if (timing) {
+            final RequestTiming requestTiming = (RequestTiming) request.getAttribute(RequestTiming.ATTRIBUTE);
+            if (requestTiming != null) {
+                requestTiming.mark(Phase.SCOPE);
+            }
+        }
+        super.service(httpMethod, request, response);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.unixsocket.UnixSocketConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Listens on a Unix domain socket, with the same handlers as the TCP connector. A socket file left
+ * behind by a server that didn't get to clean up is replaced; anything else in the way is an error.
+ * The socket is bound in a private directory beside its path and moved into place once it has its
+ * permissions, so the directory it ends up in needs to be writable by us.
+ */
+final class UnixDomainConnector extends UnixSocketConnector {
+    private static final Logger LOG = LoggerFactory.getLogger(UnixDomainConnector.class);
+
+    private final Path path;
+    private final Set<PosixFilePermission> permissions;
+
+    UnixDomainConnector(final Server server, final int selectors, @Nonnull final String path,
+                        @Nonnull final String permissions, final ConnectionFactory... factories) {
+        super(server, null, null, null, selectors, factories);
+        this.path = Paths.get(path).toAbsolutePath();
+        this.permissions = PosixFilePermissions.fromString(permissions);
+        setUnixSocket(this.path.toString());
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (isOpen()) {
+            return;
+        }
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            if (!Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+                throw new IOException("won't listen on " + path + " since something other than a socket is there");
+            }
+            LOG.info("replacing stale socket {}", path);
+            Files.delete(path);
+        }
+        final Path directory = path.getParent();
+        if (directory == null) {
+            throw new IOException("can't listen on " + path + " since it isn't in a directory");
+        }
+        // bound in a directory only we can get into, so no one can connect before the permissions are right
+        final Path staging = Files.createTempDirectory(directory, ".lilrest-",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        final Path staged = staging.resolve("s");
+        try {
+            setUnixSocket(staged.toString());
+            super.open();
+            Files.setPosixFilePermissions(staged, permissions);
+            Files.move(staged, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        } finally {
+            setUnixSocket(path.toString());
+            Files.deleteIfExists(staging);
+        }
+    }
+}
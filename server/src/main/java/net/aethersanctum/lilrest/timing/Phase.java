@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.timing;
+
+import java.util.Locale;
+
+/**
+ * The stretches a timed request's time is split into, in the order they happen. Each is stamped
+ * when it ends, and starts where the one before it ended.
+ */
+public enum Phase {
+    /** Waiting in Jetty's thread pool for a thread; ends when the request reaches the handlers. */
+    QUEUE,
+    /** Jetty's handlers and our servlet filters, up to the Guice filter. */
+    FILTERS,
+    /** The Guice filter entering request scope, up to the RESTEasy dispatcher. */
+    SCOPE,
+    /** RESTEasy finding the resource method, including pre-matching filters. */
+    ROUTING,
+    /** Request filters and the resource method, up to the response being ready. */
+    RESOURCE,
+    /** Writing the entity out, through the message body writer. */
+    SERIALIZATION;
+
+    private final String label = name().toLowerCase(Locale.ROOT);
+
+    /**
+     * The name used for it in Server-Timing headers and the slowest requests.
+     */
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.timing;
+
+import javax.annotation.Nonnull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When each {@link Phase} of one timed request ended, kept as a request attribute. Only requests
+ * that asked for timing, or were sampled, get one, so untimed requests cost nothing more than
+ * the attribute lookup.
+ */
+public final class RequestTiming {
+    public static final String ATTRIBUTE = RequestTiming.class.getName();
+    public static final String HEADER = "Server-Timing";
+
+    private final long queueNanos;
+    private final long receivedAt;
+    private final long[] ends = new long[Phase.values().length];
+
+    /**
+     * @param queueNanos how long the request waited for a thread, or 0 if it didn't
+     * @param receivedAt nanoTime the request reached the handlers
+     */
+    RequestTiming(final long queueNanos, final long receivedAt) {
+        this.queueNanos = queueNanos;
+        this.receivedAt = receivedAt;
+        ends[Phase.QUEUE.ordinal()] = receivedAt;
+    }
+
+    /**
+     * Notes that a phase just ended.
+     */
+    public void mark(@Nonnull final Phase phase) {
+        ends[phase.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * Time from the request being queued, or reaching the handlers if it wasn't, until now.
+     */
+    public long totalNanos(final long now) {
+        return queueNanos + now - receivedAt;
+    }
+
+    /**
+     * The phases that have ended so far, each with how long it took. A phase the request skipped,
+     * such as routing for something RESTEasy never saw, is counted in the next one it didn't.
+     */
+    @Nonnull
+    public Map<Phase, Long> phaseNanos() {
+        final Map<Phase, Long> phases = new LinkedHashMap<>();
+        if (queueNanos > 0) {
+            phases.put(Phase.QUEUE, queueNanos);
+        }
+        long start = receivedAt;
+        for (Phase phase : Phase.values()) {
+            final long end = ends[phase.ordinal()];
+            if (phase != Phase.QUEUE && end != 0) {
+                phases.put(phase, end - start);
+                start = end;
+            }
+        }
+        return phases;
+    }
+
+    /**
+     * The phases so far and the total, as a Server-Timing header value in milliseconds.
+     */
+    @Nonnull
+    public String serverTiming(final long now) {
+        final StringBuilder header = new StringBuilder(128);
+        phaseNanos().forEach((phase, nanos) -> appendMetric(header, phase.label(), nanos).append(", "));
+        return appendMetric(header, "total", totalNanos(now)).toString();
+    }
+
+    private static StringBuilder appendMetric(final StringBuilder header, final String name, final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        final long fraction = micros % 1000;
+        header.append(name).append(";dur=").append(micros / 1000).append('.');
+        if (fraction < 100) {
+            header.append(fraction < 10 ? "00" : "0");
+        }
+        return header.append(fraction);
+    }
+}
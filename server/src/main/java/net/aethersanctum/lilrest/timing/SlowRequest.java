@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.timing;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One of the slowest recent requests, with where its time went.
+ */
+public final class SlowRequest {
+    private final String method;
+    private final String uri;
+    private final int status;
+    private final long timestamp;
+    private final long totalMicros;
+    private final Map<String, Long> phaseMicros;
+
+    public SlowRequest(@Nonnull final String method, @Nonnull final String uri, final int status,
+                       final long timestamp, final long totalMicros, @Nonnull final Map<String, Long> phaseMicros) {
+        this.method = method;
+        this.uri = uri;
+        this.status = status;
+        this.timestamp = timestamp;
+        this.totalMicros = totalMicros;
+        this.phaseMicros = Collections.unmodifiableMap(phaseMicros);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * When the request finished, in epoch milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    /**
+     * Microseconds spent in each {@link Phase} the request went through, in order.
+     */
+    public Map<String, Long> getPhaseMicros() {
+        return phaseMicros;
+    }
+}
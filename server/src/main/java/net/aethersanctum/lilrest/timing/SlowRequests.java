@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.timing;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The slowest timed requests of the last window, up to a fixed number of them. Requests no slower
+ * than the quickest one kept are turned away without taking the lock, so once the buffer is full
+ * most offers are two volatile reads.
+ */
+public final class SlowRequests {
+    private static final Comparator<SlowRequest> QUICKEST_FIRST = Comparator.comparingLong(SlowRequest::getTotalMicros);
+
+    private final int size;
+    private final long windowMillis;
+    /** Quickest first, so it's the one to make way for a slower request. */
+    private final PriorityQueue<SlowRequest> slowest;
+    /** What a request has to beat to get in, while nothing has expired. */
+    private volatile long floorMicros;
+    /** When the oldest request kept falls out of the window, lowering the floor. */
+    private volatile long floorExpires;
+
+    public SlowRequests(final int size, final long windowMillis) {
+        this.size = size;
+        this.windowMillis = windowMillis;
+        this.slowest = new PriorityQueue<>(Math.max(1, size), QUICKEST_FIRST);
+    }
+
+    /**
+     * Whether a request taking this long would be kept, so callers can skip building one that
+     * wouldn't.
+     */
+    public boolean wouldKeep(final long totalMicros, final long now) {
+        return size > 0 && (totalMicros > floorMicros || now >= floorExpires);
+    }
+
+    public void offer(@Nonnull final SlowRequest request) {
+        if (!wouldKeep(request.getTotalMicros(), request.getTimestamp())) {
+            return;
+        }
+        synchronized (slowest) {
+            expire(request.getTimestamp());
+            if (slowest.size() < size) {
+                slowest.add(request);
+            } else if (request.getTotalMicros() > slowest.peek().getTotalMicros()) {
+                slowest.poll();
+                slowest.add(request);
+            }
+            updateFloor();
+        }
+    }
+
+    /**
+     * The requests kept, slowest first.
+     */
+    @Nonnull
+    public List<SlowRequest> slowest() {
+        final List<SlowRequest> requests;
+        synchronized (slowest) {
+            expire(System.currentTimeMillis());
+            updateFloor();
+            requests = new ArrayList<>(slowest);
+        }
+        requests.sort(QUICKEST_FIRST.reversed());
+        return requests;
+    }
+
+    private void expire(final long now) {
+        slowest.removeIf(request -> request.getTimestamp() <= now - windowMillis);
+    }
+
+    private void updateFloor() {
+        long oldest = Long.MAX_VALUE;
+        for (SlowRequest request : slowest) {
+            oldest = Math.min(oldest, request.getTimestamp());
+        }
+        floorExpires = oldest == Long.MAX_VALUE ? Long.MAX_VALUE : oldest + windowMillis;
+        floorMicros = slowest.size() < size ? -1 : slowest.peek().getTotalMicros();
+    }
+}
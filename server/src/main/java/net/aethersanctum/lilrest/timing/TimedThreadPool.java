@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.timing;
+
+import org.eclipse.jetty.util.thread.Invocable;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Jetty's thread pool, noting how long connection tasks wait in its queue for a thread so
+ * {@link TimingHandler} can charge it to the first request the task handles.
+ *
+ * <p>Only tasks Jetty marks {@link Invocable}, which are the ones reading and writing connections,
+ * are timed: selector, acceptor and reserved threads also run as pool jobs but live for as long as
+ * the server does. A request that's handed straight to a waiting thread didn't queue, and has no
+ * queue phase.</p>
+ */
+public final class TimedThreadPool extends QueuedThreadPool {
+    private static final ThreadLocal<long[]> QUEUE_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public void execute(final Runnable job) {
+        super.execute(job instanceof Invocable ? new Queued(job, System.nanoTime()) : job);
+    }
+
+    /**
+     * How long the task this thread is running waited for it, the first time it's asked; 0 after
+     * that, or if the task didn't wait in this pool.
+     */
+    public static long takeQueueNanos() {
+        final long[] queued = QUEUE_NANOS.get();
+        final long nanos = queued[0];
+        queued[0] = 0;
+        return nanos;
+    }
+
+    private static final class Queued implements Runnable {
+        private final Runnable job;
+        private final long queuedAt;
+
+        Queued(final Runnable job, final long queuedAt) {
+            this.job = job;
+            this.queuedAt = queuedAt;
+        }
+
+        @Override
+        public void run() {
+            final long[] queued = QUEUE_NANOS.get();
+            queued[0] = Math.max(1, System.nanoTime() - queuedAt);
+            try {
+                job.run();
+            } finally {
+                queued[0] = 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return job.toString();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.timing;
+
+import com.google.common.collect.ImmutableMap;
+import net.aethersanctum.lilrest.server.ElementProducer;
+import net.aethersanctum.lilrest.server.JaxRsServerConfig;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Stamps the routing, resource and serialization phases of timed requests, and gives them their
+ * Server-Timing header. The header has to go out before the body, so the entity of a timed
+ * request is serialized into a buffer first, unless it's one that's meant to be streamed; those
+ * get the header without the serialization phase.
+ */
+@Provider
+public final class TimingFeature implements DynamicFeature {
+    private static final Stamps STAMPS = new Stamps();
+
+    private final boolean enabled;
+
+    @Inject
+    TimingFeature(final JaxRsServerConfig config) {
+        this.enabled = config.timingEnabled();
+    }
+
+    @Override
+    public void configure(final ResourceInfo resourceInfo, final FeatureContext context) {
+        if (enabled) {
+            // first of the request filters and writer interceptors, and first of the response filters,
+            // which run highest priority first
+            context.register(STAMPS, ImmutableMap.of(
+                    ContainerRequestFilter.class, Integer.MIN_VALUE,
+                    ContainerResponseFilter.class, Integer.MAX_VALUE,
+                    WriterInterceptor.class, Integer.MIN_VALUE));
+        }
+    }
+
+    private static final class Stamps implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+        @Override
+        public void filter(final ContainerRequestContext request) {
+            final RequestTiming timing = (RequestTiming) request.getProperty(RequestTiming.ATTRIBUTE);
+            if (timing != null) {
+                timing.mark(Phase.ROUTING);
+            }
+        }
+
+        @Override
+        public void filter(final ContainerRequestContext request, final ContainerResponseContext response) {
+            final RequestTiming timing = (RequestTiming) request.getProperty(RequestTiming.ATTRIBUTE);
+            if (timing == null) {
+                return;
+            }
+            timing.mark(Phase.RESOURCE);
+            if (!response.hasEntity()) {
+                response.getHeaders().putSingle(RequestTiming.HEADER, timing.serverTiming(System.nanoTime()));
+            }
+        }
+
+        @Override
+        public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+            final RequestTiming timing = (RequestTiming) context.getProperty(RequestTiming.ATTRIBUTE);
+            if (timing == null) {
+                context.proceed();
+                return;
+            }
+            if (streamed(context.getType())) {
+                context.getHeaders().putSingle(RequestTiming.HEADER, timing.serverTiming(System.nanoTime()));
+                try {
+                    context.proceed();
+                } finally {
+                    timing.mark(Phase.SERIALIZATION);
+                }
+                return;
+            }
+            final OutputStream out = context.getOutputStream();
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            context.setOutputStream(buffer);
+            try {
+                context.proceed();
+            } finally {
+                context.setOutputStream(out);
+                timing.mark(Phase.SERIALIZATION);
+            }
+            context.getHeaders().putSingle(RequestTiming.HEADER, timing.serverTiming(System.nanoTime()));
+            buffer.writeTo(out);
+        }
+
+        private static boolean streamed(final Class<?> type) {
+            return Stream.class.isAssignableFrom(type)
+                    || Iterator.class.isAssignableFrom(type)
+                    || ElementProducer.class.isAssignableFrom(type)
+                    || StreamingOutput.class.isAssignableFrom(type)
+                    || InputStream.class.isAssignableFrom(type)
+                    || Reader.class.isAssignableFrom(type)
+                    || File.class.isAssignableFrom(type);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.timing;
+
+import org.eclipse.jetty.server.HttpChannelState;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.annotation.Nonnull;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outermost handler, deciding which requests are timed: those carrying the timing request header,
+ * and a sample of the rest. A timed request gets a {@link RequestTiming} for the later stages to
+ * stamp, and once it's complete is offered to the {@link SlowRequests}.
+ */
+public final class TimingHandler extends HandlerWrapper {
+    private final String requestHeader;
+    private final double sampleRate;
+    private final SlowRequests slowRequests;
+    private final AsyncListener onCompletion = new AsyncListener() {
+        @Override
+        public void onComplete(final AsyncEvent event) {
+            final Request request = Request.getBaseRequest(event.getSuppliedRequest());
+            if (request != null) {
+                finish(request);
+            }
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    };
+
+    /**
+     * @param requestHeader the header clients send to have their request timed
+     * @param sampleRate the fraction of other requests to time
+     */
+    public TimingHandler(@Nonnull final String requestHeader, final double sampleRate,
+                         @Nonnull final SlowRequests slowRequests) {
+        this.requestHeader = requestHeader;
+        this.sampleRate = sampleRate;
+        this.slowRequests = slowRequests;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        final long queueNanos = TimedThreadPool.takeQueueNanos();
+        final HttpChannelState state = baseRequest.getHttpChannelState();
+        if (!state.isInitial()) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+        if (request.getHeader(requestHeader) == null
+                && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+        baseRequest.setAttribute(RequestTiming.ATTRIBUTE, new RequestTiming(queueNanos, System.nanoTime()));
+        try {
+            super.handle(target, baseRequest, request, response);
+        } finally {
+            if (state.isSuspended()) {
+                state.addListener(onCompletion);
+            } else {
+                finish(baseRequest);
+            }
+        }
+    }
+
+    private void finish(final Request request) {
+        final RequestTiming timing = (RequestTiming) request.getAttribute(RequestTiming.ATTRIBUTE);
+        if (timing == null) {
+            return;
+        }
+        final long totalMicros = TimeUnit.NANOSECONDS.toMicros(timing.totalNanos(System.nanoTime()));
+        final long now = System.currentTimeMillis();
+        if (!slowRequests.wouldKeep(totalMicros, now)) {
+            return;
+        }
+        final Map<String, Long> phaseMicros = new LinkedHashMap<>();
+        timing.phaseNanos().forEach((phase, nanos) -> phaseMicros.put(phase.label(), TimeUnit.NANOSECONDS.toMicros(nanos)));
+        slowRequests.offer(new SlowRequest(request.getMethod(), request.getRequestURI(),
+                request.getResponse().getStatus(), now, totalMicros, phaseMicros));
+    }
+}
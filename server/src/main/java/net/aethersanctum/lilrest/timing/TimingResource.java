@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.timing;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+
+/**
+ * The slowest recently timed requests and where their time went, slowest first. Empty unless
+ * basic.server.timing.enabled is set and some requests have been timed.
+ */
+@Singleton
+@Path("/api/timing")
+public final class TimingResource {
+    private final SlowRequests slowRequests;
+
+    @Inject
+    TimingResource(@Nonnull final SlowRequests slowRequests) {
+        this.slowRequests = slowRequests;
+    }
+
+    @GET
+    @Path("/slowest")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Nonnull
+    public List<SlowRequest> slowest() {
+        return slowRequests.slowest();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.io.ByteStreams;
+import net.aethersanctum.lilrest.accesslog.AccessLogRing;
+import net.aethersanctum.lilrest.accesslog.AccessRecord;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class AccessLogTest {
+    private static final Path DIRECTORY = createDirectory();
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(TestServer::new,
+            "basic.server.access-log.enabled", "true",
+            "basic.server.access-log.file", DIRECTORY.resolve("access-yyyy_mm_dd.log").toString());
+
+    @AfterClass
+    public static void removeDirectory() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(DIRECTORY);
+    }
+
+    @Test
+    public void ringDropsWhenFull() {
+        final AccessLogRing ring = new AccessLogRing(3);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i, "GET", "/" + i, "HTTP/1.1", 200, 0, 1, "127.0.0.1"));
+        }
+        assertFalse(ring.offer(4, "GET", "/4", "HTTP/1.1", 200, 0, 1, "127.0.0.1"));
+        assertEquals(1, ring.dropped());
+
+        final List<String> uris = new ArrayList<>();
+        assertEquals(4, ring.drain(record -> uris.add(record.getUri()), 10));
+        assertEquals("[/0, /1, /2, /3]", uris.toString());
+        assertTrue(ring.offer(5, "GET", "/5", "HTTP/1.1", 200, 0, 1, "127.0.0.1"));
+        assertEquals(1, ring.drain(record -> uris.add(record.getUri()), 10));
+        assertEquals("/5", uris.get(4));
+    }
+
+    @Test
+    public void everyRecordWrittenOrCounted() throws Exception {
+        final AccessLogRing ring = new AccessLogRing(64);
+        final int threads = 8;
+        final int each = 20_000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicBoolean torn = new AtomicBoolean();
+        for (int t = 0; t < threads; t++) {
+            final String uri = "/thread/" + t;
+            new Thread(() -> {
+                for (int i = 0; i < each; i++) {
+                    ring.offer(i, "GET", uri, "HTTP/1.1", 200, i, i, "127.0.0.1");
+                }
+                done.countDown();
+            }).start();
+        }
+        long drained = 0;
+        final java.util.function.Consumer<AccessRecord> check = record -> {
+            if (record.getBytes() != record.getTimestamp() || !record.getUri().startsWith("/thread/")) {
+                torn.set(true);
+            }
+        };
+        while (done.getCount() > 0) {
+            drained += ring.drain(check, 16);
+        }
+        drained += ring.drain(check, Integer.MAX_VALUE);
+        assertFalse(torn.get());
+        assertEquals((long) threads * each, drained + ring.dropped());
+    }
+
+    @Test
+    public void requestsLoggedToFile() throws Exception {
+        fetch("/api/ping");
+        fetch("/nothing/here");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String log = "";
+        while (System.nanoTime() < deadline && !log.contains("/nothing/here")) {
+            TimeUnit.MILLISECONDS.sleep(20);
+            log = readLogs();
+        }
+        assertTrue(log, log.matches("(?s).*127\\.0\\.0\\.1 - - \\[[^]]+\\] \"GET /api/ping HTTP/1.1\" 200 \\d+ \\d+\n.*"));
+        assertTrue(log, log.contains("\"GET /nothing/here HTTP/1.1\" 404 "));
+        final String metrics = fetch("/api/metrics");
+        assertTrue(metrics, metrics.contains("\"accessLog\":{\"written\":"));
+    }
+
+    private static String fetch(final String relativeLink) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        try {
+            final int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return in == null ? "" : new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String readLogs() throws IOException {
+        final StringBuilder all = new StringBuilder();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY, "access-*.log")) {
+            for (Path file : files) {
+                all.append(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        return all.toString();
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("lilrest-access-log");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+
+import com.google.inject.servlet.ServletModule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class AsyncResourceTest {
+    private static final ExecutorService BACKGROUND = Executors.newCachedThreadPool();
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(AsyncServer::new,
+            "basic.server.async.timeout", "300ms",
+            "basic.server.async.max-suspended", "2");
+
+    @Test
+    public void completionStageIsResumedWithItsValue() throws Exception {
+        assertEquals("later", fetch("/async/stage"));
+    }
+
+    @Test
+    public void completionStageValueIsWrittenAsItsOwnType() throws Exception {
+        assertEquals("[\"a\",\"b\"]", fetch("/async/list"));
+    }
+
+    @Test
+    public void failedCompletionStageIsMappedLikeAnyException() throws Exception {
+        assertEquals(409, status("/async/failed"));
+    }
+
+    @Test
+    public void suspendedAsyncResponseIsResumed() throws Exception {
+        assertEquals("resumed", fetch("/async/suspended"));
+    }
+
+    @Test
+    public void suspendedRequestTimesOut() throws Exception {
+        assertEquals(503, status("/async/never"));
+    }
+
+    @Test
+    public void simultaneousRequestsCannotOvershootTheCap() throws Exception {
+        // all three get as far as the resource before any of them suspends, unless the cap turns one away
+        final List<Future<Integer>> statuses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            statuses.add(BACKGROUND.submit(() -> status("/async/gathered")));
+        }
+        int rejected = 0;
+        for (Future<Integer> status : statuses) {
+            if (status.get() == 503) {
+                rejected++;
+            } else {
+                assertEquals(200, (int) status.get());
+            }
+        }
+        assertEquals(1, rejected);
+    }
+
+    private static String fetch(final String relativeLink) throws IOException {
+        try (InputStreamReader is = new InputStreamReader(serverRule.url(relativeLink).openStream());
+             Scanner scanner = new Scanner(is)) {
+            return scanner.nextLine();
+        }
+    }
+
+    private static int status(final String relativeLink) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    public static class AsyncServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(AsyncResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Produces(MediaType.TEXT_PLAIN)
+    @Path("/async")
+    public static class AsyncResource {
+        private static final CountDownLatch GATHERED = new CountDownLatch(3);
+
+        @GET
+        @Path("/stage")
+        public CompletionStage<String> stage() {
+            return CompletableFuture.supplyAsync(() -> {
+                sleep(50);
+                return "later";
+            }, BACKGROUND);
+        }
+
+        @GET
+        @Path("/list")
+        @Produces(MediaType.APPLICATION_JSON)
+        public CompletionStage<List<String>> list() {
+            return CompletableFuture.supplyAsync(() -> Arrays.asList("a", "b"), BACKGROUND);
+        }
+
+        @GET
+        @Path("/failed")
+        public CompletionStage<String> failed() {
+            return CompletableFuture.supplyAsync(() -> {
+                throw new WebApplicationException(409);
+            }, BACKGROUND);
+        }
+
+        @GET
+        @Path("/suspended")
+        public void suspended(@Suspended final AsyncResponse response) {
+            BACKGROUND.execute(() -> {
+                sleep(50);
+                response.resume("resumed");
+            });
+        }
+
+        @GET
+        @Path("/gathered")
+        public void gathered(@Suspended final AsyncResponse response) throws InterruptedException {
+            GATHERED.countDown();
+            GATHERED.await(1, TimeUnit.SECONDS);
+            BACKGROUND.execute(() -> response.resume("gathered"));
+        }
+
+        @GET
+        @Path("/never")
+        public void never(@Suspended final AsyncResponse response) {
+        }
+
+        private static void sleep(final long millis) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.google.inject.servlet.ServletModule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class BatchTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(BatchServer::new,
+            "basic.server.batch.max-size", "4",
+            "basic.server.batch.timeout", "500ms");
+
+    @Test
+    public void itemsAnsweredInOrder() throws Exception {
+        final JsonNode results = batch("[{\"path\":\"/b/echo/1\"},"
+                + "{\"path\":\"/api/ping\"},"
+                + "{\"path\":\"/b/missing\"},"
+                + "{\"method\":\"POST\",\"path\":\"/b/sum\",\"body\":[1,2,3]}]", 200);
+        assertEquals(4, results.size());
+        assertEquals(200, results.get(0).get("status").asInt());
+        assertEquals(1, results.get(0).get("body").get("n").asInt());
+        assertEquals(200, results.get(1).get("status").asInt());
+        assertEquals("/api/ping", results.get(1).get("body").get("requestUri").asText());
+        assertEquals(404, results.get(2).get("status").asInt());
+        assertEquals(200, results.get(3).get("status").asInt());
+        assertEquals("6", results.get(3).get("body").asText());
+    }
+
+    @Test
+    public void subRequestsSeeTheirOwnPaths() throws Exception {
+        final JsonNode results = batch("[{\"path\":\"/b/where/a%20b?x=1\"}]", 200);
+        assertEquals(200, results.get(0).get("status").asInt());
+        assertEquals("GET  /b/where/a b /b/where/a%20b x=1", results.get(0).get("body").asText());
+    }
+
+    @Test
+    public void tooManyItemsRejected() throws Exception {
+        batch("[{\"path\":\"/api/ping\"},{\"path\":\"/api/ping\"},{\"path\":\"/api/ping\"},"
+                + "{\"path\":\"/api/ping\"},{\"path\":\"/api/ping\"}]", 413);
+    }
+
+    @Test
+    public void slowItemsTimeOut() throws Exception {
+        final long start = System.nanoTime();
+        final JsonNode results = batch("[{\"path\":\"/b/echo/2\"},{\"path\":\"/b/slow\"},"
+                + "{\"method\":\"POST\",\"path\":\"/b/sum\",\"body\":[1]}]", 200);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(200, results.get(0).get("status").asInt());
+        assertEquals(504, results.get(1).get("status").asInt());
+        assertEquals(504, results.get(2).get("status").asInt());
+    }
+
+    @Test
+    public void badPathsRejectedPerItem() throws Exception {
+        final JsonNode results = batch("[{\"path\":\"b/echo/3\"},{\"method\":\"POST\",\"path\":\"/api/batch\",\"body\":[]},"
+                + "{\"path\":\"/b/echo/a b\"},{\"path\":\"/b/echo/{n}\"}]", 200);
+        assertEquals(400, results.get(0).get("status").asInt());
+        assertEquals(400, results.get(1).get("status").asInt());
+        for (int i = 2; i < 4; i++) {
+            assertEquals(400, results.get(i).get("status").asInt());
+            assertEquals("path must be a valid URI path and query", results.get(i).get("body").asText());
+        }
+    }
+
+    @Test
+    public void badMethodsRejectedPerItem() throws Exception {
+        final JsonNode results = batch("[{\"method\":\"BREW\",\"path\":\"/api/ping\"},"
+                + "{\"method\":\"G ET\",\"path\":\"/api/ping\"},{\"method\":\"get\",\"path\":\"/api/ping\"}]", 200);
+        assertEquals(400, results.get(0).get("status").asInt());
+        assertEquals(400, results.get(1).get("status").asInt());
+        assertEquals(200, results.get(2).get("status").asInt());
+    }
+
+    @Test
+    public void nullItemsRejected() throws Exception {
+        batch("[null]", 400);
+        batch("[{\"path\":\"/api/ping\"},null]", 400);
+    }
+
+    @Test
+    public void nestedBatchesRejectedHoweverSpelled() throws Exception {
+        final JsonNode results = batch("[{\"method\":\"POST\",\"path\":\"/api/./batch\",\"body\":[]},"
+                + "{\"method\":\"POST\",\"path\":\"/api//batch\",\"body\":[]},"
+                + "{\"method\":\"POST\",\"path\":\"/b/../api/batch\",\"body\":[{\"path\":\"/api/ping\"}]}]", 200);
+        for (JsonNode result : results) {
+            assertEquals(result.toString(), 400, result.get("status").asInt());
+            assertEquals("batches can't be nested", result.get("body").asText());
+        }
+    }
+
+    @Test
+    public void subRequestsAreRecordedInMetrics() throws Exception {
+        batch("[{\"path\":\"/b/echo/7\"},{\"path\":\"/b/echo/8\"}]", 200);
+        final JsonNode report = batch("[{\"path\":\"/api/metrics\"}]", 200).get(0).get("body");
+        long count = 0;
+        for (JsonNode endpoint : report.get("endpoints")) {
+            if (endpoint.get("path").asText().equals("/b/echo/{n}")) {
+                count = endpoint.get("count").asLong();
+            }
+        }
+        assertTrue(report.toString(), count >= 2);
+    }
+
+    @Test
+    public void subRequestsAreRateLimitedEach() throws Throwable {
+        final ServerRule limited = new ServerRule(BatchServer::new,
+                "basic.server.rate-limit.enabled", "true",
+                "basic.server.rate-limit.routes", "/api/ping=1/2");
+        limited.before();
+        try {
+            final JsonNode results = batch(limited,
+                    "[{\"path\":\"/api/ping\"},{\"path\":\"/api/ping\"},{\"path\":\"/api/ping\"}]", 200);
+            int tooMany = 0;
+            for (JsonNode result : results) {
+                assertEquals("2", result.get("headers").get("X-RateLimit-Limit").asText());
+                if (result.get("status").asInt() == 429) {
+                    assertEquals("1", result.get("headers").get("Retry-After").asText());
+                    tooMany++;
+                } else {
+                    assertEquals(results.toString(), 200, result.get("status").asInt());
+                }
+            }
+            assertEquals(results.toString(), 1, tooMany);
+
+            for (JsonNode result : batch(limited, "[{\"path\":\"/api/%70ing\"},{\"path\":\"//api//ping\"}]", 200)) {
+                assertEquals(result.toString(), 429, result.get("status").asInt());
+            }
+        } finally {
+            limited.after();
+        }
+    }
+
+    private static JsonNode batch(final String json, final int expectedStatus) throws IOException {
+        return batch(serverRule, json, expectedStatus);
+    }
+
+    private static JsonNode batch(final ServerRule rule, final String json, final int expectedStatus) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) rule.url("/api/batch").openConnection();
+        try {
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", MediaType.APPLICATION_JSON);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+            final int status = connection.getResponseCode();
+            assertEquals(expectedStatus, status);
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return status < 400 ? MAPPER.readTree(ByteStreams.toByteArray(in)) : null;
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    public static class BatchServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(BatchedResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Path("/b")
+    public static class BatchedResource {
+        @GET
+        @Path("/echo/{n}")
+        @Produces(MediaType.APPLICATION_JSON)
+        public String echo(@PathParam("n") final int n) {
+            return "{\"n\":" + n + "}";
+        }
+
+        @GET
+        @Path("/where/{name}")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String where(@Context final HttpServletRequest request) {
+            return request.getMethod() + " " + request.getServletPath() + " " + request.getPathInfo() + " "
+                    + request.getRequestURI() + " " + request.getQueryString();
+        }
+
+        @GET
+        @Path("/slow")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String slow() throws InterruptedException {
+            TimeUnit.SECONDS.sleep(5);
+            return "late";
+        }
+
+        @POST
+        @Path("/sum")
+        @Consumes(MediaType.APPLICATION_JSON)
+        @Produces(MediaType.TEXT_PLAIN)
+        public String sum(final int[] numbers) {
+            int sum = 0;
+            for (int number : numbers) {
+                sum += number;
+            }
+            return String.valueOf(sum);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import javax.inject.Singleton;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.io.ByteStreams;
+import com.google.inject.servlet.ServletModule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+public class BinaryFormatsTest {
+    private static final String ORDER = "A-1/3/true/[red, big]/Optional[wrapped]/2018-01-02";
+    private static final String ORDER_JSON = "{\"sku\":\"A-1\",\"quantity\":3,\"gift\":true,\"tags\":[\"red\",\"big\"],"
+            + "\"note\":\"wrapped\",\"due\":[2018,1,2],\"display\":\"A-1 x3\"}";
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(BinaryServer::new);
+
+    @Test
+    public void smile() throws Exception {
+        roundTrip(BinaryJacksonProvider.APPLICATION_SMILE, new SmileFactory());
+    }
+
+    @Test
+    public void cbor() throws Exception {
+        roundTrip(BinaryJacksonProvider.APPLICATION_CBOR, new CBORFactory());
+    }
+
+    @Test
+    public void msgpack() throws Exception {
+        roundTrip(BinaryJacksonProvider.APPLICATION_MSGPACK, new MessagePackFactory());
+    }
+
+    @Test
+    public void jsonStaysTheDefault() throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url("/binary/order").openConnection();
+        try {
+            assertEquals(MediaType.APPLICATION_JSON, connection.getContentType());
+            assertEquals(ORDER_JSON, new String(read(connection), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Fetches an order in the format, checks it decodes, then posts the same bytes back and gets JSON.
+     */
+    private static void roundTrip(final String mediaType, final JsonFactory format) throws IOException {
+        final byte[] encoded;
+        HttpURLConnection connection = (HttpURLConnection) serverRule.url("/binary/order").openConnection();
+        try {
+            connection.setRequestProperty("Accept", mediaType);
+            assertEquals(mediaType, connection.getContentType());
+            encoded = read(connection);
+        } finally {
+            connection.disconnect();
+        }
+        final Order order = new JaxRsServerModule().customMapper(format)
+                .readValue(encoded, Order.class);
+        assertEquals(ORDER, order.toString());
+
+        connection = (HttpURLConnection) serverRule.url("/binary/order").openConnection();
+        try {
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", mediaType);
+            connection.setRequestProperty("Accept", MediaType.APPLICATION_JSON);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(encoded);
+            }
+            assertEquals(ORDER_JSON, new String(read(connection), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static byte[] read(final HttpURLConnection connection) throws IOException {
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    public static class BinaryServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(OrderResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Path("/binary")
+    @Produces({MediaType.APPLICATION_JSON, BinaryJacksonProvider.APPLICATION_SMILE,
+            BinaryJacksonProvider.APPLICATION_CBOR, BinaryJacksonProvider.APPLICATION_MSGPACK})
+    @Consumes({MediaType.APPLICATION_JSON, BinaryJacksonProvider.APPLICATION_SMILE,
+            BinaryJacksonProvider.APPLICATION_CBOR, BinaryJacksonProvider.APPLICATION_MSGPACK})
+    public static class OrderResource {
+        @GET
+        @Path("/order")
+        public Order order() {
+            return new Order("A-1", 3, true, Arrays.asList("red", "big"), Optional.of("wrapped"),
+                    LocalDate.of(2018, 1, 2));
+        }
+
+        @POST
+        @Path("/order")
+        public Order echo(final Order order) {
+            return order;
+        }
+    }
+
+    /**
+     * A creator, a renamed getter, an ignored getter and a few kinds of value, to be read and
+     * written the same way in every format.
+     */
+    public static final class Order {
+        private final LocalDate due;
+        private final String sku;
+        private final int quantity;
+        private final boolean gift;
+        private final List<String> tags;
+        private final Optional<String> note;
+
+        @JsonCreator
+        public Order(@JsonProperty(value = "sku", required = true) String sku,
+                     @JsonProperty("quantity") int quantity,
+                     @JsonProperty("gift") boolean gift,
+                     @JsonProperty("tags") List<String> tags,
+                     @JsonProperty("note") Optional<String> note,
+                     @JsonProperty("due") LocalDate due) {
+            this.sku = sku;
+            this.quantity = quantity;
+            this.gift = gift;
+            this.tags = tags;
+            this.note = note;
+            this.due = due;
+        }
+
+        public LocalDate getDue() {
+            return due;
+        }
+
+        public String getSku() {
+            return sku;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public boolean isGift() {
+            return gift;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public Optional<String> getNote() {
+            return note;
+        }
+
+        @JsonIgnore
+        public int getTotal() {
+            return quantity * 2;
+        }
+
+        @JsonProperty("display")
+        public String getDisplayName() {
+            return sku + " x" + quantity;
+        }
+
+        @Override
+        public String toString() {
+            return sku + "/" + quantity + "/" + gift + "/" + tags + "/" + note + "/" + due;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.coalesce.Coalesced;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class CoalescingTest {
+    private static final ExecutorService CLIENTS = Executors.newFixedThreadPool(10);
+    private static final AtomicInteger SLOW_CALLS = new AtomicInteger();
+    private static final AtomicInteger SLOWER_CALLS = new AtomicInteger();
+    private static final AtomicInteger FAILING_CALLS = new AtomicInteger();
+    private static final AtomicInteger THROWING_CALLS = new AtomicInteger();
+    private static final AtomicInteger CAPPED_CALLS = new AtomicInteger();
+    private static final AtomicInteger HEADED_CALLS = new AtomicInteger();
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(CoalescingServer::new);
+
+    @AfterClass
+    public static void stopClients() {
+        CLIENTS.shutdownNow();
+    }
+
+    @Test
+    public void identicalRequestsShareOneCall() throws Exception {
+        final List<String> bodies = concurrently(10, "/coalesce/slow?name=a");
+        assertEquals(1, SLOW_CALLS.get());
+        for (String body : bodies) {
+            assertEquals("200 a", body);
+        }
+        assertEquals(10, requestCount("GET", "/coalesce/slow"));
+        assertEquals("200 b", concurrently(1, "/coalesce/slow?name=b").get(0));
+        assertEquals(2, SLOW_CALLS.get());
+    }
+
+    @Test
+    public void waitersGoAheadAloneAfterMaxWait() throws Exception {
+        concurrently(3, "/coalesce/slower");
+        assertEquals(3, SLOWER_CALLS.get());
+    }
+
+    @Test
+    public void waitersGoAheadAloneWhenLeaderFails() throws Exception {
+        for (String body : concurrently(3, "/coalesce/failing")) {
+            assertEquals("409 ", body);
+        }
+        assertEquals(3, FAILING_CALLS.get());
+    }
+
+    @Test
+    public void waitersGoAheadAloneWhenLeaderThrows() throws Exception {
+        final long start = System.nanoTime();
+        for (String body : concurrently(3, "/coalesce/throwing")) {
+            assertTrue(body, body.startsWith("500 "));
+        }
+        assertTrue(fetch("/coalesce/throwing").startsWith("500 "));
+        assertEquals(4, THROWING_CALLS.get());
+        // well short of the 5s maxWait that a flight that never landed would hold each of them up for
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+    }
+
+    @Test
+    public void waitersPastTheCapGoAheadAlone() throws Exception {
+        for (String body : concurrently(6, "/coalesce/capped")) {
+            assertEquals("200 done", body);
+        }
+        assertEquals(4, CAPPED_CALLS.get());
+    }
+
+    @Test
+    public void waitersGetTheLeadersHeadersButNotItsCookies() throws Exception {
+        final List<String> headers = concurrently(5, "/coalesce/headed", connection -> {
+            connection.getResponseCode();
+            return connection.getHeaderField("Cache-Control") + " " + connection.getHeaderField("X-Flavour")
+                    + " " + connection.getHeaderField("Set-Cookie");
+        });
+        assertEquals(1, HEADED_CALLS.get());
+        int cookies = 0;
+        for (String header : headers) {
+            if (header.equals("max-age=60 plain leader=yes")) {
+                cookies++;
+            } else {
+                assertEquals("max-age=60 plain null", header);
+            }
+        }
+        assertEquals(1, cookies);
+    }
+
+    private static long requestCount(final String method, final String path) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url("/api/metrics").openConnection();
+        connection.setRequestProperty("Accept", MediaType.APPLICATION_JSON);
+        try (InputStream in = connection.getInputStream()) {
+            for (JsonNode endpoint : new ObjectMapper().readTree(in).get("endpoints")) {
+                if (endpoint.get("method").asText().equals(method) && endpoint.get("path").asText().equals(path)) {
+                    return endpoint.get("count").asLong();
+                }
+            }
+        }
+        return 0;
+    }
+
+    private interface Exchange {
+        String with(HttpURLConnection connection) throws IOException;
+    }
+
+    private static List<String> concurrently(final int count, final String relativeLink) throws Exception {
+        return concurrently(count, relativeLink, CoalescingTest::read);
+    }
+
+    private static List<String> concurrently(final int count, final String relativeLink, final Exchange exchange)
+            throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(CLIENTS.submit((Callable<String>) () -> {
+                start.await();
+                final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+                try {
+                    return exchange.with(connection);
+                } finally {
+                    connection.disconnect();
+                }
+            }));
+        }
+        start.countDown();
+        final List<String> bodies = new ArrayList<>();
+        for (Future<String> result : results) {
+            bodies.add(result.get(10, TimeUnit.SECONDS));
+        }
+        return bodies;
+    }
+
+    private static String fetch(final String relativeLink) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        try {
+            return read(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String read(final HttpURLConnection connection) throws IOException {
+        final int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return status + " " + (in == null ? "" : new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+        }
+    }
+
+    public static class CoalescingServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(CoalescedResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Produces(MediaType.TEXT_PLAIN)
+    @Path("/coalesce")
+    public static class CoalescedResource {
+        @GET
+        @Path("/slow")
+        @Coalesced(maxWait = 5, unit = TimeUnit.SECONDS)
+        public String slow(@QueryParam("name") final String name) throws InterruptedException {
+            SLOW_CALLS.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(300);
+            return name;
+        }
+
+        @GET
+        @Path("/slower")
+        @Coalesced(maxWait = 20)
+        public String slower() throws InterruptedException {
+            SLOWER_CALLS.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(300);
+            return "done";
+        }
+
+        @GET
+        @Path("/failing")
+        @Coalesced(maxWait = 5, unit = TimeUnit.SECONDS)
+        public String failing() throws InterruptedException {
+            FAILING_CALLS.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(100);
+            throw new WebApplicationException(409);
+        }
+
+        @GET
+        @Path("/capped")
+        @Coalesced(maxWait = 5, unit = TimeUnit.SECONDS, maxWaiters = 2)
+        public String capped() throws InterruptedException {
+            CAPPED_CALLS.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(300);
+            return "done";
+        }
+
+        @GET
+        @Path("/throwing")
+        @Coalesced(maxWait = 5, unit = TimeUnit.SECONDS)
+        public String throwing() throws InterruptedException {
+            THROWING_CALLS.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(100);
+            throw new IllegalStateException("no mapper for this");
+        }
+
+        @GET
+        @Path("/headed")
+        @Coalesced(maxWait = 5, unit = TimeUnit.SECONDS)
+        public Response headed() throws InterruptedException {
+            HEADED_CALLS.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(300);
+            return Response.ok("done")
+                    .header("Cache-Control", "max-age=60")
+                    .header("X-Flavour", "plain")
+                    .header("Set-Cookie", "leader=yes")
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.google.common.base.Strings;
+import com.google.inject.servlet.ServletModule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class CompressionTest {
+    private static final String BIG = Strings.repeat("{\"street\":\"123 Credibility St\"},", 200);
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(CompressingServer::new,
+            "basic.server.compression.enabled", "true",
+            "basic.server.compression.min-size", "1KiB");
+
+    @Test
+    public void gzipIsPreferred() throws Exception {
+        final HttpURLConnection connection = get("/squeeze/big", "deflate, gzip");
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", connection.getHeaderField("Vary"));
+        final byte[] body = read(connection.getInputStream());
+        assertTrue("compressed to " + body.length, body.length * 10 < BIG.length());
+        assertEquals(BIG, new String(read(new GZIPInputStream(new ByteArrayInputStream(body))), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void offUnlessEnabled() throws Throwable {
+        // the class rule's properties stay set while its tests run
+        System.clearProperty("basic.server.compression.enabled");
+        final ServerRule plain = new ServerRule(CompressingServer::new);
+        plain.before();
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) plain.url("/squeeze/big").openConnection();
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            assertEquals(200, connection.getResponseCode());
+            assertNull(connection.getHeaderField("Content-Encoding"));
+            assertNull(connection.getHeaderField("Vary"));
+            assertEquals(BIG, new String(read(connection.getInputStream()), StandardCharsets.UTF_8));
+        } finally {
+            plain.after();
+            System.setProperty("basic.server.compression.enabled", "true");
+        }
+    }
+
+    @Test
+    public void flushedResponsesAreCompressedAsTheyStream() throws Exception {
+        final HttpURLConnection connection = get("/squeeze/streamed", "gzip");
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        assertEquals(BIG + BIG, new String(read(new GZIPInputStream(connection.getInputStream())), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void deflateIsUsedWhenGzipIsRefused() throws Exception {
+        final HttpURLConnection connection = get("/squeeze/big", "gzip;q=0, deflate");
+        assertEquals("deflate", connection.getHeaderField("Content-Encoding"));
+        assertEquals(BIG, new String(read(new InflaterInputStream(connection.getInputStream())), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void nothingIsCompressedWithoutAcceptEncoding() throws Exception {
+        final HttpURLConnection connection = get("/squeeze/big", null);
+        assertNull(connection.getHeaderField("Content-Encoding"));
+        assertEquals(BIG, new String(read(connection.getInputStream()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void smallResponsesAreLeftAlone() throws Exception {
+        final HttpURLConnection connection = get("/squeeze/small", "gzip");
+        assertNull(connection.getHeaderField("Content-Encoding"));
+        assertEquals("small", new String(read(connection.getInputStream()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void otherMimeTypesAreLeftAlone() throws Exception {
+        final HttpURLConnection connection = get("/squeeze/binary", "gzip");
+        assertNull(connection.getHeaderField("Content-Encoding"));
+        assertEquals(BIG.length(), read(connection.getInputStream()).length);
+    }
+
+    @Test
+    public void identicalBodiesAreCompressedOnce() throws Exception {
+        final CompressedBodyCache cache = serverRule.server().getJettyServer()
+                .getChildHandlerByClass(CompressionHandler.class).cache();
+        // the first sighting isn't cached, the second is
+        read(get("/squeeze/big", "gzip").getInputStream());
+        read(get("/squeeze/big", "gzip").getInputStream());
+        final long size = cache.size();
+        read(get("/squeeze/big", "gzip").getInputStream());
+        assertEquals(size, cache.size());
+        assertTrue(size > 0);
+    }
+
+    @Test
+    public void oneOffBodiesAreNotCached() throws Exception {
+        final CompressedBodyCache cache = serverRule.server().getJettyServer()
+                .getChildHandlerByClass(CompressionHandler.class).cache();
+        final long size = cache.size();
+        for (int i = 0; i < 10; i++) {
+            final HttpURLConnection connection = get("/squeeze/unique", "gzip");
+            assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+            read(connection.getInputStream());
+        }
+        assertEquals(size, cache.size());
+    }
+
+    @Test
+    public void abortedResponsesEndTheirDeflater() throws Exception {
+        final CompressionHandler handler = serverRule.server().getJettyServer()
+                .getChildHandlerByClass(CompressionHandler.class);
+        final HttpURLConnection connection = get("/squeeze/endless", "gzip");
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        connection.getInputStream().read(new byte[100]);
+        // hang up part way, so the server's writes fail and there's never a last one
+        connection.disconnect();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handler.compressorsInUse() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(0, handler.compressorsInUse());
+    }
+
+    @Test
+    public void negotiation() {
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0, *"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("br, deflate;q=0.5"));
+        assertNull(ContentEncoding.negotiate("identity"));
+        assertNull(ContentEncoding.negotiate(null));
+    }
+
+    private static HttpURLConnection get(final String relativeLink, final String acceptEncoding) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        if (acceptEncoding != null) {
+            connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        assertEquals(200, connection.getResponseCode());
+        return connection;
+    }
+
+    private static byte[] read(final InputStream in) throws IOException {
+        try (InputStream is = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = is.read(buffer)) >= 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    public static class CompressingServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(SqueezeResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Path("/squeeze")
+    public static class SqueezeResource {
+        private final AtomicInteger served = new AtomicInteger();
+
+        @GET
+        @Path("/big")
+        @Produces(MediaType.APPLICATION_JSON)
+        public String big() {
+            return BIG;
+        }
+
+        @GET
+        @Path("/unique")
+        @Produces(MediaType.APPLICATION_JSON)
+        public String unique() {
+            return BIG + served.incrementAndGet();
+        }
+
+        @GET
+        @Path("/streamed")
+        @Produces(MediaType.APPLICATION_JSON)
+        public StreamingOutput streamed() {
+            return out -> {
+                out.write(BIG.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                out.write(BIG.getBytes(StandardCharsets.UTF_8));
+            };
+        }
+
+        @GET
+        @Path("/endless")
+        @Produces(MediaType.APPLICATION_JSON)
+        public StreamingOutput endless() {
+            return out -> {
+                for (int i = 0; i < 10_000; i++) {
+                    out.write(BIG.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(1);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+            };
+        }
+
+        @GET
+        @Path("/small")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String small() {
+            return "small";
+        }
+
+        @GET
+        @Path("/binary")
+        @Produces("image/png")
+        public byte[] binary() {
+            return BIG.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
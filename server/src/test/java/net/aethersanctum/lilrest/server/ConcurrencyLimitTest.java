@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.io.ByteStreams;
+import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.limit.GradientLimit;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class ConcurrencyLimitTest {
+    private static final CountDownLatch ENTERED = new CountDownLatch(2);
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(LimitedServer::new,
+            "basic.server.limit.enabled", "true",
+            "basic.server.limit.initial", "2",
+            "basic.server.limit.min", "2",
+            "basic.server.limit.max", "2");
+
+    @Test
+    public void limitGrowsWhileLatencyHoldsAndBusy() {
+        final GradientLimit limit = new GradientLimit(20, 1, 100, 1.5);
+        for (int i = 0; i < 50; i++) {
+            limit.update(1000, limit.limit());
+        }
+        assertTrue("limit " + limit.limit(), limit.limit() > 40);
+    }
+
+    @Test
+    public void limitShrinksWhenLatencyClimbs() {
+        final GradientLimit limit = new GradientLimit(50, 1, 100, 1.5);
+        limit.update(1000, 50);
+        for (int i = 0; i < 20; i++) {
+            limit.update(5000, limit.limit());
+        }
+        assertTrue("limit " + limit.limit(), limit.limit() < 25);
+    }
+
+    @Test
+    public void limitIgnoresSamplesWhenNotBusy() {
+        final GradientLimit limit = new GradientLimit(20, 1, 100, 1.5);
+        for (int i = 0; i < 50; i++) {
+            limit.update(1000 + i * 1000, 2);
+        }
+        assertEquals(20, limit.limit());
+    }
+
+    @Test
+    public void requestsOverTheLimitAreShedAndHealthIsDegraded() throws Exception {
+        final ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            final List<Future<Integer>> slow = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                slow.add(clients.submit(() -> status(connect("/limited/slow"))));
+            }
+            assertTrue(ENTERED.await(5, TimeUnit.SECONDS));
+
+            final HttpURLConnection shed = connect("/limited/slow");
+            assertEquals(503, shed.getResponseCode());
+            assertEquals("1", shed.getHeaderField("Retry-After"));
+            shed.disconnect();
+
+            assertEquals("{\"status\":\"DEGRADED\",\"checks\":[]}", body("/api/health"));
+            assertNotEquals(503, status(connect("/api/%68ealth")));
+            assertNotEquals(503, status(connect("//api/health")));
+            assertTrue(body("/api/metrics").contains("\"limiter\":{\"limit\":2,\"inflight\":2,\"shed\":1,"));
+
+            RELEASE.countDown();
+            for (Future<Integer> request : slow) {
+                assertEquals(200, (int) request.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            RELEASE.countDown();
+            clients.shutdownNow();
+        }
+    }
+
+    private static HttpURLConnection connect(final String relativeLink) throws IOException {
+        return (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+    }
+
+    private static int status(final HttpURLConnection connection) throws IOException {
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String body(final String relativeLink) throws IOException {
+        try (InputStream in = serverRule.url(relativeLink).openStream()) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    public static class LimitedServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(LimitedResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Produces(MediaType.TEXT_PLAIN)
+    @Path("/limited")
+    public static class LimitedResource {
+        @GET
+        @Path("/slow")
+        public String slow() throws InterruptedException {
+            ENTERED.countDown();
+            RELEASE.await(5, TimeUnit.SECONDS);
+            return "done";
+        }
+    }
+}
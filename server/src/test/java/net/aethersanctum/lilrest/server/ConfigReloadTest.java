@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.ByteStreams;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class ConfigReloadTest {
+    private static final File CONFIG = createConfig();
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(TestServer::new,
+            "useConfig", CONFIG.getPath(),
+            "reloadConfig", "true");
+
+    @AfterClass
+    public static void deleteConfig() throws IOException {
+        Files.delete(CONFIG.toPath());
+    }
+
+    @Test
+    public void runtimeSettingsFollowTheConfigFile() throws Exception {
+        final QueuedThreadPool pool = (QueuedThreadPool) serverRule.server().getJettyServer().getThreadPool();
+        assertEquals(50, pool.getMaxThreads());
+        assertFalse(metrics().contains("\"limiter\":{"));
+
+        write("basic.server.max-threads=37",
+                "basic.server.idle-timeout=5s",
+                "basic.server.limit.enabled=true",
+                "basic.server.limit.initial=3",
+                "basic.server.limit.min=3",
+                "basic.server.limit.max=3");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (pool.getMaxThreads() != 37 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        assertEquals(37, pool.getMaxThreads());
+        assertEquals(5000, serverRule.server().getJettyServer().getConnectors()[0].getIdleTimeout());
+        assertTrue(metrics().contains("\"limiter\":{\"limit\":3,"));
+    }
+
+    private static String metrics() throws IOException {
+        try (InputStream in = serverRule.url("/api/metrics").openStream()) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static File createConfig() {
+        try {
+            final File file = File.createTempFile("lilrest", ".properties");
+            Files.write(file.toPath(), Arrays.asList("basic.server.listen-port=0", "basic.server.max-threads=50"),
+                    StandardCharsets.ISO_8859_1);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(final String... lines) throws IOException {
+        final String[] all = Arrays.copyOf(lines, lines.length + 1);
+        all[lines.length] = "basic.server.listen-port=0";
+        Files.write(CONFIG.toPath(), Arrays.asList(all), StandardCharsets.ISO_8859_1);
+    }
+}
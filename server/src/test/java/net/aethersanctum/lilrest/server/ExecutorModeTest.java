@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.Scanner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.inject.servlet.ServletModule;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutorModeTest {
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @Before
+    public void ephemeralPort() {
+        System.setProperty("basic.server.listen-port", "0");
+    }
+
+    @After
+    public void cleanUp() {
+        System.getProperties().remove("basic.server.listen-port");
+        System.getProperties().remove("basic.server.executor");
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void boundExecutorHandlesRequests() throws Exception {
+        final AtomicInteger handedOff = new AtomicInteger();
+        final Executor counting = task -> {
+            handedOff.incrementAndGet();
+            pool.execute(task);
+        };
+        System.setProperty("basic.server.executor", "BOUND");
+        final JaxRsServer server = new JaxRsServer() {
+            @Override
+            protected ServletModule getMainModule() {
+                return new ServletModule() {
+                    @Override
+                    public void configureServlets() {
+                        bind(JaxRsServerTest.TestResource.class).asEagerSingleton();
+                        bind(Executor.class).annotatedWith(ServerExecutor.class).toInstance(counting);
+                    }
+                };
+            }
+        };
+        assertEquals("Hello", fetch(server.getJettyServer(), "/hello"));
+        assertTrue(handedOff.get() > 0);
+    }
+
+    @Test(expected = Exception.class)
+    public void boundModeNeedsAnExecutor() {
+        System.setProperty("basic.server.executor", "BOUND");
+        new TestServer();
+    }
+
+    @Test
+    public void virtualModeServesOnAnyRuntime() throws Exception {
+        // on a JDK without virtual threads this falls back to the bounded pool
+        System.setProperty("basic.server.executor", "VIRTUAL");
+        assertEquals("Hello", fetch(new TestServer().getJettyServer(), "/hello"));
+    }
+
+    private static String fetch(final Server jetty, final String relativeLink) throws Exception {
+        jetty.start();
+        try {
+            final int port = ((ServerConnector) jetty.getConnectors()[0]).getLocalPort();
+            return readLine(new URL("http://localhost:" + port + relativeLink));
+        } finally {
+            jetty.stop();
+        }
+    }
+
+    private static String readLine(final URL url) throws IOException {
+        try (InputStreamReader is = new InputStreamReader(url.openStream());
+             Scanner scanner = new Scanner(is)) {
+            return scanner.nextLine();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+
+import com.google.common.io.ByteStreams;
+import com.google.inject.multibindings.Multibinder;
+import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.lifecycle.Managed;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class GracefulShutdownTest {
+    private static final List<String> EVENTS = new CopyOnWriteArrayList<>();
+    private static final int CLIENTS = 8;
+
+    @Rule
+    public ServerRule serverRule = new ServerRule(DrainingServer::new,
+            "basic.server.shutdown.drain-period", "500ms",
+            "basic.server.shutdown.timeout", "5s");
+
+    @Test
+    public void noRequestFailsWhenStoppedUnderLoad() throws Exception {
+        final AtomicBoolean routable = new AtomicBoolean(true);
+        final AtomicInteger succeeded = new AtomicInteger();
+        final List<String> failures = new CopyOnWriteArrayList<>();
+        final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS + 1);
+        try {
+            // stands in for a load balancer, which stops routing here once health fails
+            final Future<String> balancer = clients.submit(() -> {
+                while (true) {
+                    final HttpURLConnection connection = open("/api/health");
+                    if (connection.getResponseCode() != 200) {
+                        routable.set(false);
+                        return read(connection);
+                    }
+                    read(connection);
+                    TimeUnit.MILLISECONDS.sleep(50);
+                }
+            });
+            final List<Future<?>> load = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                load.add(clients.submit(() -> {
+                    while (routable.get()) {
+                        try {
+                            final HttpURLConnection connection = open("/api/ping");
+                            final int status = connection.getResponseCode();
+                            read(connection);
+                            if (status == 200) {
+                                succeeded.incrementAndGet();
+                            } else {
+                                failures.add("status " + status);
+                            }
+                        } catch (IOException e) {
+                            failures.add(e.toString());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            TimeUnit.MILLISECONDS.sleep(300);
+            final URL ping = serverRule.url("/api/ping");
+            final CompletableFuture<Void> stopped = CompletableFuture.runAsync(() -> {
+                try {
+                    serverRule.server().stop();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            // started while draining and still going when Jetty stops accepting connections
+            final HttpURLConnection slow = open("/slow?millis=1000");
+
+            assertEquals("{\"status\":\"DRAINING\",\"checks\":[]}", balancer.get(5, TimeUnit.SECONDS));
+            for (Future<?> client : load) {
+                client.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(200, slow.getResponseCode());
+            assertEquals("done", read(slow));
+            stopped.get(10, TimeUnit.SECONDS);
+
+            assertEquals("[]", failures.toString());
+            assertTrue(succeeded.get() > 0);
+            try {
+                ping.openConnection().connect();
+                fail("still accepting connections");
+            } catch (ConnectException e) {
+                // gone, as it should be
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void managedServicesStopInReverseOrder() throws Exception {
+        EVENTS.clear();
+        serverRule.server().stop();
+        assertEquals(Arrays.asList("stop second", "stop first"), EVENTS);
+    }
+
+    private HttpURLConnection open(final String relativeLink) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        connection.setConnectTimeout(1000);
+        connection.setReadTimeout(5000);
+        return connection;
+    }
+
+    private static String read(final HttpURLConnection connection) throws IOException {
+        final int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return in == null ? "" : new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Path("/slow")
+    public static class SlowResource {
+        @GET
+        public String slow(@QueryParam("millis") final long millis) throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return "done";
+        }
+    }
+
+    private static final class Hook implements Managed {
+        private final String name;
+
+        private Hook(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void start() {
+            EVENTS.add("start " + name);
+        }
+
+        @Override
+        public void stop() {
+            EVENTS.add("stop " + name);
+        }
+    }
+
+    public static class DrainingServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(SlowResource.class);
+                    final Multibinder<Managed> managed = Multibinder.newSetBinder(binder(), Managed.class);
+                    managed.addBinding().toInstance(new Hook("first"));
+                    managed.addBinding().toInstance(new Hook("second"));
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.inject.servlet.ServletModule;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FuturePromise;
+import org.eclipse.jetty.util.Promise;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class H2cTest {
+    private static final int STREAMS = 50;
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(H2cServer::new,
+            "basic.server.h2c.enabled", "true",
+            "basic.server.acceptors", "1",
+            "basic.server.selectors", "2");
+
+    @Test
+    public void manyStreamsShareOneConnection() throws Exception {
+        final ServerConnector connector = (ServerConnector) serverRule.server().getJettyServer().getConnectors()[0];
+        final int connectionsBefore = connector.getConnectedEndPoints().size();
+        final HTTP2Client client = new HTTP2Client();
+        client.start();
+        try {
+            final FuturePromise<Session> connected = new FuturePromise<>();
+            client.connect(new InetSocketAddress("localhost", serverRule.port()), new Session.Listener.Adapter(), connected);
+            final Session session = connected.get(5, TimeUnit.SECONDS);
+
+            final CountDownLatch done = new CountDownLatch(STREAMS);
+            final Map<Integer, String> bodies = new ConcurrentHashMap<>();
+            for (int i = 0; i < STREAMS; i++) {
+                final MetaData.Request request = new MetaData.Request("GET",
+                        new HttpURI(serverRule.url("/h2/together").toString()), HttpVersion.HTTP_2, new HttpFields());
+                session.newStream(new HeadersFrame(request, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter() {
+                    @Override
+                    public void onData(final Stream stream, final DataFrame frame, final Callback callback) {
+                        bodies.merge(stream.getId(), StandardCharsets.UTF_8.decode(frame.getData()).toString(), String::concat);
+                        callback.succeeded();
+                        if (frame.isEndStream()) {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+            assertTrue("all streams completed", done.await(10, TimeUnit.SECONDS));
+            assertEquals(STREAMS, bodies.size());
+            bodies.values().forEach(body -> assertEquals("together", body));
+            assertEquals(connectionsBefore + 1, connector.getConnectedEndPoints().size());
+        } finally {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void http11StillWorksOnTheSamePort() throws Exception {
+        try (InputStreamReader is = new InputStreamReader(serverRule.url("/h2/plain").openStream(), StandardCharsets.UTF_8);
+             Scanner scanner = new Scanner(is)) {
+            assertEquals("plain", scanner.nextLine());
+        }
+    }
+
+    public static class H2cServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(H2Resource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Path("/h2")
+    @Produces(MediaType.TEXT_PLAIN)
+    public static class H2Resource {
+        private final CountDownLatch arrived = new CountDownLatch(STREAMS);
+
+        /**
+         * Only answers once every stream has arrived, so they must all be in flight at once.
+         */
+        @GET
+        @Path("/together")
+        public String together() throws InterruptedException {
+            arrived.countDown();
+            return arrived.await(5, TimeUnit.SECONDS) ? "together" : "alone";
+        }
+
+        @GET
+        @Path("/plain")
+        public String plain() {
+            return "plain";
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nonnull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.multibindings.Multibinder;
+import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.health.HealthCheck;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class HealthCheckTest {
+    private static final AtomicInteger RUNS = new AtomicInteger();
+    private static final AtomicReference<String> THREAD = new AtomicReference<>();
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(CheckedServer::new,
+            "basic.server.health.refresh", "1h",
+            "basic.server.health.timeout", "200ms");
+
+    @Test
+    public void worstCheckDecidesStatusAndEachIsReported() throws Exception {
+        final JsonNode health = firstRound(serverRule, 3);
+        assertEquals("DOWN", health.get("status").asText());
+
+        final JsonNode checks = health.get("checks");
+        assertEquals(3, checks.size());
+        assertEquals("counting", checks.get(0).get("name").asText());
+        assertEquals("OK", checks.get(0).get("status").asText());
+        assertEquals("hanging", checks.get(1).get("name").asText());
+        assertEquals("DOWN", checks.get(1).get("status").asText());
+        assertEquals("timed out", checks.get(1).get("message").asText());
+        assertEquals("slow", checks.get(2).get("name").asText());
+        assertEquals("DEGRADED", checks.get(2).get("status").asText());
+        assertEquals("replica lag", checks.get(2).get("message").asText());
+        assertTrue(checks.get(2).get("latencyMicros").asLong() >= TimeUnit.MILLISECONDS.toMicros(50));
+    }
+
+    @Test
+    public void probesAnswerFromCachedResultsOffTheRequestThread() throws Exception {
+        firstRound(serverRule, 3);
+        for (int i = 0; i < 20; i++) {
+            status();
+        }
+        assertEquals(1, RUNS.get());
+        assertTrue(THREAD.get(), THREAD.get().startsWith("lilrest-health-"));
+    }
+
+    @Test
+    public void startupDoesNotWaitForTheFirstRound() throws Throwable {
+        final ServerRule blocked = new ServerRule(BlockedServer::new, "basic.server.health.timeout", "10s");
+        final long start = System.nanoTime();
+        blocked.before();
+        try {
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            final HttpURLConnection connection = (HttpURLConnection) blocked.url("/api/health").openConnection();
+            assertEquals(503, connection.getResponseCode());
+            try (InputStream in = connection.getErrorStream()) {
+                final JsonNode health = new ObjectMapper().readTree(in);
+                assertEquals("STARTING", health.get("status").asText());
+                assertEquals(0, health.get("checks").size());
+            }
+            RELEASE.countDown();
+            assertEquals("OK", firstRound(blocked, 1).get("status").asText());
+        } finally {
+            blocked.after();
+        }
+    }
+
+    @Test
+    public void queuedChecksAreTimedFromWhenTheyStart() throws Throwable {
+        final ServerRule queued = new ServerRule(QueuedServer::new,
+                "basic.server.health.threads", "1",
+                "basic.server.health.timeout", "300ms");
+        queued.before();
+        try {
+            final JsonNode health = firstRound(queued, 2);
+            assertEquals(health.toString(), "OK", health.get("status").asText());
+        } finally {
+            queued.after();
+        }
+    }
+
+    /**
+     * The health report once the first round of checks is in, which startup doesn't wait for.
+     */
+    private static JsonNode firstRound(final ServerRule rule, final int checks) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            final HttpURLConnection connection = (HttpURLConnection) rule.url("/api/health").openConnection();
+            final JsonNode health;
+            try (InputStream in = connection.getResponseCode() < 400
+                    ? connection.getInputStream() : connection.getErrorStream()) {
+                health = new ObjectMapper().readTree(in);
+            }
+            if (!"STARTING".equals(health.get("status").asText()) || System.nanoTime() > deadline) {
+                assertEquals(checks, health.get("checks").size());
+                assertEquals("DOWN".equals(health.get("status").asText()) ? 503 : 200, connection.getResponseCode());
+                return health;
+            }
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private static int status() throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url("/api/health").openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    public static class CheckedServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    final Multibinder<HealthCheck> checks = Multibinder.newSetBinder(binder(), HealthCheck.class);
+                    checks.addBinding().toInstance(check("counting", () -> {
+                        RUNS.incrementAndGet();
+                        THREAD.set(Thread.currentThread().getName());
+                        return HealthCheck.Result.ok();
+                    }));
+                    checks.addBinding().toInstance(check("slow", () -> {
+                        TimeUnit.MILLISECONDS.sleep(50);
+                        return HealthCheck.Result.degraded("replica lag");
+                    }));
+                    checks.addBinding().toInstance(check("hanging", () -> {
+                        TimeUnit.SECONDS.sleep(10);
+                        return HealthCheck.Result.ok();
+                    }));
+                }
+            };
+        }
+    }
+
+    public static class BlockedServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    final Multibinder<HealthCheck> checks = Multibinder.newSetBinder(binder(), HealthCheck.class);
+                    checks.addBinding().toInstance(check("blocked", () -> {
+                        RELEASE.await();
+                        return HealthCheck.Result.ok();
+                    }));
+                }
+            };
+        }
+    }
+
+    /**
+     * Two checks that fit the timeout one at a time, but not both back to back.
+     */
+    public static class QueuedServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    final Multibinder<HealthCheck> checks = Multibinder.newSetBinder(binder(), HealthCheck.class);
+                    for (String name : new String[]{"first", "second"}) {
+                        checks.addBinding().toInstance(check(name, () -> {
+                            TimeUnit.MILLISECONDS.sleep(200);
+                            return HealthCheck.Result.ok();
+                        }));
+                    }
+                }
+            };
+        }
+    }
+
+    private interface Body {
+        HealthCheck.Result check() throws Exception;
+    }
+
+    private static HealthCheck check(final String name, final Body body) {
+        return new HealthCheck() {
+            @Nonnull
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Nonnull
+            @Override
+            public Result check() throws Exception {
+                return body.check();
+            }
+        };
+    }
+}
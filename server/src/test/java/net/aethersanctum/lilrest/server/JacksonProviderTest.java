@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import org.junit.Test;
+
+public class JacksonProviderTest {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final JacksonProvider provider = new JacksonProvider();
+
+    @Test
+    public void requestStreamIsLeftOpen() throws Exception {
+        final TrackedStream in = new TrackedStream("{\"a\":1}");
+        assertEquals("{a=1}", read(Map.class, in).toString());
+        assertFalse(in.closed);
+        assertEquals("{a=2}", read(Map.class, new TrackedStream("{\"a\":2}")).toString());
+    }
+
+    @Test
+    public void mappingIteratorsCanStillBeRead() throws Exception {
+        final MappingIterator<?> values = (MappingIterator<?>) read(MappingIterator.class,
+                new TrackedStream("{\"a\":1} {\"a\":2}"));
+        assertEquals("[{a=1}, {a=2}]", values.readAll().toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object read(final Class<?> type, final TrackedStream in) throws IOException {
+        return provider.readFrom((Class<Object>) type, type, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE,
+                new MultivaluedHashMap<>(), in);
+    }
+
+    private static final class TrackedStream extends ByteArrayInputStream {
+        private boolean closed;
+
+        TrackedStream(final String json) {
+            super(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -75,7 +75,7 @@ public class JaxRsServerTest {
 
     @Test
     public void healthReturnsStatusOK() throws Exception {
-        final String expected = jsonFixQuotes("{'status':'OK'}");
+        final String expected = jsonFixQuotes("{'status':'OK','checks':[]}");
         fetchExpecting(expected, "/api/health");
     }
 
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class ListenersTest {
+    private static final int LISTENERS = 3;
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(TestServer::new,
+            "basic.server.listeners", String.valueOf(LISTENERS),
+            "basic.server.listeners.thread-slices", "true",
+            "basic.server.max-threads", "90");
+
+    @Test
+    public void listenersShareThePort() throws Exception {
+        final Connector[] connectors = serverRule.server().getJettyServer().getConnectors();
+        if (!ReusePortConnector.isSupported()) {
+            assertEquals(1, connectors.length);
+            assertEquals("tcp", connectors[0].getName());
+            return;
+        }
+        assertEquals(LISTENERS, connectors.length);
+        for (int i = 0; i < LISTENERS; i++) {
+            final ServerConnector connector = (ServerConnector) connectors[i];
+            assertEquals("tcp-" + i, connector.getName());
+            assertEquals(serverRule.port(), connector.getLocalPort());
+            final QueuedThreadPool slice = (QueuedThreadPool) connector.getExecutor();
+            assertEquals("lilrest-listener-" + i, slice.getName());
+            assertEquals(30, slice.getMaxThreads());
+        }
+    }
+
+    @Test
+    public void connectionsAreCountedPerListener() throws Exception {
+        final int connections = 40;
+        for (int i = 0; i < connections; i++) {
+            final String response = ping();
+            assertTrue(response, response.startsWith("HTTP/1.1 200 "));
+        }
+
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url("/api/metrics").openConnection();
+        final JsonNode listeners;
+        try (InputStream in = connection.getInputStream()) {
+            listeners = new ObjectMapper().readTree(in).get("listeners");
+        }
+        final int expected = serverRule.server().getJettyServer().getConnectors().length;
+        assertEquals(listeners.toString(), expected, listeners.size());
+        long total = 0;
+        for (JsonNode listener : listeners) {
+            total += listener.get("connectionsTotal").asLong();
+            if (expected > 1) {
+                // the kernel hashes each connection's addresses and ports, so every listener gets some
+                assertTrue(listeners.toString(), listener.get("connectionsTotal").asLong() > 0);
+                assertEquals(30, listener.get("threadPool").get("maxThreads").asInt());
+            }
+        }
+        assertTrue(listeners.toString(), total >= connections);
+    }
+
+    private static String ping() throws IOException {
+        try (Socket socket = new Socket("localhost", serverRule.port())) {
+            final OutputStream out = socket.getOutputStream();
+            out.write("GET /api/ping HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            return new String(ByteStreams.toByteArray(socket.getInputStream()), StandardCharsets.UTF_8);
+        }
+    }
+}
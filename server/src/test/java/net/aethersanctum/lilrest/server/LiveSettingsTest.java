@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+
+import net.aethersanctum.lilrest.config.ConfigFactory;
+import net.aethersanctum.lilrest.limit.ConcurrencyLimiter;
+import net.aethersanctum.lilrest.limit.GradientLimit;
+import net.aethersanctum.lilrest.ratelimit.RateLimiter;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Test;
+
+public class LiveSettingsTest {
+    @After
+    public void clearConfig() {
+        System.clearProperty("basic.server.max-threads");
+        System.clearProperty("basic.server.listeners");
+    }
+
+    @Test
+    public void threadSlicesAreResizedWithThePool() throws Exception {
+        final Server server = new Server(new QueuedThreadPool(90));
+        final QueuedThreadPool first = new QueuedThreadPool(30);
+        final QueuedThreadPool second = new QueuedThreadPool(30);
+        server.addConnector(new ServerConnector(server, first, null, null, 1, 1));
+        server.addConnector(new ServerConnector(server, second, null, null, 1, 1));
+        final LiveSettings settings = new LiveSettings(server,
+                new ConcurrencyLimiter(false, new GradientLimit(10, 1, 100, 2.0), 1_000_000_000L),
+                new RateLimiter(false, Collections.emptyList(), 100));
+
+        System.setProperty("basic.server.max-threads", "40");
+        // a new listener count only takes effect on restart, the two slices still split the threads
+        System.setProperty("basic.server.listeners", "4");
+        settings.configChanged(new ConfigFactory());
+
+        assertEquals(40, ((QueuedThreadPool) server.getThreadPool()).getMaxThreads());
+        assertEquals(20, first.getMaxThreads());
+        assertEquals(20, second.getMaxThreads());
+    }
+}
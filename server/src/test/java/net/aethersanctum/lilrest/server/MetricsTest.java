@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.servlet.ServletModule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class MetricsTest {
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(MeteredServer::new);
+
+    @Test
+    public void latencyAndErrorsAreRecordedPerEndpoint() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, status("/metered/ok/" + i));
+        }
+        assertEquals(500, status("/metered/broken"));
+        assertEquals(404, status("/nowhere"));
+
+        final JsonNode report = new ObjectMapper().readTree(get("/api/metrics", MediaType.APPLICATION_JSON));
+        final JsonNode ok = endpoint(report, "GET", "/metered/ok/{n}");
+        assertEquals(5, ok.get("count").asLong());
+        assertEquals(0, ok.get("serverErrors").asLong());
+        assertTrue(ok.get("maxMicros").asLong() > 0);
+        assertEquals(1, endpoint(report, "GET", "/metered/broken").get("serverErrors").asLong());
+        assertTrue(endpoint(report, "*", "(unmatched)").get("clientErrors").asLong() >= 1);
+        assertTrue(report.get("threadPool").get("maxThreads").asInt() > 0);
+    }
+
+    @Test
+    public void prometheusFormatIsServedAsText() throws Exception {
+        assertEquals(200, status("/metered/other"));
+        final String text = get("/api/metrics", "text/plain");
+        assertTrue(text, text.contains("# TYPE lilrest_request_duration_seconds summary"));
+        assertTrue(text, text.contains("lilrest_request_duration_seconds_count{method=\"GET\",path=\"/metered/other\"} 1"));
+        assertTrue(text, text.contains("lilrest_jetty_queue_size "));
+        assertTrue(text, text.contains("lilrest_listener_connections_total{listener=\"tcp\"} "));
+    }
+
+    @Test
+    public void jsonIsPreferred() throws Exception {
+        assertTrue(get("/api/metrics", "*/*").startsWith("{"));
+    }
+
+    private static JsonNode endpoint(final JsonNode report, final String method, final String path) {
+        for (JsonNode endpoint : report.get("endpoints")) {
+            if (endpoint.get("method").asText().equals(method) && endpoint.get("path").asText().equals(path)) {
+                return endpoint;
+            }
+        }
+        assertNotNull(method + " " + path + " in " + report, null);
+        return null;
+    }
+
+    private static int status(final String relativeLink) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String get(final String relativeLink, final String accept) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        connection.setRequestProperty("Accept", accept);
+        try (InputStream is = connection.getInputStream();
+             Scanner scanner = new Scanner(is, StandardCharsets.UTF_8.name())) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    public static class MeteredServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(MeteredResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Path("/metered")
+    @Produces(MediaType.TEXT_PLAIN)
+    public static class MeteredResource {
+        @GET
+        @Path("/ok/{n}")
+        public String ok(@PathParam("n") final int n) {
+            return "ok " + n;
+        }
+
+        @GET
+        @Path("/other")
+        public String other() {
+            return "other";
+        }
+
+        @GET
+        @Path("/broken")
+        public String broken() {
+            throw new IllegalStateException("broken");
+        }
+    }
+}
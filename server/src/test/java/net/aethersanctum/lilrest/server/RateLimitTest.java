@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import net.aethersanctum.lilrest.ratelimit.RateLimitRule;
+import net.aethersanctum.lilrest.ratelimit.TokenBuckets;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class RateLimitTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(TestServer::new,
+            "basic.server.rate-limit.enabled", "true",
+            "basic.server.rate-limit.key", "API_KEY",
+            "basic.server.rate-limit.routes", "/=1000/1000,/api/ping=1/2,/api/health=0");
+
+    @Test
+    public void bucketAllowsBurstThenRefillsAtRate() {
+        final TokenBuckets buckets = new TokenBuckets(1000);
+        assertEquals(2, buckets.take("k", 1, 3, 0));
+        assertEquals(1, buckets.take("k", 1, 3, 0));
+        assertEquals(0, buckets.take("k", 1, 3, 0));
+        assertEquals(-SECOND, buckets.take("k", 1, 3, 0));
+        assertEquals(-SECOND / 2, buckets.take("k", 1, 3, SECOND / 2));
+        assertEquals(0, buckets.take("k", 1, 3, SECOND));
+        assertEquals(2, buckets.take("k", 1, 3, 10 * SECOND));
+    }
+
+    @Test
+    public void tableStaysBoundedWithManyClients() {
+        final TokenBuckets buckets = new TokenBuckets(6400);
+        for (int i = 0; i < 200_000; i++) {
+            assertEquals(4, buckets.take("client-" + i, 10, 5, i));
+        }
+        assertTrue("size " + buckets.size(), buckets.size() <= 6400 + 64);
+    }
+
+    @Test
+    public void rulesParse() {
+        final RateLimitRule burst = RateLimitRule.parse("/api/things=2.5/10");
+        assertEquals("/api/things", burst.getPrefix());
+        assertEquals(2.5, burst.getRate(), 0);
+        assertEquals(10, burst.getBurst());
+        assertEquals(3, RateLimitRule.parse("/x=2.5").getBurst());
+        assertTrue(RateLimitRule.parse("/api/health=0").isUnlimited());
+    }
+
+    @Test
+    public void clientsOverTheirRateGet429() throws Exception {
+        assertEquals(200, ping("alice").getResponseCode());
+        final HttpURLConnection second = ping("alice");
+        assertEquals(200, second.getResponseCode());
+        assertEquals("2", second.getHeaderField("X-RateLimit-Limit"));
+        assertEquals("0", second.getHeaderField("X-RateLimit-Remaining"));
+
+        final HttpURLConnection third = ping("alice");
+        assertEquals(429, third.getResponseCode());
+        assertEquals("1", third.getHeaderField("Retry-After"));
+        assertEquals(200, ping("bob").getResponseCode());
+
+        final HttpURLConnection health = (HttpURLConnection) serverRule.url("/api/health").openConnection();
+        assertEquals(200, health.getResponseCode());
+        assertNull(health.getHeaderField("X-RateLimit-Limit"));
+    }
+
+    @Test
+    public void encodedAndDoubledSlashPathsShareTheRouteLimit() throws Exception {
+        for (String path : new String[] {"/api/%70ing", "//api//ping"}) {
+            final HttpURLConnection connection = ping("carol", path);
+            connection.getResponseCode();
+            assertEquals(path, "2", connection.getHeaderField("X-RateLimit-Limit"));
+        }
+        assertEquals(429, ping("carol", "/api/ping").getResponseCode());
+    }
+
+    @Test
+    public void forwardedForIsTakenFromTheTrustedHop() {
+        assertEquals("203.0.113.7", RateLimitKey.trustedHop("10.0.0.1, 203.0.113.7", 1));
+        assertEquals("10.0.0.1", RateLimitKey.trustedHop("10.0.0.1, 203.0.113.7", 2));
+        assertEquals("10.0.0.1", RateLimitKey.trustedHop("10.0.0.1, 203.0.113.7", 5));
+        assertEquals("10.0.0.1", RateLimitKey.trustedHop("10.0.0.1", 0));
+    }
+
+    @Test
+    public void spoofedForwardedForIsStillLimited() throws Throwable {
+        final ServerRule forwarded = new ServerRule(TestServer::new,
+                "basic.server.rate-limit.enabled", "true",
+                "basic.server.rate-limit.key", "HEADER",
+                "basic.server.rate-limit.routes", "/api/ping=1/2");
+        forwarded.before();
+        try {
+            final int[] codes = new int[3];
+            for (int i = 0; i < codes.length; i++) {
+                final HttpURLConnection connection = (HttpURLConnection) forwarded.url("/api/ping").openConnection();
+                connection.setRequestProperty("X-Forwarded-For", "10.0.0." + i + ", 203.0.113.7");
+                codes[i] = connection.getResponseCode();
+            }
+            assertEquals(200, codes[0]);
+            assertEquals(200, codes[1]);
+            assertEquals(429, codes[2]);
+        } finally {
+            forwarded.after();
+        }
+    }
+
+    private static HttpURLConnection ping(final String apiKey) throws IOException {
+        return ping(apiKey, "/api/ping");
+    }
+
+    private static HttpURLConnection ping(final String apiKey, final String path) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(path).openConnection();
+        connection.setRequestProperty("X-API-Key", apiKey);
+        return connection;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.cache.Cached;
+import net.aethersanctum.lilrest.cache.ResponseCaches;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class ResponseCacheTest {
+    private static final AtomicInteger CALLS = new AtomicInteger();
+    private static final CountDownLatch COMPUTING = new CountDownLatch(1);
+    private static final CountDownLatch INVALIDATED = new CountDownLatch(1);
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(CachingServer::new,
+            "basic.server.compression.enabled", "true");
+
+    @Test
+    public void repeatedRequestsAreServedFromCache() throws Exception {
+        final int before = CALLS.get();
+        final HttpURLConnection first = get("/cached/repeat", null, null);
+        final HttpURLConnection second = get("/cached/repeat", null, null);
+        assertEquals(200, second.getResponseCode());
+        assertEquals(before + 1, CALLS.get());
+        assertNotNull(first.getHeaderField("ETag"));
+        assertEquals(first.getHeaderField("ETag"), second.getHeaderField("ETag"));
+        assertEquals(MediaType.APPLICATION_JSON, second.getContentType());
+    }
+
+    @Test
+    public void matchingIfNoneMatchGetsNotModified() throws Exception {
+        final String etag = get("/cached/revalidate", null, null).getHeaderField("ETag");
+        final int before = CALLS.get();
+        assertEquals(304, get("/cached/revalidate", etag, null).getResponseCode());
+        assertEquals(200, get("/cached/revalidate", "\"something-else\"", null).getResponseCode());
+        assertEquals(before, CALLS.get());
+    }
+
+    @Test
+    public void compressedEtagsRevalidateToo() throws Exception {
+        final HttpURLConnection compressed = get("/cached/gzip", null, "gzip");
+        assertEquals("gzip", compressed.getHeaderField("Content-Encoding"));
+        final String etag = compressed.getHeaderField("ETag");
+        assertTrue(etag, etag.endsWith("-gzip\""));
+        final HttpURLConnection revalidated = get("/cached/gzip", etag, "gzip");
+        assertEquals(304, revalidated.getResponseCode());
+        assertEquals(etag, revalidated.getHeaderField("ETag"));
+    }
+
+    @Test
+    public void headersAreReplayedButCookiesAreNot() throws Exception {
+        final HttpURLConnection first = get("/cached/decorated/headers", null, null);
+        assertNotNull(first.getHeaderField("Set-Cookie"));
+        final HttpURLConnection hit = get("/cached/decorated/headers", null, null);
+        assertEquals(200, hit.getResponseCode());
+        assertEquals("max-age=60", hit.getHeaderField("Cache-Control"));
+        assertEquals("decorated", hit.getHeaderField("X-Document"));
+        assertNull(hit.getHeaderField("Set-Cookie"));
+        final HttpURLConnection revalidated = get("/cached/decorated/headers", first.getHeaderField("ETag"), null);
+        assertEquals(304, revalidated.getResponseCode());
+        assertEquals("max-age=60", revalidated.getHeaderField("Cache-Control"));
+        assertEquals("decorated", revalidated.getHeaderField("X-Document"));
+        assertNull(revalidated.getHeaderField("Set-Cookie"));
+    }
+
+    @Test
+    public void queriesAreCachedSeparately() throws Exception {
+        final int before = CALLS.get();
+        get("/cached/query?a=1", null, null);
+        get("/cached/query?a=2", null, null);
+        assertEquals(before + 2, CALLS.get());
+    }
+
+    @Test
+    public void invalidatedResponsesAreRecomputed() throws Exception {
+        final String etag = get("/cached/invalidated", null, null).getHeaderField("ETag");
+        final int before = CALLS.get();
+        final HttpURLConnection invalidate = (HttpURLConnection) serverRule.url("/cached/invalidated").openConnection();
+        invalidate.setRequestMethod("POST");
+        assertEquals(204, invalidate.getResponseCode());
+        final HttpURLConnection after = get("/cached/invalidated", etag, null);
+        assertEquals(before + 1, CALLS.get());
+        assertNotEquals(etag, after.getHeaderField("ETag"));
+    }
+
+    @Test
+    public void noStoreAndPrivateResponsesAreNotKept() throws Exception {
+        for (String cacheControl : new String[] {"no-store", "private, max-age=60"}) {
+            final String link = "/cached/uncacheable/control?value=" + URLEncoder.encode(cacheControl, "UTF-8");
+            final int before = CALLS.get();
+            assertEquals(cacheControl, get(link, null, null).getHeaderField("Cache-Control"));
+            assertEquals(200, get(link, null, null).getResponseCode());
+            assertEquals(cacheControl, before + 2, CALLS.get());
+        }
+    }
+
+    @Test
+    public void responsesBegunBeforeAnInvalidationAreNotKept() throws Exception {
+        final ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Integer> stale = client.submit(() -> get("/cached/raced/slow", null, null).getResponseCode());
+            assertTrue(COMPUTING.await(5, TimeUnit.SECONDS));
+            final HttpURLConnection invalidate = (HttpURLConnection) serverRule.url("/cached/raced/slow")
+                    .openConnection();
+            invalidate.setRequestMethod("POST");
+            assertEquals(204, invalidate.getResponseCode());
+            INVALIDATED.countDown();
+            assertEquals(200, (int) stale.get(5, TimeUnit.SECONDS));
+
+            final int before = CALLS.get();
+            assertEquals(200, get("/cached/raced/slow", null, null).getResponseCode());
+            assertEquals(before + 1, CALLS.get());
+        } finally {
+            INVALIDATED.countDown();
+            client.shutdownNow();
+        }
+    }
+
+    @Test
+    public void hitsAreRecordedAgainstTheirEndpoint() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, get("/cached/metered/counted", null, null).getResponseCode());
+        }
+        assertEquals(3, requestCount("GET", "/cached/{name}/counted"));
+    }
+
+    @Test
+    public void resourcesWithTheSameSimpleNameGetTheirOwnCaches() throws Exception {
+        final String first = get("/cached/twin", null, null).getHeaderField("ETag");
+        final String second = get("/elsewhere/twin", null, null).getHeaderField("ETag");
+        assertNotEquals(first, second);
+        assertEquals(first, get("/cached/twin", null, null).getHeaderField("ETag"));
+        assertEquals(second, get("/elsewhere/twin", null, null).getHeaderField("ETag"));
+
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url("/api/metrics").openConnection();
+        connection.setRequestProperty("Accept", MediaType.APPLICATION_JSON);
+        final Set<String> names = new HashSet<>();
+        try (InputStream in = connection.getInputStream()) {
+            for (JsonNode cache : new ObjectMapper().readTree(in).get("caches")) {
+                names.add(cache.get("name").asText());
+            }
+        }
+        assertTrue(names.toString(), names.contains(CachedResource.class.getName() + ".document"));
+        assertTrue(names.toString(), names.contains(Elsewhere.CachedResource.class.getName() + ".document"));
+    }
+
+    private static long requestCount(final String method, final String path) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url("/api/metrics").openConnection();
+        connection.setRequestProperty("Accept", MediaType.APPLICATION_JSON);
+        try (InputStream in = connection.getInputStream()) {
+            for (JsonNode endpoint : new ObjectMapper().readTree(in).get("endpoints")) {
+                if (endpoint.get("method").asText().equals(method) && endpoint.get("path").asText().equals(path)) {
+                    return endpoint.get("count").asLong();
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static HttpURLConnection get(final String relativeLink, final String ifNoneMatch,
+                                         final String acceptEncoding) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        if (acceptEncoding != null) {
+            connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        connection.getResponseCode();
+        return connection;
+    }
+
+    public static class CachingServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(CachedResource.class);
+                    bind(Elsewhere.CachedResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Path("/cached")
+    @Produces(MediaType.APPLICATION_JSON)
+    public static class CachedResource {
+        private final ResponseCaches caches;
+
+        @Inject
+        CachedResource(final ResponseCaches caches) {
+            this.caches = caches;
+        }
+
+        @GET
+        @Path("/{name}")
+        @Cached(ttl = 1, unit = TimeUnit.MINUTES)
+        public String document(@PathParam("name") final String name) {
+            return "{\"name\":\"" + name + "\",\"call\":" + CALLS.incrementAndGet()
+                    + ",\"padding\":\"" + Strings.repeat("x", 500) + "\"}";
+        }
+
+        @GET
+        @Path("/{name}/headers")
+        @Cached(ttl = 1, unit = TimeUnit.MINUTES)
+        public Response decorated(@PathParam("name") final String name) {
+            return Response.ok(document(name))
+                    .header("Cache-Control", "max-age=60")
+                    .header("X-Document", name)
+                    .cookie(new NewCookie("session", Integer.toString(CALLS.get())))
+                    .build();
+        }
+
+        @GET
+        @Path("/{name}/control")
+        @Cached(ttl = 1, unit = TimeUnit.MINUTES)
+        public Response controlled(@PathParam("name") final String name, @QueryParam("value") final String value) {
+            return Response.ok(document(name)).header("Cache-Control", value).build();
+        }
+
+        /**
+         * The first call is held up until the test has invalidated it.
+         */
+        @GET
+        @Path("/{name}/slow")
+        @Cached(ttl = 1, unit = TimeUnit.MINUTES)
+        public String slow(@PathParam("name") final String name) throws InterruptedException {
+            final String document = document(name);
+            COMPUTING.countDown();
+            INVALIDATED.await(5, TimeUnit.SECONDS);
+            return document;
+        }
+
+        @GET
+        @Path("/{name}/counted")
+        @Cached(ttl = 1, unit = TimeUnit.MINUTES)
+        public String counted(@PathParam("name") final String name) {
+            return document(name);
+        }
+
+        @POST
+        @Path("/{name}")
+        public void update(@PathParam("name") final String name) {
+            caches.invalidate("/cached/" + name);
+        }
+
+        @POST
+        @Path("/{name}/slow")
+        public void updateSlow(@PathParam("name") final String name) {
+            caches.invalidate("/cached/" + name + "/slow");
+        }
+    }
+
+    /**
+     * Holds a resource class with the same simple name as the one above.
+     */
+    public static class Elsewhere {
+        @Singleton
+        @Path("/elsewhere")
+        @Produces(MediaType.APPLICATION_JSON)
+        public static class CachedResource {
+            @GET
+            @Path("/{name}")
+            @Cached(ttl = 1, unit = TimeUnit.MINUTES)
+            public String document(@PathParam("name") final String name) {
+                return "{\"elsewhere\":\"" + name + "\",\"call\":" + CALLS.incrementAndGet() + "}";
+            }
+        }
+    }
+}
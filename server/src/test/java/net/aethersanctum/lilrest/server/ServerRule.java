@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.rules.ExternalResource;
+
+/**
+ * Runs a server on an ephemeral port for the duration of a test class, configured
+ * through system properties which are put back afterwards.
+ */
+public class ServerRule extends ExternalResource {
+    private final Supplier<? extends JaxRsServer> factory;
+    private final Map<String, String> properties = new LinkedHashMap<>();
+    private JaxRsServer server;
+
+    /**
+     * @param keyValues alternating config property names and values
+     */
+    public ServerRule(final Supplier<? extends JaxRsServer> factory, final String... keyValues) {
+        this.factory = factory;
+        properties.put("basic.server.listen-port", "0");
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            properties.put(keyValues[i], keyValues[i + 1]);
+        }
+    }
+
+    @Override
+    protected void before() throws Throwable {
+        properties.forEach(System::setProperty);
+        server = factory.get();
+        server.startJetty();
+    }
+
+    @Override
+    protected void after() {
+        try {
+            server.getJettyServer().stop();
+        } catch (Exception e) {
+            // trouble shutting down
+        }
+        properties.keySet().forEach(System.getProperties()::remove);
+    }
+
+    public JaxRsServer server() {
+        return server;
+    }
+
+    public int port() {
+        return ((ServerConnector) server.getJettyServer().getConnectors()[0]).getLocalPort();
+    }
+
+    public URL url(final String relativeLink) throws MalformedURLException {
+        return new URL("http://localhost:" + port() + relativeLink);
+    }
+}
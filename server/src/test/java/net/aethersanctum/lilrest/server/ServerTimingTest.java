@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.io.ByteStreams;
+import net.aethersanctum.lilrest.timing.SlowRequest;
+import net.aethersanctum.lilrest.timing.SlowRequests;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class ServerTimingTest {
+    private static final String TIMING = "Server-Timing";
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(TestServer::new,
+            "basic.server.timing.enabled", "true");
+
+    @Test
+    public void timingComesBackWhenAskedFor() throws Exception {
+        final HttpURLConnection connection = open("/pojo");
+        connection.setRequestProperty("X-Request-Timing", "1");
+        try {
+            assertEquals(200, connection.getResponseCode());
+            final String timing = connection.getHeaderField(TIMING);
+            assertTrue(timing, timing.matches("(queue;dur=\\d+\\.\\d{3}, )?filters;dur=\\d+\\.\\d{3}, "
+                    + "scope;dur=\\d+\\.\\d{3}, routing;dur=\\d+\\.\\d{3}, resource;dur=\\d+\\.\\d{3}, "
+                    + "serialization;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}"));
+            try (InputStream in = connection.getInputStream()) {
+                final String body = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+                assertTrue(body, body.contains("\"number\":42"));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void untimedRequestsGetNoHeader() throws Exception {
+        final HttpURLConnection connection = open("/pojo");
+        try {
+            assertEquals(200, connection.getResponseCode());
+            assertNull(connection.getHeaderField(TIMING));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void slowestListsTimedRequests() throws Exception {
+        final HttpURLConnection timed = open("/hello");
+        timed.setRequestProperty("X-Request-Timing", "1");
+        assertEquals(200, timed.getResponseCode());
+        timed.disconnect();
+
+        final HttpURLConnection connection = open("/api/timing/slowest");
+        try (InputStream in = connection.getInputStream()) {
+            final String slowest = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+            assertTrue(slowest, slowest.contains("\"method\":\"GET\",\"uri\":\"/hello\",\"status\":200"));
+            assertTrue(slowest, slowest.contains("\"phaseMicros\":{"));
+            assertTrue(slowest, slowest.contains("\"resource\":"));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void keepsTheSlowestOfTheWindow() {
+        final SlowRequests slowRequests = new SlowRequests(2, 1000);
+        final long now = System.currentTimeMillis();
+        for (long micros : new long[]{5, 1, 9, 3}) {
+            slowRequests.offer(request(micros, now));
+        }
+        assertEquals(Arrays.asList(9L, 5L), totals(slowRequests.slowest()));
+
+        // once the slow ones fall out of the window, quicker ones get in
+        final SlowRequests expiring = new SlowRequests(1, 1000);
+        expiring.offer(request(50, now - 900));
+        expiring.offer(request(2, now + 200));
+        assertEquals(Collections.singletonList(2L), totals(expiring.slowest()));
+    }
+
+    private static SlowRequest request(final long totalMicros, final long timestamp) {
+        return new SlowRequest("GET", "/" + totalMicros, 200, timestamp, totalMicros, Collections.emptyMap());
+    }
+
+    private static List<Long> totals(final List<SlowRequest> requests) {
+        final List<Long> totals = new ArrayList<>();
+        requests.forEach(request -> totals.add(request.getTotalMicros()));
+        return totals;
+    }
+
+    private static HttpURLConnection open(final String relativeLink) throws IOException {
+        return (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+    }
+}
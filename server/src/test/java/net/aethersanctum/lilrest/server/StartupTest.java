@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Singleton;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Key;
+import com.google.inject.servlet.ServletModule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class StartupTest {
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(ParallelServer::new,
+            "basic.server.startup.parallel-init", "true");
+
+    @Test
+    public void reportCoversModulesPhasesAndSingletons() {
+        final StartupReport report = serverRule.server().getStartupReport();
+        assertNotNull(report.total());
+        assertTrue(report.modules().toString(), report.modules().containsKey("JaxRsServerModule"));
+        assertTrue(report.modules().containsKey("ConfigModule"));
+        assertTrue(report.phases().keySet().containsAll(
+                Arrays.asList("config", "injector", "singletons", "server", "jetty")));
+        assertTrue(report.singletons().containsKey(Key.get(ObjectMapper.class)));
+    }
+
+    @Test
+    public void parallelInitCreatesSingletonsOnTheStartupPool() {
+        assertTrue(Lazy.createdOn, Lazy.createdOn.startsWith("lilrest-startup-"));
+    }
+
+    @Test
+    public void earlyBindAnswersStartingUntilReady() throws Exception {
+        final int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        System.setProperty("basic.server.listen-port", Integer.toString(port));
+        System.setProperty("basic.server.startup.early-bind", "true");
+        final CompletableFuture<JaxRsServer> building;
+        try {
+            building = CompletableFuture.supplyAsync(SlowServer::new);
+            assertEquals("503 {\"status\":\"STARTING\"}", awaitAnswer(port, "/api/health"));
+            assertEquals("503 ", get(port, "/api/ping"));
+            RELEASE.countDown();
+            building.get(30, TimeUnit.SECONDS);
+        } finally {
+            RELEASE.countDown();
+            System.setProperty("basic.server.listen-port", "0");
+            System.clearProperty("basic.server.startup.early-bind");
+        }
+
+        final JaxRsServer server = building.get();
+        server.startJetty();
+        try {
+            assertEquals("200 {\"status\":\"OK\",\"checks\":[]}", get(port, "/api/health"));
+        } finally {
+            server.getJettyServer().stop();
+        }
+    }
+
+    private static String awaitAnswer(int port, String path) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                return get(port, path);
+            } catch (ConnectException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static String get(int port, String path) throws IOException {
+        final HttpURLConnection connection =
+                (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        final int status = connection.getResponseCode();
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return status + " " + (body == null ? "" : new String(ByteStreams.toByteArray(body), StandardCharsets.UTF_8));
+        }
+    }
+
+    public static class Lazy {
+        static volatile String createdOn = "never";
+
+        public Lazy() {
+            createdOn = Thread.currentThread().getName();
+        }
+    }
+
+    public static class Gate {
+        public Gate() throws InterruptedException {
+            RELEASE.await(30, TimeUnit.SECONDS);
+        }
+    }
+
+    public static class ParallelServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(Lazy.class).in(Singleton.class);
+                }
+            };
+        }
+    }
+
+    public static class SlowServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(Gate.class).asEagerSingleton();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.inject.servlet.ServletModule;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class StaticContentTest {
+    private static final byte[] SMALL = "small and cached".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BIG = new byte[100_000];
+    private static final byte[] TEXT = Strings.repeat("plain text, easily compressed\n", 1000)
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SHORT_TEXT = Arrays.copyOf(TEXT, 900);
+    private static final byte[] SCRIPT = "var lilrest = 'static';".getBytes(StandardCharsets.UTF_8);
+    private static final Path DIRECTORY = createDirectory();
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(StaticServer::new,
+            "basic.server.compression.enabled", "true",
+            "basic.server.static.max-cached-file", "1KiB",
+            "basic.server.static.map-window", "4KiB");
+
+    @AfterClass
+    public static void removeDirectory() throws IOException {
+        for (String name : new String[] {"small.txt", "big.bin", "big.txt", "short.txt", "app.js", "app.js.gz", ".secret"}) {
+            Files.deleteIfExists(DIRECTORY.resolve(name));
+        }
+        Files.delete(DIRECTORY);
+    }
+
+    @Test
+    public void smallFileWithValidators() throws Exception {
+        final HttpURLConnection connection = get("/files/small.txt");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/plain", connection.getContentType());
+        assertEquals("bytes", connection.getHeaderField("Accept-Ranges"));
+        assertArrayEquals(SMALL, body(connection));
+        final String etag = connection.getHeaderField("ETag");
+
+        final HttpURLConnection revalidate = get("/files/small.txt");
+        revalidate.setRequestProperty("If-None-Match", etag);
+        assertEquals(304, revalidate.getResponseCode());
+
+        final HttpURLConnection sinceThen = get("/files/small.txt");
+        sinceThen.setIfModifiedSince(connection.getLastModified());
+        assertEquals(304, sinceThen.getResponseCode());
+    }
+
+    @Test
+    public void bigFileAcrossMapWindows() throws Exception {
+        final HttpURLConnection connection = get("/files/big.bin");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(BIG.length, connection.getContentLengthLong());
+        assertArrayEquals(BIG, body(connection));
+    }
+
+    @Test
+    public void onlyCachedFilesCompressedOnTheFly() throws Exception {
+        HttpURLConnection connection = get("/files/short.txt");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        connection.disconnect();
+
+        connection = get("/files/big.txt");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, connection.getResponseCode());
+        assertNull(connection.getHeaderField("Content-Encoding"));
+        assertEquals(TEXT.length, connection.getContentLengthLong());
+        assertArrayEquals(TEXT, body(connection));
+    }
+
+    @Test
+    public void ranges() throws Exception {
+        HttpURLConnection connection = get("/files/big.bin");
+        connection.setRequestProperty("Range", "bytes=4000-8999");
+        assertEquals(206, connection.getResponseCode());
+        assertEquals("bytes 4000-8999/100000", connection.getHeaderField("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(BIG, 4000, 9000), body(connection));
+
+        connection = get("/files/small.txt");
+        connection.setRequestProperty("Range", "bytes=-6");
+        assertEquals(206, connection.getResponseCode());
+        assertEquals("cached", new String(body(connection), StandardCharsets.UTF_8));
+
+        connection = get("/files/small.txt");
+        connection.setRequestProperty("Range", "bytes=100-");
+        assertEquals(416, connection.getResponseCode());
+        assertEquals("bytes */" + SMALL.length, connection.getHeaderField("Content-Range"));
+
+        connection = get("/files/small.txt");
+        connection.setRequestProperty("Range", "bytes=0-1");
+        connection.setRequestProperty("If-Range", "\"stale\"");
+        assertEquals(200, connection.getResponseCode());
+    }
+
+    @Test
+    public void precompressedSibling() throws Exception {
+        HttpURLConnection connection = get("/files/app.js");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", connection.getHeaderField("Vary"));
+        assertArrayEquals(gzip(SCRIPT), body(connection));
+
+        connection = get("/files/app.js");
+        assertEquals(200, connection.getResponseCode());
+        assertNull(connection.getHeaderField("Content-Encoding"));
+        assertArrayEquals(SCRIPT, body(connection));
+    }
+
+    @Test
+    public void classpathIndex() throws Exception {
+        final HttpURLConnection connection = get("/ui/");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/html", connection.getContentType());
+        assertTrue(new String(body(connection), StandardCharsets.UTF_8).endsWith("<html><body>hello</body></html>\n"));
+    }
+
+    @Test
+    public void nothingHiddenOrMissing() throws Exception {
+        assertEquals(404, get("/files/.secret").getResponseCode());
+        assertEquals(404, get("/files/nope.txt").getResponseCode());
+        assertEquals(404, get("/ui/nope.html").getResponseCode());
+    }
+
+    @Test
+    public void noWayOutOfTheDirectory() throws Exception {
+        final String outside = "../" + DIRECTORY.getFileName() + "-outside.txt";
+        Files.write(DIRECTORY.resolve(outside), SMALL);
+        try {
+            assertEquals(404, get("/files/%2F" + DIRECTORY.resolve("small.txt").toString().substring(1))
+                    .getResponseCode());
+            assertEquals(404, get("/files/%2f" + DIRECTORY.resolve("small.txt").toString().substring(1))
+                    .getResponseCode());
+            assertEquals(404, get("/files/%2e%2e/" + DIRECTORY.getFileName() + "-outside.txt").getResponseCode());
+            assertEquals(404, get("/files/%2e%2e%2F" + DIRECTORY.getFileName() + "-outside.txt").getResponseCode());
+            assertEquals(404, get("/files/" + DIRECTORY.resolve("small.txt")).getResponseCode());
+            assertEquals(404, get("/files/%5Csmall.txt").getResponseCode());
+        } finally {
+            Files.delete(DIRECTORY.resolve(outside));
+        }
+    }
+
+    private static HttpURLConnection get(final String relativeLink) throws IOException {
+        return (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+    }
+
+    private static byte[] body(final HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            return ByteStreams.toByteArray(in);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static byte[] gzip(final byte[] plain) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(plain);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Path createDirectory() {
+        try {
+            final Path directory = Files.createTempDirectory("lilrest-static");
+            new Random(42).nextBytes(BIG);
+            Files.write(directory.resolve("small.txt"), SMALL);
+            Files.write(directory.resolve("big.bin"), BIG);
+            Files.write(directory.resolve("big.txt"), TEXT);
+            Files.write(directory.resolve("short.txt"), SHORT_TEXT);
+            Files.write(directory.resolve("app.js"), SCRIPT);
+            Files.write(directory.resolve("app.js.gz"), gzip(SCRIPT));
+            Files.write(directory.resolve(".secret"), SMALL);
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class StaticServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    install(new StaticContentModule("/files", DIRECTORY.toString()));
+                    install(new StaticContentModule("/ui", "classpath:static-test"));
+                }
+            };
+        }
+    }
+}
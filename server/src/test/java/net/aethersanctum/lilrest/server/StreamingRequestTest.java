@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.inject.Singleton;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.io.ByteStreams;
+import com.google.inject.servlet.ServletModule;
+import net.aethersanctum.lilrest.server.StreamingResponseTest.Row;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class StreamingRequestTest {
+    private static final int ROWS = 100_000;
+    private static final CountDownLatch FIRST_ROW = new CountDownLatch(1);
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(UploadServer::new,
+            "basic.server.max-request-size", "1KiB");
+
+    @Test
+    public void ndjsonIsReadWhileTheClientIsStillSending() throws Exception {
+        try (Socket socket = new Socket("localhost", serverRule.port())) {
+            final OutputStream out = socket.getOutputStream();
+            out.write(("POST /upload/rows HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n"
+                    + "Content-Type: " + StreamingJsonProvider.APPLICATION_NDJSON + "\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            chunk(out, "{\"id\":0,\"name\":\"row 0\"}\n");
+            out.flush();
+            assertTrue("first row read before the rest was sent", FIRST_ROW.await(10, TimeUnit.SECONDS));
+
+            final StringBuilder lines = new StringBuilder();
+            for (int i = 1; i < ROWS; i++) {
+                lines.append("{\"id\":").append(i).append(",\"name\":\"row ").append(i).append("\"}\n");
+                if (lines.length() > 8192) {
+                    chunk(out, lines.toString());
+                    lines.setLength(0);
+                }
+            }
+            chunk(out, lines.toString());
+            chunk(out, "");
+            out.flush();
+
+            final String response = new String(ByteStreams.toByteArray(socket.getInputStream()), StandardCharsets.UTF_8);
+            assertTrue(response, response.startsWith("HTTP/1.1 200 "));
+            assertTrue(response, response.endsWith("\r\n\r\n" + ROWS));
+        }
+    }
+
+    @Test
+    public void jsonArrayIsReadIntoIterator() throws Exception {
+        final HttpURLConnection connection = post("/upload/sum", MediaType.APPLICATION_JSON, "[1, 2, 3, 4]");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("10", new String(ByteStreams.toByteArray(connection.getInputStream()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void oversizedBodiesAreRefused() throws Exception {
+        final StringBuilder name = new StringBuilder();
+        while (name.length() < 2048) {
+            name.append("spam ");
+        }
+        final String row = "{\"id\":1,\"name\":\"" + name + "\"}";
+        assertEquals(413, post("/upload/row", MediaType.APPLICATION_JSON, row).getResponseCode());
+
+        final HttpURLConnection chunked = (HttpURLConnection) serverRule.url("/upload/row").openConnection();
+        chunked.setChunkedStreamingMode(256);
+        assertEquals(413, send(chunked, MediaType.APPLICATION_JSON, row).getResponseCode());
+
+        assertEquals(200, post("/upload/row", MediaType.APPLICATION_JSON, "{\"id\":1,\"name\":\"small\"}").getResponseCode());
+    }
+
+    @Test
+    public void streamedElementsAreLimitedOneByOne() throws Exception {
+        final StringBuilder numbers = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            numbers.append(i).append(',');
+        }
+        numbers.append("0]");
+        assertTrue(numbers.length() > 1024);
+        assertEquals(200, post("/upload/sum", MediaType.APPLICATION_JSON, numbers.toString()).getResponseCode());
+
+        final StringBuilder big = new StringBuilder("[[");
+        for (int i = 0; i < 8192; i++) {
+            big.append(i).append(',');
+        }
+        big.append("0]]");
+        assertEquals(413, post("/upload/lists", MediaType.APPLICATION_JSON, big.toString()).getResponseCode());
+    }
+
+    @Test
+    public void malformedElementsAreBadRequests() throws Exception {
+        assertEquals(400, post("/upload/sum", MediaType.APPLICATION_JSON, "[1, 2, \"three\"]").getResponseCode());
+        assertEquals(400, post("/upload/sum", MediaType.APPLICATION_JSON, "{\"not\":\"an array\"}").getResponseCode());
+    }
+
+    private static void chunk(final OutputStream out, final String data) throws IOException {
+        final byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        out.write((Integer.toHexString(bytes.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static HttpURLConnection post(final String relativeLink, final String contentType, final String body)
+            throws IOException {
+        return send((HttpURLConnection) serverRule.url(relativeLink).openConnection(), contentType, body);
+    }
+
+    private static HttpURLConnection send(final HttpURLConnection connection, final String contentType,
+                                          final String body) throws IOException {
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", contentType);
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // the server may answer and close before it's all sent
+        }
+        return connection;
+    }
+
+    public static class UploadServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(UploadResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Path("/upload")
+    @Consumes({MediaType.APPLICATION_JSON, StreamingJsonProvider.APPLICATION_NDJSON})
+    @Produces(MediaType.TEXT_PLAIN)
+    public static class UploadResource {
+        @POST
+        @Path("/rows")
+        public String rows(final Stream<Row> rows) {
+            try (Stream<Row> counted = rows) {
+                return String.valueOf(counted.peek(row -> {
+                    if (row.getId() == 0) {
+                        FIRST_ROW.countDown();
+                    }
+                }).count());
+            }
+        }
+
+        @POST
+        @Path("/sum")
+        public String sum(final Iterator<Integer> numbers) {
+            int sum = 0;
+            while (numbers.hasNext()) {
+                sum += numbers.next();
+            }
+            return String.valueOf(sum);
+        }
+
+        @POST
+        @Path("/lists")
+        public String lists(final Stream<int[]> lists) {
+            return String.valueOf(lists.count());
+        }
+
+        @POST
+        @Path("/row")
+        public String row(final Row row) {
+            return row.getName();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.servlet.ServletModule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class StreamingResponseTest {
+    private static final int ROWS = 10_000;
+    private static final CountDownLatch ENDLESS_CLOSED = new CountDownLatch(1);
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(StreamingServer::new);
+
+    @Test
+    public void streamIsWrittenAsJsonArray() throws Exception {
+        final List<Row> rows = new ObjectMapper().readValue(get("/stream/rows", MediaType.APPLICATION_JSON),
+                new TypeReference<List<Row>>() { });
+        assertEquals(ROWS, rows.size());
+        assertEquals(ROWS - 1, rows.get(ROWS - 1).getId());
+    }
+
+    @Test
+    public void streamIsWrittenAsNdjson() throws Exception {
+        final HttpURLConnection connection = open("/stream/rows", StreamingJsonProvider.APPLICATION_NDJSON);
+        assertEquals(StreamingJsonProvider.APPLICATION_NDJSON, connection.getContentType());
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            final List<String> lines = reader.lines().collect(Collectors.toList());
+            assertEquals(ROWS, lines.size());
+            assertEquals("{\"id\":0,\"name\":\"row 0\"}", lines.get(0));
+        }
+    }
+
+    @Test
+    public void iteratorsAndProducersAreStreamedToo() throws Exception {
+        assertEquals("[1,2,3]", new String(get("/stream/iterator", MediaType.APPLICATION_JSON), StandardCharsets.UTF_8));
+        assertEquals("\"a\"\n\"b\"\n", new String(get("/stream/producer", StreamingJsonProvider.APPLICATION_NDJSON),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void sourceIsClosedWhenClientGoesAway() throws Exception {
+        final HttpURLConnection connection = open("/stream/endless", StreamingJsonProvider.APPLICATION_NDJSON);
+        final InputStream in = connection.getInputStream();
+        assertTrue(in.read(new byte[1024]) > 0);
+        in.close();
+        connection.disconnect();
+        assertTrue("endless stream closed", ENDLESS_CLOSED.await(10, TimeUnit.SECONDS));
+    }
+
+    private static HttpURLConnection open(final String relativeLink, final String accept) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url(relativeLink).openConnection();
+        connection.setRequestProperty("Accept", accept);
+        assertEquals(200, connection.getResponseCode());
+        return connection;
+    }
+
+    private static byte[] get(final String relativeLink, final String accept) throws IOException {
+        try (InputStream in = open(relativeLink, accept).getInputStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    public static class Row {
+        private int id;
+        private String name;
+
+        public Row() {
+        }
+
+        Row(final int id) {
+            this.id = id;
+            this.name = "row " + id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(final int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+
+    public static class StreamingServer extends JaxRsServer {
+        @Override
+        protected ServletModule getMainModule() {
+            return new ServletModule() {
+                @Override
+                public void configureServlets() {
+                    bind(StreamingResource.class);
+                }
+            };
+        }
+    }
+
+    @Singleton
+    @Path("/stream")
+    @Produces({MediaType.APPLICATION_JSON, StreamingJsonProvider.APPLICATION_NDJSON})
+    public static class StreamingResource {
+        @GET
+        @Path("/rows")
+        public Stream<Row> rows() {
+            return IntStream.range(0, ROWS).mapToObj(Row::new);
+        }
+
+        @GET
+        @Path("/iterator")
+        public Iterator<Integer> iterator() {
+            return Stream.of(1, 2, 3).iterator();
+        }
+
+        @GET
+        @Path("/producer")
+        public ElementProducer<String> producer() {
+            return sink -> {
+                sink.accept("a");
+                sink.accept("b");
+            };
+        }
+
+        @GET
+        @Path("/endless")
+        public Stream<Row> endless() {
+            return IntStream.iterate(0, i -> i + 1).mapToObj(Row::new).onClose(ENDLESS_CLOSED::countDown);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.lilrest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.common.io.ByteStreams;
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class UnixSocketTest {
+    private static final Path DIRECTORY = createDirectory();
+    private static final Path SOCKET = DIRECTORY.resolve("lilrest.sock");
+
+    @ClassRule
+    public static ServerRule serverRule = new ServerRule(TestServer::new,
+            "basic.server.unix-socket.path", SOCKET.toString(),
+            "basic.server.unix-socket.permissions", "rw-------");
+
+    @AfterClass
+    public static void removeDirectory() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(DIRECTORY);
+    }
+
+    @Test
+    public void servesBothConnectors() throws Exception {
+        final String response = get(SOCKET, "/api/ping");
+        assertTrue(response, response.startsWith("HTTP/1.1 200 "));
+
+        final HttpURLConnection connection = (HttpURLConnection) serverRule.url("/api/ping").openConnection();
+        assertEquals(200, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    @Test
+    public void socketHasConfiguredPermissions() throws Exception {
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(SOCKET)));
+    }
+
+    @Test
+    public void socketIsMovedIntoPlaceWithNothingLeftBehind() throws Exception {
+        final Path directory = Files.createDirectory(DIRECTORY.resolve("moved"));
+        final Path socket = directory.resolve("http.sock");
+        final Server server = new Server();
+        final UnixDomainConnector connector = new UnixDomainConnector(server, 1, socket.toString(), "rw-------",
+                new HttpConnectionFactory());
+        server.addConnector(connector);
+        server.start();
+        try {
+            assertEquals(socket.toString(), connector.getUnixSocket());
+            assertEquals(Collections.singletonList(socket), list(directory));
+            final String response = get(socket, "/");
+            assertTrue(response, response.startsWith("HTTP/1.1 404 "));
+        } finally {
+            server.stop();
+        }
+        assertEquals(Collections.emptyList(), list(directory));
+        Files.delete(directory);
+    }
+
+    @Test
+    public void staleSocketIsReplaced() throws Exception {
+        final Path stale = DIRECTORY.resolve("stale.sock");
+        try (UnixServerSocketChannel channel = UnixServerSocketChannel.open()) {
+            channel.socket().bind(new UnixSocketAddress(stale.toFile()));
+        }
+        assertTrue(Files.exists(stale));
+
+        final Server server = new Server();
+        server.addConnector(new UnixDomainConnector(server, 1, stale.toString(), "rw-------",
+                new HttpConnectionFactory()));
+        server.start();
+        try {
+            final String response = get(stale, "/");
+            assertTrue(response, response.startsWith("HTTP/1.1 404 "));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void otherFilesAreLeftAlone() throws Exception {
+        final Path file = Files.write(DIRECTORY.resolve("not-a-socket"), new byte[]{1});
+        final Server server = new Server();
+        final UnixDomainConnector connector = new UnixDomainConnector(server, 1, file.toString(), "rw-------",
+                new HttpConnectionFactory());
+        try {
+            connector.open();
+            fail("opened on top of a regular file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("something other than a socket"));
+        }
+        assertEquals(1, Files.size(file));
+    }
+
+    private static String get(final Path socket, final String path) throws IOException {
+        try (UnixSocketChannel channel = UnixSocketChannel.open(new UnixSocketAddress(socket.toFile()))) {
+            final OutputStream out = Channels.newOutputStream(channel);
+            out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            final InputStream in = Channels.newInputStream(channel);
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<Path> list(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("lilrest-uds");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}